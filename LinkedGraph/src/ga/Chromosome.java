@@ -9,16 +9,127 @@ public abstract class Chromosome {
     Random RANDOM; // shared Random object
     int maxDepth; // defines how many edges away something can be to be a valid merge candidate -- defines "local"
     int size; // size of the chromosome -- number of merges to compress the graph
-    int[][] genes; // holds the root/offset pairs that define the merges
+    // holds the root/offset pairs that define the merges, one long per gene with the root in the high half and the
+    // offset in the low half, so that copying, crossing over and comparing genes works on a single flat array
+    long[] genes;
+    // whether genes may be shared with a copy, in which case it is copied before being written to
+    private boolean sharedGenes;
+    // how many times each gene appears, built on the first duplicate check and kept up to date by setGene; anything
+    // else writing to genes has to get them from writableGenes
+    private GeneCounts counts;
+
+    // buffer that mutateGene and validateGene write neighbourhoods into, one per thread
+    private static final ThreadLocal<int[]> NEIGHBOURS = ThreadLocal.withInitial(() -> new int[0]);
 
     // constructor
     protected Chromosome(Random RANDOM, int size, int maxDepth) {
         this.RANDOM = RANDOM;
         this.maxDepth = maxDepth;
         this.size = size;
-        this.genes = new int[this.size][2]; // initializes the genes as an empty array
+        this.genes = new long[this.size]; // initializes the genes as an empty array
+    }
+
+    /**
+     * Copies a Chromosome without copying its genes: the copy and the original share them until either writes to
+     * them, see writableGenes. Selection copies chromosomes that mostly go on to be crossed over or mutated, or are
+     * never written to at all.
+     * @param other the Chromosome to copy
+     */
+    protected Chromosome(Chromosome other) {
+        this.RANDOM = other.RANDOM;
+        this.maxDepth = other.maxDepth;
+        this.size = other.size;
+        this.genes = other.genes;
+        this.sharedGenes = true;
+        other.sharedGenes = true;
+    }
+
+
+    /**
+     * Returns a buffer for LinkedGraph.bfs to write a neighbourhood into. The same buffer is handed out on every call
+     * from the same thread, so it only holds a neighbourhood until the next search.
+     * @param size the number of nodes in the graph
+     * @return a buffer large enough to hold any neighbourhood of the graph
+     */
+    protected static int[] neighbourBuffer(int size) {
+        int[] buffer = NEIGHBOURS.get();
+        if (buffer.length < size) {
+            buffer = new int[size];
+            NEIGHBOURS.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Packs a root/offset pair into a gene.
+     * @param root the node the merge starts from
+     * @param offset the distance, modulo the size of the graph, from the root to the node it is merged with
+     * @return the gene
+     */
+    static long gene(int root, int offset) {
+        return ((long) root << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param index the index of the gene
+     * @return the root of the gene
+     */
+    public int getRoot(int index) {
+        return (int) (this.genes[index] >>> 32);
+    }
+
+    /**
+     * @param index the index of the gene
+     * @return the offset of the gene
+     */
+    public int getOffset(int index) {
+        return (int) this.genes[index];
+    }
+
+    /**
+     * Replaces the gene at the given index.
+     * @param index the index of the gene
+     * @param root the root of the new gene
+     * @param offset the offset of the new gene
+     */
+    public void setGene(int index, int root, int offset) {
+        long gene = gene(root, offset);
+        // validation sets every gene it checks, most of them to what they already were
+        if (this.genes[index] == gene) {
+            return;
+        }
+        if (this.sharedGenes) {
+            this.genes = this.genes.clone();
+            this.sharedGenes = false;
+        }
+        if (this.counts != null) {
+            this.counts.remove(this.genes[index]);
+            this.counts.add(gene);
+        }
+        this.genes[index] = gene;
+    }
+
+    /**
+     * Returns the genes for writing to other than through setGene (e.g. copying genes in from another chromosome),
+     * copying them first if they are shared with a copy of this Chromosome. The count of each gene is dropped, to be
+     * built again on the next duplicate check.
+     * @return the genes, not shared with any other Chromosome
+     */
+    long[] writableGenes() {
+        if (this.sharedGenes) {
+            this.genes = this.genes.clone();
+            this.sharedGenes = false;
+        }
+        this.counts = null;
+        return this.genes;
     }
 
+    private GeneCounts counts() {
+        if (this.counts == null) {
+            this.counts = new GeneCounts(this.genes, this.size);
+        }
+        return this.counts;
+    }
 
     /**
      * Initializes the Chromosome with random
@@ -31,7 +142,7 @@ public abstract class Chromosome {
     }
 
     /**
-     * Deep-copies a Chromosome
+     * Copies a Chromosome, sharing its genes until they are written to, see Chromosome(Chromosome)
      * @return a new Chromosome object with the same attributes as this one.
      */
     public abstract Chromosome copy();
@@ -56,14 +167,24 @@ public abstract class Chromosome {
      */
     public abstract void validateGene(int index, LinkedGraph graph);
 
+    /**
+     * Whether validateGene and mutateGene look at the adjacency of the graph they are given (e.g. through bfs or
+     * getAdjacentNodes), or only at its supernodes. When they don't, chromosomes can be evaluated on a graph whose
+     * merges only update the supernodes, see LinkedGraph.clusterCopy.
+     * @return True if the adjacency of the compressed graph is needed, False otherwise
+     */
+    public boolean usesAdjacency(){
+        return true;
+    }
+
     /**
      * Performs the merge specified by the gene on the graph passed in.
      * @param index the index of the gene
      * @param graph the graph to apply the merge to
      */
     public void applyGene(int index, LinkedGraph graph){
-        int from = this.genes[index][0];
-        int to = (this.genes[index][1] + from) % graph.getSize();
+        int from = this.getRoot(index);
+        int to = (this.getOffset(index) + from) % graph.getSize();
         graph.merge(from, to);
     }
 
@@ -80,40 +201,47 @@ public abstract class Chromosome {
 
     /**
      * Checks if the specified gene appears more than once in the Chromosome
-     * @param gene to check for duplicates of
+     * @param gene to check for duplicates of, as packed by gene(root, offset)
      * @return True if the gene exists more than once in the Chromosome, false otherwise.
      */
-    public boolean duplicateGene(int[] gene){
-        boolean found = false;
+    public boolean duplicateGene(long gene){
+        return this.counts().count(gene) > 1;
+    }
+
+    /**
+     * Finds the first gene that appears more than once in the Chromosome. Validation leaves every gene before it alone
+     * as long as those genes merge nodes in different supernodes.
+     * @return the index of the first duplicated gene, or the size of the Chromosome if there is none
+     */
+    int firstDuplicate() {
         for (int i = 0; i < this.size; i++) {
-            if (this.genes[i][0] == gene[0] && this.genes[i][1] == gene[1]) {
-                if(found){
-                    return true;
-                } else {
-                    found = true;
-                }
+            if (this.duplicateGene(this.genes[i])) {
+                return i;
             }
         }
-        return false;
+        return this.size;
     }
 
     @Override
     public String toString() {
-        String output = "[";
-        for (int i = 0; i < this.size; i++) {
+        StringBuilder output = new StringBuilder(this.size * 12 + 2);
+        appendGenes(output, this.genes);
+        return output.toString();
+    }
+
+    /**
+     * Appends genes as toString does, for genes kept apart from their Chromosome (see ResultWriter.Row)
+     * @param output the text to append to
+     * @param genes the genes, as packed by gene(root, offset)
+     */
+    static void appendGenes(StringBuilder output, long[] genes) {
+        output.append('[');
+        for (int i = 0; i < genes.length; i++) {
             if (i > 0) {
-                output += ",";
-            }
-            output += "(";
-            for (int j = 0; j < this.genes[i].length; j++) {
-                if (j > 0) {
-                    output += ",";
-                }
-                output += this.genes[i][j];
+                output.append(',');
             }
-            output += ")";
+            output.append('(').append((int) (genes[i] >>> 32)).append(',').append((int) genes[i]).append(')');
         }
-        output += "]";
-        return output;
+        output.append(']');
     }
 }
@@ -1,11 +1,8 @@
 package ga;
 
+import linkedgraph.KHopIndex;
 import linkedgraph.LinkedGraph;
-import linkedgraph.WrappedNode;
 
-import java.util.Comparator;
-import java.util.List;
-import java.util.PriorityQueue;
 import java.util.Random;
 
 /**
@@ -33,39 +30,44 @@ public class Degree2Chromosome extends Chromosome {
         this.MIN_DEG_SELECT_RATE = degreeSelectRate;
     }
 
+    protected Degree2Chromosome(Degree2Chromosome other) {
+        super(other);
+        this.MIN_DEG_SELECT_RATE = other.MIN_DEG_SELECT_RATE;
+    }
+
     @Override
     public Chromosome copy() {
-        Chromosome copy = new Degree2Chromosome(this.RANDOM, this.size, this.maxDepth, this.MIN_DEG_SELECT_RATE);
-        for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.genes[i].length; j++) {
-                copy.genes[i][j] = this.genes[i][j];
-            }
-        }
-        return copy;
+        return new Degree2Chromosome(this);
     }
 
     @Override
     public void mutateGene(int index, LinkedGraph graph) {
-        List<Integer> neighbours;
+        // look the neighbours up in the k-hop index if there is one, rather than searching for them
+        KHopIndex candidates = graph.getKHopIndex(this.maxDepth);
+        int[] neighbours = candidates == null ? neighbourBuffer(graph.getSize()) : null;
+        int count;
         int randomRoot;
         // for graphs with nodes that have degree = 0, select a different root node (in order to be able to find a neighbour)
         do {
             // select a random starting node
             randomRoot = this.RANDOM.nextInt(graph.getSize());
-            // set that as the root of the selected gene
-            this.genes[index][0] = randomRoot;
             // get the neighbours of that root within the specified distance
-            neighbours = graph.bfs(randomRoot, this.maxDepth);
-        } while(neighbours.size() == 0);
+            count = candidates == null ? graph.bfs(randomRoot, this.maxDepth, neighbours)
+                    : candidates.getCount(randomRoot);
+        } while(count == 0);
+        int start = candidates == null ? 0 : candidates.getStart(randomRoot);
 
-        int selectedNeighbour = neighbours.get(0); //initialize with the first neighbour
+        //initialize with the first neighbour
+        int selectedNeighbour = candidates == null ? neighbours[0] : candidates.get(start);
 
         // if less than rate, select the neighbour with min degree to merge with
         if (this.RANDOM.nextDouble() < MIN_DEG_SELECT_RATE){
             int minDeg = Integer.MAX_VALUE;
+            // an index sorted by degree already has the (first) neighbour with the lowest degree first
+            int scanned = candidates != null && candidates.isSortedByDegree() ? 0 : count;
             // select the neighbour with the lowest degree to merge
-            for (int i = 0; i < neighbours.size(); i++) {
-                int neighbour = neighbours.get(i);
+            for (int i = 0; i < scanned; i++) {
+                int neighbour = candidates == null ? neighbours[i] : candidates.get(start + i);
                 int deg = graph.getOriginalDegree(neighbour);
                 if (deg < minDeg) {
                     selectedNeighbour = neighbour;
@@ -74,13 +76,14 @@ public class Degree2Chromosome extends Chromosome {
             }
         } else { // else select a random neighbour
             // select a random neighbour from the list
-            selectedNeighbour = neighbours.get(this.RANDOM.nextInt(neighbours.size()));
+            int choice = this.RANDOM.nextInt(count);
+            selectedNeighbour = candidates == null ? neighbours[choice] : candidates.get(start + choice);
         }
 
         // calculate the offset value
         int randomOffset = Math.floorMod(selectedNeighbour - randomRoot, graph.getSize());
-        // set the offset
-        this.genes[index][1] = randomOffset;
+        // set the gene
+        this.setGene(index, randomRoot, randomOffset);
     }
 
     /**
@@ -91,26 +94,22 @@ public class Degree2Chromosome extends Chromosome {
     @Override
     public void validateGene(int index, LinkedGraph graph) {
 
-        int from = this.genes[index][0];
-        int to = (this.genes[index][0] + this.genes[index][1]) % graph.getSize();
-        int[] tempGene = new int[]{this.genes[index][0], this.genes[index][1]};
+        int from = this.getRoot(index);
+        int to = (from + this.getOffset(index)) % graph.getSize();
+        long tempGene = this.genes[index];
 
         // if the gene is invalid, because it appears more than once in the chromosome
         // or merges two nodes already in the same cluster, replace it with a new gene
         if (duplicateGene(tempGene) || graph.sameCluster(from, to)) {
 
-            List<Integer> possibleNeighbors = graph.bfs(from, this.maxDepth);
+            int[] possibleNeighbors = neighbourBuffer(graph.getSize());
+            int count = graph.bfs(from, this.maxDepth, possibleNeighbors);
 
-            // get the degree information for all the neighbours and create a priority queue
-            // lightly misusing the WrappedNode for this class, using "distance" to store degree
-            PriorityQueue<WrappedNode> neighboursByDegree = getNeighboursByDegree(possibleNeighbors, graph);
-
-            // iterate through all neighbours within the distance limit of the 'from' node, ordered by lowest degree
+            // iterate through all neighbours within the distance limit of the 'from' node, in the order of the search
             // select the first one which represents a valid merge, if it exists
-            for (int i = 0; i < neighboursByDegree.size(); i++) {
-                to = possibleNeighbors.get(i);
-                tempGene[0] = from;
-                tempGene[1] = Math.floorMod(to - from, graph.getSize());
+            for (int i = 0; i < count; i++) {
+                to = possibleNeighbors[i];
+                tempGene = gene(from, Math.floorMod(to - from, graph.getSize()));
                 if (!graph.sameCluster(from, to) && !duplicateGene(tempGene)) {
                     break;
                 }
@@ -120,34 +119,35 @@ public class Degree2Chromosome extends Chromosome {
             // randomly select a new 'from' node and corresponding 'to' node
             while (duplicateGene(tempGene) || graph.sameCluster(from, to)) {
                 from = this.RANDOM.nextInt(graph.getSize());
-                possibleNeighbors = graph.bfs(from, this.maxDepth);
-                if (possibleNeighbors.size() < 1) { //ignore isolated nodes
+                count = graph.bfs(from, this.maxDepth, possibleNeighbors);
+                if (count < 1) { //ignore isolated nodes
                     continue;
                 }
                 // this will only ever look at the first option
-                // consider a refactor consider all of the neighbours of the random root OR not using the priority queue here?
-                neighboursByDegree = getNeighboursByDegree(possibleNeighbors, graph);
-                to = neighboursByDegree.remove().distance;
+                to = lowestDegree(possibleNeighbors, count, graph);
 
-                tempGene[0] = from;
-                tempGene[1] = Math.floorMod(to - from, graph.getSize());
+                tempGene = gene(from, Math.floorMod(to - from, graph.getSize()));
             }
         }
         // update the gene
-        this.genes[index][0] = from;
-        this.genes[index][1] = Math.floorMod(to - from, graph.getSize());
+        this.setGene(index, from, Math.floorMod(to - from, graph.getSize()));
     }
 
-    // helper method for ordering the possible neighbours by their degree
-    private PriorityQueue<WrappedNode> getNeighboursByDegree(List<Integer> neighbours, LinkedGraph graph){
-        // get the degree information for all the neighbours and create a priority queue
-        // lightly misusing the WrappedNode for this class, using "distance" to store degree
-        PriorityQueue neighboursByDegree = new PriorityQueue(Comparator.naturalOrder());
-        // populate the priority queue
-        for(Integer neighbour : neighbours) {
-            neighboursByDegree.add(new WrappedNode(neighbour, graph.getOriginalDegree(neighbour)));
+    /**
+     * Returns what the head of the priority queue of neighbours by degree used to give, without building the queue:
+     * the "distance" of its head, which held the lowest degree of the neighbours rather than the neighbour itself.
+     * Repair has always taken that value as the node to merge with, so it is kept to keep the results the same.
+     * @param neighbours the neighbours, in the order of the search
+     * @param count the number of neighbours
+     * @param graph the graph the neighbours are in
+     * @return the lowest original degree of the neighbours
+     */
+    private static int lowestDegree(int[] neighbours, int count, LinkedGraph graph) {
+        int lowest = Integer.MAX_VALUE;
+        for (int i = 0; i < count; i++) {
+            lowest = Math.min(lowest, graph.getOriginalDegree(neighbours[i]));
         }
-        return neighboursByDegree;
+        return lowest;
     }
 
 }
@@ -1,8 +1,8 @@
 package ga;
 
+import linkedgraph.KHopIndex;
 import linkedgraph.LinkedGraph;
 
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -23,39 +23,44 @@ public class DegreeChromosome extends Chromosome {
         this.MIN_DEG_SELECT_RATE = degreeSelectRate;
     }
 
+    protected DegreeChromosome(DegreeChromosome other) {
+        super(other);
+        this.MIN_DEG_SELECT_RATE = other.MIN_DEG_SELECT_RATE;
+    }
+
     @Override
     public Chromosome copy() {
-        Chromosome copy = new DegreeChromosome(this.RANDOM, this.size, this.maxDepth, this.MIN_DEG_SELECT_RATE);
-        for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.genes[i].length; j++) {
-                copy.genes[i][j] = this.genes[i][j];
-            }
-        }
-        return copy;
+        return new DegreeChromosome(this);
     }
 
     @Override
     public void mutateGene(int index, LinkedGraph graph) {
-        List<Integer> neighbours;
+        // look the neighbours up in the k-hop index if there is one, rather than searching for them
+        KHopIndex candidates = graph.getKHopIndex(this.maxDepth);
+        int[] neighbours = candidates == null ? neighbourBuffer(graph.getSize()) : null;
+        int count;
         int randomRoot;
         // for graphs with nodes that have degree = 0, select a different root node (in order to be able to find a neighbour)
         do {
             // select a random starting node
             randomRoot = this.RANDOM.nextInt(graph.getSize());
-            // set that as the root of the selected gene
-            this.genes[index][0] = randomRoot;
             // get the neighbours of that root within the specified distance
-            neighbours = graph.bfs(randomRoot, this.maxDepth);
-        } while(neighbours.size() == 0);
+            count = candidates == null ? graph.bfs(randomRoot, this.maxDepth, neighbours)
+                    : candidates.getCount(randomRoot);
+        } while(count == 0);
+        int start = candidates == null ? 0 : candidates.getStart(randomRoot);
 
-        int selectedNeighbour = neighbours.get(0); //initialize with the first neighbour
+        //initialize with the first neighbour
+        int selectedNeighbour = candidates == null ? neighbours[0] : candidates.get(start);
 
         // if less than rate, select the neighbour with min degree to merge with
         if (this.RANDOM.nextDouble() < MIN_DEG_SELECT_RATE){
             int minDeg = Integer.MAX_VALUE;
+            // an index sorted by degree already has the (first) neighbour with the lowest degree first
+            int scanned = candidates != null && candidates.isSortedByDegree() ? 0 : count;
             // select the neighbour with the lowest degree to merge
-            for (int i = 0; i < neighbours.size(); i++) {
-                int neighbour = neighbours.get(i);
+            for (int i = 0; i < scanned; i++) {
+                int neighbour = candidates == null ? neighbours[i] : candidates.get(start + i);
                 int deg = graph.getOriginalDegree(neighbour);
                 if (deg < minDeg) {
                     selectedNeighbour = neighbour;
@@ -64,13 +69,14 @@ public class DegreeChromosome extends Chromosome {
             }
         } else { // else select a random neighbour
             // select a random neighbour from the list
-            selectedNeighbour = neighbours.get(this.RANDOM.nextInt(neighbours.size()));
+            int choice = this.RANDOM.nextInt(count);
+            selectedNeighbour = candidates == null ? neighbours[choice] : candidates.get(start + choice);
         }
 
         // calculate the offset value
         int randomOffset = Math.floorMod(selectedNeighbour - randomRoot, graph.getSize());
-        // set the offset
-        this.genes[index][1] = randomOffset;
+        // set the gene
+        this.setGene(index, randomRoot, randomOffset);
     }
 
     /**
@@ -81,21 +87,21 @@ public class DegreeChromosome extends Chromosome {
     @Override
     public void validateGene(int index, LinkedGraph graph) {
 
-        int from = this.genes[index][0];
-        int to = (this.genes[index][0] + this.genes[index][1]) % graph.getSize();
-        int[] tempGene = new int[]{this.genes[index][0], this.genes[index][1]};
+        int from = this.getRoot(index);
+        int to = (from + this.getOffset(index)) % graph.getSize();
+        long tempGene = this.genes[index];
 
         // if the gene is invalid, because it appears more than once in the chromosome
         // or merges two nodes already in the same cluster, replace it with a new gene
         if (duplicateGene(tempGene) || graph.sameCluster(from, to)) {
 
-            List<Integer> possibleNeighbors = graph.bfs(from, this.maxDepth);
+            int[] possibleNeighbors = neighbourBuffer(graph.getSize());
+            int count = graph.bfs(from, this.maxDepth, possibleNeighbors);
             // iterate through all neighbours within the distance limit of the 'from' node
             // select the first one which represents a valid merge, if it exists
-            for (Integer neighbor : possibleNeighbors) {
-                to = neighbor;
-                tempGene[0] = from;
-                tempGene[1] = Math.floorMod(to - from, graph.getSize());
+            for (int i = 0; i < count; i++) {
+                to = possibleNeighbors[i];
+                tempGene = gene(from, Math.floorMod(to - from, graph.getSize()));
                 if (!graph.sameCluster(from, to) && !duplicateGene(tempGene)) {
                     break;
                 }
@@ -104,18 +110,16 @@ public class DegreeChromosome extends Chromosome {
             // randomly select a new 'from' node and corresponding 'to' node
             while (duplicateGene(tempGene) || graph.sameCluster(from, to)) {
                 from = this.RANDOM.nextInt(graph.getSize());
-                possibleNeighbors = graph.bfs(from, this.maxDepth);
-                if (possibleNeighbors.size() < 1) {
+                count = graph.bfs(from, this.maxDepth, possibleNeighbors);
+                if (count < 1) {
                     continue;
                 }
-                to = possibleNeighbors.get(this.RANDOM.nextInt(possibleNeighbors.size()));
+                to = possibleNeighbors[this.RANDOM.nextInt(count)];
 
-                tempGene[0] = from;
-                tempGene[1] = Math.floorMod(to - from, graph.getSize());
+                tempGene = gene(from, Math.floorMod(to - from, graph.getSize()));
             }
         }
         // update the gene
-        this.genes[index][0] = from;
-        this.genes[index][1] = Math.floorMod(to - from, graph.getSize());
+        this.setGene(index, from, Math.floorMod(to - from, graph.getSize()));
     }
 }
@@ -0,0 +1,159 @@
+package ga;
+
+import linkedgraph.LinkedGraph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Re-evaluation of chromosomes from the first gene in which they differ from a chromosome evaluated before, such as
+ * the parent of a mutated or crossed over chromosome.
+ * <br/>
+ * Up to LIMIT journaled graphs are kept (see LinkedGraph.mark), each holding the merges of the last chromosome
+ * evaluated on it, with a mark every INTERVAL genes. A chromosome is evaluated on the graph whose genes it shares the
+ * longest prefix with: the graph is rolled back to the last mark within that prefix, and only the remaining genes are
+ * validated and applied, so a chromosome mutated at one gene costs the merges after that gene rather than all of
+ * them. The rest of the chromosome is validated as usual, so whatever a changed gene does to the repairs of the genes
+ * after it carries through exactly as in a full evaluation.
+ * <br/>
+ * Every mark makes the next merges copy the rows and nodes they change (see LinkedGraph.mark), and the graphs kept
+ * hold on to the rows and nodes they replaced, so marking too often or keeping too many graphs costs more in copies
+ * and garbage collection than the genes skipped save.
+ * <br/>
+ * The prefix is only skipped as far as none of its genes appears twice in the chromosome, for the same reason as in
+ * PrefixCheckpoints: every gene of the prefix was valid against the states the graph went through, so validation
+ * would have left it as it is and drawn nothing from the Random object. The results are the same as those of a full
+ * evaluation.
+ * <br/>
+ * The chromosomes must all be of the same type, since the graphs are copied for the first of them. Only used by
+ * sequential evaluation; not thread-safe.
+ */
+public class DeltaEvaluation {
+
+	/**
+	 * A journaled graph, and the genes merged into it.
+	 */
+	private static class Lineage {
+		private final LinkedGraph GRAPH;
+		private final long[] GENES;
+		// the mark of the graph after every INTERVAL genes, starting with none
+		private final int[] MARKS;
+		private int LENGTH;
+		private long LAST_USED;
+
+		private Lineage(LinkedGraph graph, int size, int interval) {
+			this.GRAPH = graph;
+			this.GENES = new long[size];
+			this.MARKS = new int[size / interval + 1];
+			this.MARKS[0] = graph.mark();
+		}
+	}
+
+	private final int INTERVAL;
+	private final int LIMIT;
+	private final Function<Chromosome, LinkedGraph> COPIES;
+	private final List<Lineage> LINEAGES;
+	private Lineage CURRENT;
+	private long USES;
+
+	private long RESUMES;
+	private long SKIPPED_GENES;
+
+	/**
+	 * @param interval the number of genes between marks
+	 * @param limit the maximum number of graphs kept
+	 * @param copies makes a copy of the original graph for a chromosome to be evaluated on
+	 */
+	public DeltaEvaluation(int interval, int limit, Function<Chromosome, LinkedGraph> copies) {
+		this.INTERVAL = Math.max(1, interval);
+		this.LIMIT = Math.max(1, limit);
+		this.COPIES = copies;
+		this.LINEAGES = new ArrayList<>();
+	}
+
+	/**
+	 * Finds the graph sharing the longest prefix with a chromosome and rolls it back to the end of that prefix. The
+	 * genes from getStart() on must then be validated and applied to the graph, passing each to applied.
+	 *
+	 * @param chromosome the chromosome about to be evaluated
+	 * @return the graph to evaluate the chromosome on
+	 */
+	public LinkedGraph resume(Chromosome chromosome) {
+		int limit = chromosome.firstDuplicate();
+		Lineage best = null;
+		int bestLength = -1;
+		Lineage oldest = null;
+		for (Lineage lineage : this.LINEAGES) {
+			int length = 0;
+			int end = Math.min(limit, lineage.LENGTH);
+			while (length < end && lineage.GENES[length] == chromosome.genes[length]) {
+				length++;
+			}
+			if (length > bestLength) {
+				best = lineage;
+				bestLength = length;
+			}
+			if (oldest == null || lineage.LAST_USED < oldest.LAST_USED) {
+				oldest = lineage;
+			}
+		}
+		// only the states after whole intervals are marked
+		bestLength -= bestLength % this.INTERVAL;
+		// keep the graphs that share nothing with the chromosome while there is room for another one
+		if (bestLength <= 0) {
+			if (this.LINEAGES.size() < this.LIMIT) {
+				best = new Lineage(this.COPIES.apply(chromosome), chromosome.size, this.INTERVAL);
+				this.LINEAGES.add(best);
+			} else {
+				best = oldest;
+			}
+			bestLength = 0;
+		}
+		best.GRAPH.rollbackTo(best.MARKS[bestLength / this.INTERVAL]);
+		best.LENGTH = bestLength;
+		best.LAST_USED = ++this.USES;
+		this.CURRENT = best;
+		if (bestLength > 0) {
+			this.RESUMES++;
+			this.SKIPPED_GENES += bestLength;
+		}
+		return best.GRAPH;
+	}
+
+	/**
+	 * @return the index of the first gene to validate and apply to the graph returned by the last resume
+	 */
+	public int getStart() {
+		return this.CURRENT.LENGTH;
+	}
+
+	/**
+	 * Records that a gene has been validated and applied to the graph returned by the last resume.
+	 *
+	 * @param chromosome the chromosome being evaluated
+	 * @param index the index of the gene
+	 */
+	public void applied(Chromosome chromosome, int index) {
+		Lineage lineage = this.CURRENT;
+		lineage.GENES[index] = chromosome.genes[index];
+		lineage.LENGTH = index + 1;
+		if (lineage.LENGTH % this.INTERVAL == 0) {
+			lineage.MARKS[lineage.LENGTH / this.INTERVAL] = lineage.GRAPH.mark();
+		}
+	}
+
+	/**
+	 * @return the number of evaluations that skipped a prefix
+	 */
+	public long getResumes() {
+		return this.RESUMES;
+	}
+
+	/**
+	 * @return the total number of genes not replayed
+	 */
+	public long getSkippedGenes() {
+		return this.SKIPPED_GENES;
+	}
+}
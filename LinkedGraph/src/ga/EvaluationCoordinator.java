@@ -0,0 +1,271 @@
+package ga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Coordinator of a distributed evaluation: spawns EvaluationWorker processes on this machine, which connect back to
+ * it over loopback TCP, and hands out the chromosomes of each generation to them in batches.
+ * <br/>
+ * Workers return the fitness and the repaired genes of each chromosome, which are copied back into the population.
+ * Since every chromosome is repaired with the stream of its slot (see RepairRandom), the results are the same as
+ * those of a parallel evaluation in a single process. A worker that fails (its process dies, or its connection
+ * breaks, or it takes longer than the worker timeout to answer) is dropped, its process is stopped, and the batch it
+ * was evaluating is put back in the queue for the others; if every worker has failed, the remaining batches are
+ * evaluated by the coordinator itself.
+ */
+public class EvaluationCoordinator {
+
+	// how long to wait for the workers to start up and connect
+	private static final long CONNECT_TIMEOUT_MILLIS = 60000;
+	private static final int POLL_MILLIS = 100;
+
+	/**
+	 * A connection to a worker, and the process of the worker.
+	 */
+	private static class Connection {
+		private final Socket SOCKET;
+		private final DataInputStream IN;
+		private final DataOutputStream OUT;
+		private final Process PROCESS; // null if the worker is not one of the processes spawned
+
+		/**
+		 * @param socket the socket the worker connected on
+		 * @param processes the processes spawned, among which to find the one of the worker
+		 * @param timeout the number of milliseconds to wait for the worker to answer, 0 for no limit
+		 */
+		private Connection(Socket socket, List<Process> processes, int timeout) throws IOException {
+			this.SOCKET = socket;
+			this.SOCKET.setTcpNoDelay(true);
+			this.IN = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			this.OUT = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			// the worker introduces itself with its process id as soon as it connects
+			this.SOCKET.setSoTimeout((int) CONNECT_TIMEOUT_MILLIS);
+			long pid = this.IN.readLong();
+			this.PROCESS = processes.stream().filter(process -> process.pid() == pid).findFirst().orElse(null);
+			// from then on a read that times out fails like any other, see evaluate
+			this.SOCKET.setSoTimeout(timeout);
+		}
+
+		private void close() {
+			try {
+				this.SOCKET.close();
+			} catch (IOException e) {
+				// nothing more to do with it
+			}
+		}
+	}
+
+	private final GAImplementation GA;
+	private final int BATCH_SIZE;
+	private final List<Process> PROCESSES;
+	private final List<Connection> CONNECTIONS;
+	private final ExecutorService THREADS;
+
+	private EvaluationCoordinator(GAImplementation ga, int batchSize, List<Process> processes,
+			List<Connection> connections) {
+		this.GA = ga;
+		this.BATCH_SIZE = batchSize;
+		this.PROCESSES = processes;
+		// connections are dropped from the list by the threads talking to them when they fail
+		this.CONNECTIONS = new CopyOnWriteArrayList<>(connections);
+		this.THREADS = Executors.newFixedThreadPool(Math.max(1, connections.size()));
+	}
+
+	/**
+	 * Spawns the workers and waits for them to connect. Workers that fail to start are left out.
+	 *
+	 * @param ga the GA to evaluate for
+	 * @param configuration the configuration file of the GA, relative to its input directory
+	 * @param workers the number of workers to spawn
+	 * @param batchSize the number of chromosomes sent to a worker at a time
+	 * @param timeout the number of milliseconds to wait for a worker to answer before dropping it, 0 for no limit
+	 * @return the coordinator
+	 * @throws IOException if no worker could be started
+	 */
+	static EvaluationCoordinator start(GAImplementation ga, String configuration, int workers, int batchSize,
+			int timeout) throws IOException {
+		List<Process> processes = new ArrayList<>();
+		List<Connection> connections = new ArrayList<>();
+		try (ServerSocket server = new ServerSocket(0, workers, InetAddress.getLoopbackAddress())) {
+			String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+			for (int w = 0; w < workers; w++) {
+				processes.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+						EvaluationWorker.class.getName(), String.valueOf(server.getLocalPort()), configuration)
+						.redirectOutput(ProcessBuilder.Redirect.DISCARD)
+						.redirectError(ProcessBuilder.Redirect.INHERIT)
+						.start());
+			}
+			server.setSoTimeout(POLL_MILLIS);
+			long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MILLIS;
+			while (connections.size() < workers && System.currentTimeMillis() < deadline
+					&& processes.stream().filter(Process::isAlive).count() > connections.size()) {
+				try {
+					connections.add(new Connection(server.accept(), processes, timeout));
+				} catch (SocketTimeoutException e) {
+					// check that the workers are still starting up
+				}
+			}
+		}
+		if (connections.isEmpty()) {
+			processes.forEach(Process::destroy);
+			throw new IOException("No evaluation worker connected");
+		}
+		return new EvaluationCoordinator(ga, batchSize, processes, connections);
+	}
+
+	/**
+	 * @return the number of workers that connected
+	 */
+	public int getWorkerCount() {
+		return this.CONNECTIONS.size();
+	}
+
+	/**
+	 * Evaluates chromosomes of a population, repairing them in place.
+	 *
+	 * @param population the population
+	 * @param slots the indices of the chromosomes to evaluate
+	 * @param seed the seed of the GA, from which the repair streams are derived
+	 * @param run the current run
+	 * @param generation the current generation, 0 for the initial population
+	 * @param fitness the array to store the fitness of each chromosome in, by index
+	 */
+	void evaluate(Chromosome[] population, int[] slots, long seed, int run, int generation, int[] fitness) {
+		BlockingQueue<int[]> batches = new LinkedBlockingQueue<>();
+		for (int start = 0; start < slots.length; start += this.BATCH_SIZE) {
+			batches.add(Arrays.copyOfRange(slots, start, Math.min(slots.length, start + this.BATCH_SIZE)));
+		}
+		CountDownLatch done = new CountDownLatch(batches.size());
+		AtomicInteger live = new AtomicInteger(this.CONNECTIONS.size());
+		for (Connection connection : this.CONNECTIONS) {
+			this.THREADS.execute(() -> {
+				try {
+					while (done.getCount() > 0) {
+						int[] batch = batches.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+						if (batch == null) {
+							continue;
+						}
+						try {
+							this.send(connection, population, batch, seed, run, generation, fitness);
+							done.countDown();
+						} catch (IOException e) {
+							// give the batch to another worker, and stop using this one, which may be stuck rather
+							// than dead if the read timed out (a SocketTimeoutException)
+							batches.add(batch);
+							System.err.println("Evaluation worker failed, re-queueing its batch: " + e);
+							connection.close();
+							if (connection.PROCESS != null) {
+								connection.PROCESS.destroyForcibly();
+							}
+							this.CONNECTIONS.remove(connection);
+							live.decrementAndGet();
+							return;
+						}
+					}
+				} catch (InterruptedException e) {
+					live.decrementAndGet();
+				}
+			});
+		}
+		try {
+			while (!done.await(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (live.get() == 0) {
+					// no workers left, evaluate what remains here
+					int[] batch;
+					while ((batch = batches.poll()) != null) {
+						for (int slot : batch) {
+							fitness[slot] = this.GA.repair(population[slot],
+									RepairRandom.forSlot(seed, run, generation, slot)).totalFakeLinks();
+						}
+						done.countDown();
+					}
+				}
+			}
+		} catch (InterruptedException e) {
+			throw new IllegalStateException("Distributed evaluation interrupted", e);
+		}
+	}
+
+	/**
+	 * Sends a batch to a worker and copies back its results, once they have all been read.
+	 */
+	private void send(Connection connection, Chromosome[] population, int[] batch, long seed, int run,
+			int generation, int[] fitness) throws IOException {
+		connection.OUT.writeInt(EvaluationWorker.EVALUATE);
+		connection.OUT.writeLong(seed);
+		connection.OUT.writeInt(run);
+		connection.OUT.writeInt(generation);
+		connection.OUT.writeInt(batch.length);
+		for (int slot : batch) {
+			connection.OUT.writeInt(slot);
+			EvaluationWorker.writeGenes(connection.OUT, population[slot]);
+		}
+		connection.OUT.flush();
+
+		int count = connection.IN.readInt();
+		if (count != batch.length) {
+			throw new IOException("Expected " + batch.length + " results, got " + count);
+		}
+		int[] slots = new int[count];
+		int[] results = new int[count];
+		Chromosome[] repaired = new Chromosome[count];
+		for (int c = 0; c < count; c++) {
+			slots[c] = connection.IN.readInt();
+			if (slots[c] != batch[c]) {
+				throw new IOException("Expected slot " + batch[c] + ", got " + slots[c]);
+			}
+			results[c] = connection.IN.readInt();
+			repaired[c] = population[slots[c]].copy();
+			EvaluationWorker.readGenes(connection.IN, repaired[c]);
+		}
+		for (int c = 0; c < count; c++) {
+			fitness[slots[c]] = results[c];
+			System.arraycopy(repaired[c].genes, 0, population[slots[c]].writableGenes(), 0, repaired[c].genes.length);
+		}
+	}
+
+	/**
+	 * Stops the workers.
+	 */
+	public void close() {
+		for (Connection connection : this.CONNECTIONS) {
+			try {
+				connection.OUT.writeInt(EvaluationWorker.SHUTDOWN);
+				connection.OUT.flush();
+			} catch (IOException e) {
+				// it is being stopped anyway
+			}
+			connection.close();
+		}
+		this.THREADS.shutdown();
+		for (Process process : this.PROCESSES) {
+			try {
+				if (!process.waitFor(5, TimeUnit.SECONDS)) {
+					process.destroy();
+				}
+			} catch (InterruptedException e) {
+				process.destroy();
+			}
+		}
+	}
+}
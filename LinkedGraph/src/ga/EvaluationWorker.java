@@ -0,0 +1,123 @@
+package ga;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+
+/**
+ * Worker process of a distributed evaluation, see EvaluationCoordinator.
+ * <br/>
+ * The worker loads the same configuration file as the GA it works for (and so the same graph and chromosome type),
+ * connects to the coordinator over TCP, and then evaluates batches of chromosomes until it is told to stop or the
+ * connection is closed. Each chromosome is repaired with the RepairRandom stream of its slot, exactly as in a
+ * parallel evaluation, so the results do not depend on which process evaluates them.
+ * <br/>
+ * Messages are sequences of big-endian ints and longs:
+ * <br/>
+ * on connecting: the process id of the worker (long)
+ * <br/>
+ * request: EVALUATE, seed (long), run, generation, count, then for each chromosome its slot, its number of genes and
+ * the root and offset of each gene; or SHUTDOWN
+ * <br/>
+ * reply: count, then for each chromosome its slot, its fitness, its number of genes and the root and offset of each
+ * gene after repair
+ * <br/>
+ * Usage: EvaluationWorker port configuration
+ */
+public class EvaluationWorker {
+
+	static final int SHUTDOWN = 0;
+	static final int EVALUATE = 1;
+
+	private final GAImplementation GA;
+
+	/**
+	 * @param ga the GA to evaluate chromosomes for, only used for its configuration and original graph
+	 */
+	EvaluationWorker(GAImplementation ga) {
+		this.GA = ga;
+	}
+
+	public static void main(String... args) {
+		if (args.length != 2) {
+			System.out.println("Usage: EvaluationWorker <port> <configuration>");
+			return;
+		}
+		GAImplementation ga = new GAImplementation(0, args[1], false);
+		try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0]))) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			out.writeLong(ProcessHandle.current().pid());
+			out.flush();
+			new EvaluationWorker(ga).serve(in, out);
+		} catch (EOFException e) {
+			// the coordinator has gone away, nothing left to do
+		} catch (IOException e) {
+			System.err.println("Worker stopped: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Evaluates batches until told to stop.
+	 *
+	 * @param in the stream to read requests from
+	 * @param out the stream to write replies to
+	 * @throws IOException if the connection fails
+	 */
+	void serve(DataInputStream in, DataOutputStream out) throws IOException {
+		while (in.readInt() == EVALUATE) {
+			long seed = in.readLong();
+			int run = in.readInt();
+			int generation = in.readInt();
+			int count = in.readInt();
+			// read the whole batch before replying, so that neither side is left writing to the other
+			int[] slots = new int[count];
+			Chromosome[] chromosomes = new Chromosome[count];
+			for (int c = 0; c < count; c++) {
+				slots[c] = in.readInt();
+				chromosomes[c] = this.GA.createChromosome();
+				readGenes(in, chromosomes[c]);
+			}
+			out.writeInt(count);
+			for (int c = 0; c < count; c++) {
+				int fitness = this.GA.repair(chromosomes[c], RepairRandom.forSlot(seed, run, generation, slots[c]))
+						.totalFakeLinks();
+				out.writeInt(slots[c]);
+				out.writeInt(fitness);
+				writeGenes(out, chromosomes[c]);
+			}
+			out.flush();
+		}
+	}
+
+	/**
+	 * Writes the genes of a chromosome: their number, then the root and offset of each.
+	 */
+	static void writeGenes(DataOutputStream out, Chromosome chromosome) throws IOException {
+		out.writeInt(chromosome.genes.length);
+		for (int g = 0; g < chromosome.genes.length; g++) {
+			out.writeInt(chromosome.getRoot(g));
+			out.writeInt(chromosome.getOffset(g));
+		}
+	}
+
+	/**
+	 * Reads genes written by writeGenes into a chromosome of the same size.
+	 */
+	static void readGenes(DataInputStream in, Chromosome chromosome) throws IOException {
+		int size = in.readInt();
+		if (size != chromosome.genes.length) {
+			throw new IOException("Expected " + chromosome.genes.length + " genes, got " + size);
+		}
+		for (int g = 0; g < chromosome.genes.length; g++) {
+			int root = in.readInt();
+			chromosome.setGene(g, root, in.readInt());
+		}
+	}
+}
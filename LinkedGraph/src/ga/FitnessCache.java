@@ -0,0 +1,381 @@
+package ga;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Bounded cache of chromosome fitnesses, keyed by a 128-bit hash of the genes of the chromosomes.
+ * <br/>
+ * Chromosomes are identified by their Key, two 64-bit hashes of their gene array, rather than by their string
+ * representation, so a lookup neither builds a string nor keeps one alive. Two different chromosomes are only
+ * confused if both hashes collide, which does not happen in practice.
+ * <br/>
+ * Entries are found through an open-addressing table, as in NeighbourhoodCache. The cache holds at most as many
+ * entries as fit in its budget of bytes; once it is full, entries are evicted with the CLOCK algorithm: every get
+ * marks its entry as referenced, and the clock hand sweeps over the entries clearing those marks, evicting the first
+ * entry that has not been referenced since the last sweep.
+ * <br/>
+ * The cache is not synchronized. It may be read from several threads with peek, as long as nothing is written to it
+ * at the same time.
+ */
+public class FitnessCache {
+
+	/**
+	 * Default budget, in bytes.
+	 */
+	public static final long DEFAULT_BUDGET = 256L * 1024 * 1024;
+	/**
+	 * Returned by get and peek for chromosomes that are not in the cache.
+	 */
+	public static final int MISSING = Integer.MIN_VALUE;
+	/**
+	 * Bytes used by an entry: its two hashes, its fitness, its reference mark and its slots in the hash table (which
+	 * is kept at most half full).
+	 */
+	private static final int ENTRY_BYTES = 2 * Long.BYTES + Integer.BYTES + 1 + 2 * Integer.BYTES;
+
+	/**
+	 * The identity of a chromosome in the cache: two independent 64-bit hashes of its genes.
+	 */
+	public static final class Key {
+		private final long HIGH;
+		private final long LOW;
+
+		private Key(long high, long low) {
+			this.HIGH = high;
+			this.LOW = low;
+		}
+
+		/**
+		 * @param chromosome the chromosome
+		 * @return the key of the chromosome as its genes are now
+		 */
+		public static Key of(Chromosome chromosome) {
+			return ofPrefix(chromosome, chromosome.genes.length);
+		}
+
+		/**
+		 * @param chromosome the chromosome
+		 * @param length the number of genes at the start of the chromosome to take
+		 * @return the key of the first genes of the chromosome as they are now
+		 */
+		public static Key ofPrefix(Chromosome chromosome, int length) {
+			long[] genes = chromosome.genes;
+			// the two halves of MurmurHash3 x64 128, taking a gene at a time
+			long h1 = length;
+			long h2 = ~(long) length;
+			for (int g = 0; g < length; g++) {
+				long gene = genes[g];
+				h1 ^= Long.rotateLeft(gene * 0x87C37B91114253D5L, 31) * 0x4CF5AD432745937FL;
+				h1 = Long.rotateLeft(h1, 27) + h2;
+				h1 = h1 * 5 + 0x52DCE729;
+				h2 ^= Long.rotateLeft(gene * 0x4CF5AD432745937FL, 33) * 0x87C37B91114253D5L;
+				h2 = Long.rotateLeft(h2, 31) + h1;
+				h2 = h2 * 5 + 0x38495AB5;
+			}
+			h1 += h2;
+			h2 += h1;
+			h1 = mix(h1);
+			h2 = mix(h2);
+			h1 += h2;
+			h2 += h1;
+			return new Key(h1, h2);
+		}
+
+		/**
+		 * @param out where to write the key
+		 * @throws IOException if the key can not be written
+		 */
+		void write(DataOutput out) throws IOException {
+			out.writeLong(this.HIGH);
+			out.writeLong(this.LOW);
+		}
+
+		/**
+		 * @param in where to read a key written by write from
+		 * @return the key
+		 * @throws IOException if the key can not be read
+		 */
+		static Key read(DataInput in) throws IOException {
+			return new Key(in.readLong(), in.readLong());
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			if (!(other instanceof Key)) {
+				return false;
+			}
+			Key key = (Key) other;
+			return this.HIGH == key.HIGH && this.LOW == key.LOW;
+		}
+
+		@Override
+		public int hashCode() {
+			return (int) this.LOW;
+		}
+	}
+
+	private final int MAX_ENTRIES;
+	/**
+	 * Hash table of entry indices, offset by one so that 0 marks an empty slot. Linear probing.
+	 */
+	private int[] INDEX;
+	private long[] HIGH;
+	private long[] LOW;
+	private int[] FITNESS;
+	private boolean[] REFERENCED;
+	private int COUNT;
+	private int HAND;
+
+	private long HITS;
+	private long MISSES;
+	private long EVICTIONS;
+
+	/**
+	 * @param budget the maximum number of bytes the cache may take up
+	 */
+	public FitnessCache(long budget) {
+		this.MAX_ENTRIES = (int) Math.min(Integer.MAX_VALUE / 4, Math.max(0, budget / ENTRY_BYTES));
+		this.INDEX = new int[64];
+		this.HIGH = new long[16];
+		this.LOW = new long[16];
+		this.FITNESS = new int[16];
+		this.REFERENCED = new boolean[16];
+	}
+
+	/**
+	 * Looks up a chromosome, counting the lookup as a hit if it finds the chromosome and marking the entry as
+	 * referenced. A chromosome that is not found is not counted as a miss yet, since it may still be found once it has
+	 * been repaired, see put.
+	 *
+	 * @param key the key of the chromosome
+	 * @return the cached fitness of the chromosome, MISSING if it is not in the cache
+	 */
+	public int get(Key key) {
+		int slot = this.find(key.HIGH, key.LOW);
+		if (this.INDEX[slot] == 0) {
+			return MISSING;
+		}
+		int entry = this.INDEX[slot] - 1;
+		this.REFERENCED[entry] = true;
+		this.HITS++;
+		return this.FITNESS[entry];
+	}
+
+	/**
+	 * Looks up a chromosome without changing anything in the cache.
+	 *
+	 * @param key the key of the chromosome
+	 * @return the cached fitness of the chromosome, MISSING if it is not in the cache
+	 */
+	public int peek(Key key) {
+		int slot = this.find(key.HIGH, key.LOW);
+		return this.INDEX[slot] == 0 ? MISSING : this.FITNESS[this.INDEX[slot] - 1];
+	}
+
+	/**
+	 * @param key the key of the chromosome
+	 * @return True if the chromosome is in the cache
+	 */
+	public boolean contains(Key key) {
+		return this.peek(key) != MISSING;
+	}
+
+	/**
+	 * Caches the fitness of a chromosome, unless it is already cached, evicting another chromosome if the cache is
+	 * full. The fitness of every chromosome put has had to be measured, so each put counts as a miss.
+	 *
+	 * @param key the key of the chromosome
+	 * @param fitness the fitness of the chromosome
+	 */
+	public void put(Key key, int fitness) {
+		this.MISSES++;
+		if (this.MAX_ENTRIES == 0 || this.INDEX[this.find(key.HIGH, key.LOW)] != 0) {
+			return;
+		}
+		if (this.COUNT == this.MAX_ENTRIES) {
+			this.evict();
+		}
+		if (this.COUNT == this.HIGH.length) {
+			this.growEntries();
+		}
+		int entry = this.COUNT++;
+		this.HIGH[entry] = key.HIGH;
+		this.LOW[entry] = key.LOW;
+		this.FITNESS[entry] = fitness;
+		this.REFERENCED[entry] = false;
+		if (this.COUNT * 2 > this.INDEX.length) {
+			this.rehash(this.INDEX.length * 2);
+		} else {
+			this.INDEX[this.find(key.HIGH, key.LOW)] = entry + 1;
+		}
+	}
+
+	/**
+	 * @return the number of gets that found their chromosome
+	 */
+	public long getHits() {
+		return this.HITS;
+	}
+
+	/**
+	 * @return the number of chromosomes whose fitness was not in the cache and had to be measured
+	 */
+	public long getMisses() {
+		return this.MISSES;
+	}
+
+	/**
+	 * @return the number of chromosomes evicted to stay within the budget
+	 */
+	public long getEvictions() {
+		return this.EVICTIONS;
+	}
+
+	/**
+	 * @return the number of cached chromosomes
+	 */
+	public int size() {
+		return this.COUNT;
+	}
+
+	/**
+	 * Writes the entries of the cache, in order, with their reference marks, the position of the clock hand and the
+	 * counts of hits, misses and evictions, so that a cache read back by read evicts the same entries as this one.
+	 *
+	 * @param out where to write the cache
+	 * @throws IOException if the cache can not be written
+	 */
+	void write(DataOutput out) throws IOException {
+		out.writeInt(this.COUNT);
+		out.writeInt(this.HAND);
+		out.writeLong(this.HITS);
+		out.writeLong(this.MISSES);
+		out.writeLong(this.EVICTIONS);
+		for (int entry = 0; entry < this.COUNT; entry++) {
+			out.writeLong(this.HIGH[entry]);
+			out.writeLong(this.LOW[entry]);
+			out.writeInt(this.FITNESS[entry]);
+			out.writeBoolean(this.REFERENCED[entry]);
+		}
+	}
+
+	/**
+	 * @param in where to read a cache written by write from
+	 * @param budget the maximum number of bytes the cache may take up, which should be the budget it was written with
+	 * @return the cache
+	 * @throws IOException if the cache can not be read
+	 */
+	static FitnessCache read(DataInput in, long budget) throws IOException {
+		FitnessCache cache = new FitnessCache(budget);
+		int count = in.readInt();
+		if (count > cache.MAX_ENTRIES) {
+			throw new IOException("Fitness cache of " + count + " chromosomes does not fit in the budget");
+		}
+		cache.HAND = in.readInt();
+		cache.HITS = in.readLong();
+		cache.MISSES = in.readLong();
+		cache.EVICTIONS = in.readLong();
+		int capacity = Math.max(cache.HIGH.length, count);
+		cache.HIGH = new long[capacity];
+		cache.LOW = new long[capacity];
+		cache.FITNESS = new int[capacity];
+		cache.REFERENCED = new boolean[capacity];
+		for (int entry = 0; entry < count; entry++) {
+			cache.HIGH[entry] = in.readLong();
+			cache.LOW[entry] = in.readLong();
+			cache.FITNESS[entry] = in.readInt();
+			cache.REFERENCED[entry] = in.readBoolean();
+		}
+		cache.COUNT = count;
+		int slots = cache.INDEX.length;
+		while (count * 2 > slots) {
+			slots *= 2;
+		}
+		cache.rehash(slots);
+		return cache;
+	}
+
+	/**
+	 * Evicts one entry, chosen by the clock hand. The last entry is moved into the freed position so that the
+	 * entries stay packed.
+	 */
+	private void evict() {
+		if (this.HAND >= this.COUNT) {
+			this.HAND = 0;
+		}
+		while (this.REFERENCED[this.HAND]) {
+			this.REFERENCED[this.HAND] = false;
+			this.HAND = (this.HAND + 1) % this.COUNT;
+		}
+		int victim = this.HAND;
+		this.EVICTIONS++;
+		this.remove(this.find(this.HIGH[victim], this.LOW[victim]));
+		int last = --this.COUNT;
+		if (victim != last) {
+			this.HIGH[victim] = this.HIGH[last];
+			this.LOW[victim] = this.LOW[last];
+			this.FITNESS[victim] = this.FITNESS[last];
+			this.REFERENCED[victim] = this.REFERENCED[last];
+			this.INDEX[this.find(this.HIGH[victim], this.LOW[victim])] = victim + 1;
+		}
+	}
+
+	/**
+	 * @return the slot holding the key, or the empty slot where it would be inserted
+	 */
+	private int find(long high, long low) {
+		int mask = this.INDEX.length - 1;
+		int slot = (int) low & mask;
+		while (this.INDEX[slot] != 0
+				&& (this.LOW[this.INDEX[slot] - 1] != low || this.HIGH[this.INDEX[slot] - 1] != high)) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties a slot of the hash table, shifting back the entries after it so that no probe sequence is broken.
+	 */
+	private void remove(int slot) {
+		int mask = this.INDEX.length - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (this.INDEX[next] != 0) {
+			int home = (int) this.LOW[this.INDEX[next] - 1] & mask;
+			// move the entry into the hole unless its home lies cyclically in (hole, next]
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				this.INDEX[hole] = this.INDEX[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.INDEX[hole] = 0;
+	}
+
+	private void growEntries() {
+		int capacity = (int) Math.min(this.MAX_ENTRIES, this.HIGH.length * 2L);
+		this.HIGH = Arrays.copyOf(this.HIGH, capacity);
+		this.LOW = Arrays.copyOf(this.LOW, capacity);
+		this.FITNESS = Arrays.copyOf(this.FITNESS, capacity);
+		this.REFERENCED = Arrays.copyOf(this.REFERENCED, capacity);
+	}
+
+	private void rehash(int capacity) {
+		this.INDEX = new int[capacity];
+		for (int entry = 0; entry < this.COUNT; entry++) {
+			this.INDEX[this.find(this.HIGH[entry], this.LOW[entry])] = entry + 1;
+		}
+	}
+
+	/**
+	 * The finaliser of MurmurHash3.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+}
@@ -17,15 +17,13 @@ public class FixedChromosome extends Chromosome {
         super(RANDOM, size, maxDepth);
     }
 
+    protected FixedChromosome(FixedChromosome other) {
+        super(other);
+    }
+
     @Override
     public Chromosome copy() {
-        Chromosome copy = new FixedChromosome(this.RANDOM, this.size, this.maxDepth);
-        for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.genes[i].length; j++) {
-                copy.genes[i][j] = this.genes[i][j];
-            }
-        }
-        return copy;
+        return new FixedChromosome(this);
     }
 
     @Override
@@ -36,8 +34,6 @@ public class FixedChromosome extends Chromosome {
         do {
             // select a random starting node
             randomRoot = this.RANDOM.nextInt(graph.getSize());
-            // set that as the root of the selected gene
-            this.genes[index][0] = randomRoot;
             // get the neighbours of that root within the specified distance
             neighbours = graph.getAdjacentNodes(randomRoot);
         } while(neighbours.size() == 0);
@@ -45,17 +41,17 @@ public class FixedChromosome extends Chromosome {
         int randomNeighbor = neighbours.get(0);
         // calculate the offset value
         int randomOffset = Math.floorMod(randomNeighbor - randomRoot, graph.getSize());
-        // set the offset
-        this.genes[index][1] = randomOffset;
+        // set the gene
+        this.setGene(index, randomRoot, randomOffset);
 
 
     }
 
     @Override
     public void validateGene(int index, LinkedGraph graph) {
-        int from = this.genes[index][0];
-        int to = (this.genes[index][0] + this.genes[index][1]) % graph.getSize();
-        int[] tempGene = new int[]{this.genes[index][0], this.genes[index][1]};
+        int from = this.getRoot(index);
+        int to = (from + this.getOffset(index)) % graph.getSize();
+        long tempGene = this.genes[index];
 
         // if the gene is invalid, because it appears more than once in the chromosome
         // or merges two nodes already in the same cluster, replace it with a new gene
@@ -66,8 +62,7 @@ public class FixedChromosome extends Chromosome {
             // select the first one which represents a valid merge, if it exists
             for (Integer neighbor : possibleNeighbors) {
                 to = neighbor;
-                tempGene[0] = from;
-                tempGene[1] = Math.floorMod(to - from, graph.getSize());
+                tempGene = gene(from, Math.floorMod(to - from, graph.getSize()));
                 if (!graph.sameCluster(from, to) && !duplicateGene(tempGene)) {
                     break;
                 }
@@ -82,12 +77,10 @@ public class FixedChromosome extends Chromosome {
                 }
                 to = possibleNeighbors.get(this.RANDOM.nextInt(possibleNeighbors.size()));
 
-                tempGene[0] = from;
-                tempGene[1] = Math.floorMod(to - from, graph.getSize());
+                tempGene = gene(from, Math.floorMod(to - from, graph.getSize()));
             }
         }
         // update the gene
-        this.genes[index][0] = from;
-        this.genes[index][1] = Math.floorMod(to - from, graph.getSize());
+        this.setGene(index, from, Math.floorMod(to - from, graph.getSize()));
     }
 }
@@ -6,10 +6,18 @@ import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 import graph.*;
-import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 
 import linkedgraph.*;
 
@@ -35,7 +43,7 @@ type BFS
  *
  * @author ar14rk
  */
-public class GAImplementation {
+public class GAImplementation implements Cloneable {
 
 	private long SEED;
 	private String OUTPUT_FILENAME;
@@ -54,11 +62,34 @@ public class GAImplementation {
 	private int RUN_SPAN;
 	private Random RANDOM;
 	private boolean VALID;
-	private BufferedWriter OUTPUT;
+	private ResultWriter OUTPUT;
 	private String CHROMOSOME_TYPE = "";
 	private String TEST_TYPE; // runtime (reset seed for all runs) or performance (set seed at beginning only)
 	private boolean BFS_CACHE;
 	private double DEG_SELECT_RATE;
+	private String KHOP_INDEX; // NONE, BFS (candidates in search order) or DEGREE (candidates sorted by degree)
+	private long KHOP_INDEX_BUDGET; // in bytes, the k-hop index is not built if it would take up more
+	private boolean PARALLEL_EVALUATION; // evaluate each generation in parallel, repairing with per-slot streams
+	private int EVALUATION_THREADS;
+	private ForkJoinPool EVALUATION_POOL; // null unless evaluating in parallel
+	private int WORKERS; // number of worker processes to evaluate with, see EvaluationCoordinator, 0 for none
+	private int WORKER_BATCH_SIZE; // chromosomes sent to a worker at a time
+	private int WORKER_TIMEOUT; // milliseconds to wait for a worker to answer before dropping it, 0 for no limit
+	private EvaluationCoordinator COORDINATOR; // null unless evaluating with workers
+	private String CONFIGURATION; // the configuration file, for the workers to load
+	private int ISLANDS; // number of sub-populations, see IslandModel
+	private int MIGRATION_INTERVAL; // generations between migrations
+	private int MIGRANTS; // chromosomes sent to each target, and taken in, at each migration
+	private IslandModel.Topology TOPOLOGY;
+	private IslandModel ISLAND_MODEL; // the model this GA is an island of, null if it is not an island
+	private boolean STEADY_STATE; // replace chromosomes an offspring at a time rather than a generation at a time
+	private SteadyState.Replacement REPLACEMENT; // which chromosome an offspring replaces in the steady state
+	private int ISLAND_INDEX;
+	private int ONLY_RUN; // the one run to make, see forRun, 0 to make every run
+	private boolean SPLIT_RUNS; // let a scheduler make the runs apart, each from a seed of its own, see forRun
+	private volatile boolean CANCELLED; // stop at the end of the current generation, see cancel
+	private volatile int GENERATIONS_DONE; // progress of run, for other threads to follow
+	private volatile long EVALUATIONS_DONE;
 	private final String DEFAULT_OUTPUT = "";
 	private final float DEFAULT_RATE = -Float.MAX_VALUE;
 	private final int DEFAULT_SIZE = Integer.MIN_VALUE;
@@ -70,13 +101,30 @@ public class GAImplementation {
 	private static final String IN_DIRECTORY = "data/in/";
 	private static final String OUT_DIRECTORY = "data/out/";
 
-	private Map<String, Integer> CACHED_CHROMOSOME_FITNESS;
+	private FitnessCache CACHED_CHROMOSOME_FITNESS;
+	private long FITNESS_CACHE_BUDGET; // in bytes, the fitness cache evicts chromosomes once it is full
+	private boolean USE_PREFIX_CHECKPOINTS; // resume evaluations from the graph states of shared gene prefixes
+	private int CHECKPOINT_INTERVAL; // genes between prefix checkpoints
+	private int CHECKPOINT_LIMIT; // maximum number of prefix checkpoints kept
+	private PrefixCheckpoints PREFIX_CHECKPOINTS; // null unless using prefix checkpoints
+	private boolean ROLLBACK_EVALUATION; // evaluate on a single journaled graph, rolled back for every chromosome
+	private LinkedGraph[] JOURNALED_GRAPHS; // by whether the chromosome uses the adjacency, null unless rolling back
+	private boolean USE_DELTA_EVALUATION; // re-evaluate chromosomes from the first gene changed since an earlier one
+	private int DELTA_INTERVAL; // genes between the marks delta evaluation can resume from
+	private int DELTA_GRAPHS; // maximum number of journaled graphs kept for delta evaluation
+	private DeltaEvaluation DELTA_EVALUATION; // null unless using delta evaluation
+	private int RUN_CHECKPOINT_INTERVAL; // generations between checkpoints of the run, see RunCheckpoint, 0 for none
+	private boolean RESUME; // carry on from the last checkpoint, if there is one
+	private ExecutorService CHECKPOINT_WRITER; // null unless taking checkpoints
+	private Future<?> CHECKPOINT_WRITE; // the checkpoint being written, null if none
+	private int OUTPUT_FLUSH_ROWS; // rows between flushes of the output file, 0 for no limit
+	private long OUTPUT_FLUSH_INTERVAL; // milliseconds a row may wait to be flushed to the output file, 0 for no limit
 
 	// FOR DEBUGGING / INVESTIGATION ONLY
-	private Map<String, Set<String>> TRANSFORMED_CHROMOSOMES;
-	private Map<String, String> TRANSFORM_MAP;
+	private Map<FitnessCache.Key, Set<FitnessCache.Key>> TRANSFORMED_CHROMOSOMES;
+	private Map<FitnessCache.Key, FitnessCache.Key> TRANSFORM_MAP;
 
-	//cached fitnesses from valid chromosomes
+	//cached fitnesses from valid chromosomes, the hits of the fitness cache not counted by the two below
 	private int cacheAccesses;
 	// number of times the same invalid chromosome is mapped to a valid one
 	private int transformMapUses;
@@ -101,9 +149,11 @@ public class GAImplementation {
 		this.NOISY = noisy;
 		this.SEED = seed;
 		this.RANDOM = new Random(this.SEED);
+		this.CONFIGURATION = fileLocation;
 		if (!buildData(IN_DIRECTORY + fileLocation)) {
 			return;
 		}
+		buildKHopIndex();
 		// compression suffix
 		this.OUTPUT_FILENAME += "_cmp" + (int) (this.COMPRESSION_RATE * 100);
 		// distance suffix
@@ -133,245 +183,509 @@ public class GAImplementation {
 	 * Runs the Genetic Algorithm and saves data about GA run to output file
 	 */
 	public void run() {
+		if (this.VALID && this.ISLANDS > 1 && this.ISLAND_MODEL == null) {
+			// run as an island model instead, each island being a copy of this GA
+			GAImplementation[] islands = new GAImplementation[this.ISLANDS];
+			IslandModel model = new IslandModel(islands, this.TOPOLOGY, this.MIGRANTS, this.SEED);
+			for (int i = 0; i < this.ISLANDS; i++) {
+				islands[i] = this.island(model, i);
+			}
+			model.run();
+			return;
+		}
 		if (this.VALID) {
+			RunCheckpoint resumed = this.resumeCheckpoint();
 			try {
-				FileWriter fw = new FileWriter(OUT_DIRECTORY + this.OUTPUT_FILENAME);
-				this.OUTPUT = new BufferedWriter(fw);
+				if (resumed != null) {
+					// drop the rows written after the checkpoint, which are about to be written again
+					try (FileChannel channel = FileChannel.open(Paths.get(OUT_DIRECTORY + this.OUTPUT_FILENAME),
+							StandardOpenOption.WRITE)) {
+						channel.truncate(resumed.OUTPUT_LENGTH);
+					}
+				}
+				FileWriter fw = new FileWriter(OUT_DIRECTORY + this.OUTPUT_FILENAME, resumed != null);
+				this.OUTPUT = new ResultWriter(fw, this.OUTPUT_FLUSH_ROWS, this.OUTPUT_FLUSH_INTERVAL, this.OUTPUT_FILENAME);
 			} catch (Exception e) {
 				System.out.println("Error creating write file: " + e.getMessage());
 			}
+			// the output, and whatever else the GA starts, is closed however the GA ends
 			try {
-				// write the constant info on the first line
-				this.OUTPUT.write("Source: " + this.SOURCE_FILENAME
-						+ "; Type: " + this.CHROMOSOME_TYPE
-						+ "; Seed: " + this.SEED
-						+ "; Graph Size: " + this.GRAPH_SIZE
-						+ "; Population Size: " + this.POPULATION_SIZE
-						+ "; Compression Rate: " + String.format("%.5f%%", this.CHROMOSOME_SIZE / Double.valueOf(this.GRAPH_SIZE))
-						+ "; Chromosome Size: " + this.CHROMOSOME_SIZE
-						+ "; Elitism Rate: " + String.format("%.5f%%", this.ELITE_COUNT / Double.valueOf(this.GRAPH_SIZE))
-						+ "; Elite Size: " + this.ELITE_COUNT
-						+ "; Tournament Size: " + this.TOURNAMENT_SIZE
-						+ "; Mutation Rate: " + String.format("%.5f%%", this.MUTATION_RATE)
-						+ "; Crossover Rate: " + String.format("%.5f%%", this.CROSSOVER_RATE)
-						+ "; Maximum Distance: " + this.DISTANCE_LIMIT
-						+ "; Run Span: " + this.RUN_SPAN
-						+ "; Generation Span: " + this.GENERATION_SPAN
-						+ "; BFS Caching: " + this.BFS_CACHE
-						+ "; Save Transformations: " + this.SAVE_TRANSFORM
-						+ "; Degree Select Rate: " + this.DEG_SELECT_RATE);
-				this.OUTPUT.newLine();
-				// CSV Columns
-				this.OUTPUT.write("Run,"
-						+ "Generation,"
-						+ "Time to Complete,"
-						+ "Global Best Fitness,"
-						+ "Global Average Fitness,"
-						+ "Global Worst Fitness,"
-						+ "Run Best Fitness,"
-						+ "Run Average Fitness,"
-						+ "Run Worst Fitness,"
-						+ "Generation Best Fitness,"
-						+ "Generation Average Fitness,"
-						+ "Generation Worst Fitness,"
-						+ "Global Best Chromosome,"
-						+ "Run Best Chromosome,"
-						+ "Generation Best Chromosome,"
-						+ "Fitness Cache Accesses,"
-						+ "Post-Transform Fitness Cache Accesses,"
-						+ "Transform Map Uses,"
-						+ "Evaluations,"
-						+ "Fitness Cache Size,"
-				);
-				this.OUTPUT.newLine();
-				this.OUTPUT.flush();
-			} catch (Exception e) {
-				System.out.println("Unable to write to file: " + e.getMessage());
-			}
-
-			this.CACHED_CHROMOSOME_FITNESS = new HashMap<>();
-
-			this.TRANSFORMED_CHROMOSOMES = new HashMap<>();
-			this.TRANSFORM_MAP = new HashMap<>();
-
-			int totalCacheAccesses = 0;
-			int totalEvaluations = 0;
-
-			// initialize global settings
-			int globalWorstFitness = Integer.MIN_VALUE;
-			int globalBestFitness = Integer.MAX_VALUE;
-			Chromosome globalBest = createChromosome();
-			Chromosome globalWorst = createChromosome();
-			long globalSum = 0;
-			this.POPULATION_FITNESS = new int[this.POPULATION_SIZE];
-			// Each run
-			for (int run = 1; run <= this.RUN_SPAN; run++) {
-				// If testing runtime performance, reset the seed at the beginning of each run.
-				// This way each run should be identical in workload as it considers the same series of nodes.
-				if (this.TEST_TYPE.equals("RUNTIME")) this.RANDOM = new Random(this.SEED);
-				initPopulation();
-
-				// Grab initial population fitness
-				for (int i = 0; i < this.POPULATION_SIZE; i++) {
-					this.POPULATION_FITNESS[i] = this.evaluate(this.POPULATION[i]);
+				// a resumed GA carries on with the output it had written, which already has the header
+				if (resumed == null) {
+					try {
+						// write the constant info on the first line
+						this.OUTPUT.writeLine("Source: " + this.SOURCE_FILENAME
+								+ "; Type: " + this.CHROMOSOME_TYPE
+								+ "; Seed: " + this.SEED
+								+ "; Graph Size: " + this.GRAPH_SIZE
+								+ "; Population Size: " + this.POPULATION_SIZE
+								+ "; Compression Rate: " + String.format("%.5f%%", this.CHROMOSOME_SIZE / Double.valueOf(this.GRAPH_SIZE))
+								+ "; Chromosome Size: " + this.CHROMOSOME_SIZE
+								+ "; Elitism Rate: " + String.format("%.5f%%", this.ELITE_COUNT / Double.valueOf(this.GRAPH_SIZE))
+								+ "; Elite Size: " + this.ELITE_COUNT
+								+ "; Tournament Size: " + this.TOURNAMENT_SIZE
+								+ "; Mutation Rate: " + String.format("%.5f%%", this.MUTATION_RATE)
+								+ "; Crossover Rate: " + String.format("%.5f%%", this.CROSSOVER_RATE)
+								+ "; Maximum Distance: " + this.DISTANCE_LIMIT
+								+ "; Run Span: " + this.RUN_SPAN
+								+ "; Generation Span: " + this.GENERATION_SPAN
+								+ "; BFS Caching: " + this.BFS_CACHE
+								+ "; Save Transformations: " + this.SAVE_TRANSFORM
+								+ "; Degree Select Rate: " + this.DEG_SELECT_RATE);
+						// CSV Columns
+						this.OUTPUT.writeLine("Run,"
+								+ "Generation,"
+								+ "Time to Complete,"
+								+ "Global Best Fitness,"
+								+ "Global Average Fitness,"
+								+ "Global Worst Fitness,"
+								+ "Run Best Fitness,"
+								+ "Run Average Fitness,"
+								+ "Run Worst Fitness,"
+								+ "Generation Best Fitness,"
+								+ "Generation Average Fitness,"
+								+ "Generation Worst Fitness,"
+								+ "Global Best Chromosome,"
+								+ "Run Best Chromosome,"
+								+ "Generation Best Chromosome,"
+								+ "Fitness Cache Accesses,"
+								+ "Post-Transform Fitness Cache Accesses,"
+								+ "Transform Map Uses,"
+								+ "Evaluations,"
+								+ "Fitness Cache Size,"
+						);
+					} catch (Exception e) {
+						System.out.println("Unable to write to file: " + e.getMessage());
+					}
 				}
 
-				int runWorstFitness = Integer.MIN_VALUE;
-				int runBestFitness = Integer.MAX_VALUE;
-				Chromosome runBest = createChromosome();
-				Chromosome runWorst = createChromosome();
-				long runSum = 0;
-
-				// Each generation
-				for (int gen = 1; gen <= this.GENERATION_SPAN; gen++) {
-					long startTime = System.currentTimeMillis();
-					int genBestFitness = Integer.MAX_VALUE;
-					Chromosome genBest = createChromosome();
-					int genWorstFitness = Integer.MIN_VALUE;
-					Chromosome genWorst = createChromosome();
-					long genSum = 0;
-
-					//caching impact investigation
-					this.cacheAccesses = 0;
-					this.evaluations = 0;
-					this.postTransformCacheAccesses = 0;
-					this.transformMapUses = 0;
-
-					if (this.NOISY) System.out.println("Thread " + Thread.currentThread().getId() + " Run " + run + " Generation " + gen);
-
-					// Elitism
-					Chromosome[] generation = this.getElitePopulation();
-					// Apply crossover and mutation to generate the rest of the population
-					for (int c = this.ELITE_COUNT; c < this.POPULATION_SIZE; c += 2) {
-						// Get parents via tournament selection
-						Chromosome parent1 = this.tournamentSelection();
-						Chromosome parent2 = this.tournamentSelection();
-						// Apply crossover
-						if (this.RANDOM.nextDouble() < this.CROSSOVER_RATE) {
-							this.crossover(parent1, parent2);
-						}
-						// Apply mutation
-						if (this.RANDOM.nextDouble() < this.MUTATION_RATE) {
-							parent1.mutate((LinkedGraph) this.ORIGINAL_GRAPH);
+				this.CACHED_CHROMOSOME_FITNESS = resumed != null ? resumed.CACHE
+						: new FitnessCache(this.FITNESS_CACHE_BUDGET);
+				if (this.RUN_CHECKPOINT_INTERVAL > 0) {
+					if (this.STEADY_STATE || this.ISLAND_MODEL != null) {
+						// offspring in flight and migrations under way are not part of a checkpoint
+						System.out.println("Checkpoints are not taken in the steady state or in an island model");
+					} else {
+						this.CHECKPOINT_WRITER = Executors.newSingleThreadExecutor(runnable -> {
+							Thread thread = new Thread(runnable, "Checkpoint writer");
+							thread.setDaemon(true);
+							return thread;
+						});
+					}
+				}
+				if (this.USE_PREFIX_CHECKPOINTS) {
+					this.PREFIX_CHECKPOINTS = new PrefixCheckpoints(Math.max(1, this.CHECKPOINT_INTERVAL),
+							this.CHECKPOINT_LIMIT);
+				}
+				this.JOURNALED_GRAPHS = this.ROLLBACK_EVALUATION ? new LinkedGraph[2] : null;
+				if (this.USE_DELTA_EVALUATION) {
+					this.DELTA_EVALUATION = new DeltaEvaluation(this.DELTA_INTERVAL, this.DELTA_GRAPHS,
+							this::copyForEvaluation);
+				}
+				if (this.PARALLEL_EVALUATION) {
+					this.EVALUATION_POOL = new ForkJoinPool(Math.max(1, this.EVALUATION_THREADS));
+				}
+				if (this.WORKERS > 0) {
+					try {
+						this.COORDINATOR = EvaluationCoordinator.start(this, this.CONFIGURATION, this.WORKERS,
+								Math.max(1, this.WORKER_BATCH_SIZE), Math.max(0, this.WORKER_TIMEOUT));
+						if (this.NOISY) {
+							System.out.println(this.COORDINATOR.getWorkerCount() + " evaluation workers connected");
 						}
-						if (this.RANDOM.nextDouble() < this.MUTATION_RATE) {
-							parent2.mutate((LinkedGraph) this.ORIGINAL_GRAPH);
+					} catch (IOException e) {
+						System.out.println("Evaluation workers not started, evaluating here: " + e.getMessage());
+					}
+				}
+
+				this.TRANSFORMED_CHROMOSOMES = new HashMap<>();
+				this.TRANSFORM_MAP = new HashMap<>();
+
+				int totalCacheAccesses = 0;
+				int totalEvaluations = 0;
+
+				// initialize global settings
+				int globalWorstFitness = Integer.MIN_VALUE;
+				int globalBestFitness = Integer.MAX_VALUE;
+				Chromosome globalBest = createChromosome();
+				Chromosome globalWorst = createChromosome();
+				long globalSum = 0;
+				this.POPULATION_FITNESS = new int[this.POPULATION_SIZE];
+				int firstRun = this.ONLY_RUN > 0 ? this.ONLY_RUN : 1;
+				int lastRun = this.ONLY_RUN > 0 ? this.ONLY_RUN : this.RUN_SPAN;
+				if (resumed != null) {
+					// the chromosomes of the checkpoint draw from its Random object, so it has to be restored first
+					this.RANDOM = resumed.RANDOM;
+					this.TRANSFORMED_CHROMOSOMES = resumed.TRANSFORMED_CHROMOSOMES;
+					this.TRANSFORM_MAP = resumed.TRANSFORM_MAP;
+					totalCacheAccesses = resumed.TOTAL_CACHE_ACCESSES;
+					totalEvaluations = resumed.TOTAL_EVALUATIONS;
+					globalWorstFitness = resumed.GLOBAL_WORST_FITNESS;
+					globalBestFitness = resumed.GLOBAL_BEST_FITNESS;
+					globalBest = this.chromosomeOf(resumed.GLOBAL_BEST);
+					globalWorst = this.chromosomeOf(resumed.GLOBAL_WORST);
+					globalSum = resumed.GLOBAL_SUM;
+					this.GENERATIONS_DONE = resumed.GENERATIONS_DONE;
+					this.EVALUATIONS_DONE = resumed.EVALUATIONS_DONE;
+				}
+				// a checkpoint taken at the end of a run resumes with the next run
+				int startRun = resumed == null ? firstRun
+						: resumed.GENERATION < this.GENERATION_SPAN ? resumed.RUN : resumed.RUN + 1;
+				// Each run
+				for (int run = startRun; run <= lastRun && !this.CANCELLED; run++) {
+					boolean resuming = resumed != null && run == resumed.RUN;
+					if (!resuming) {
+						// If testing runtime performance, reset the seed at the beginning of each run.
+						// This way each run should be identical in workload as it considers the same series of nodes.
+						if (this.TEST_TYPE.equals("RUNTIME")) this.RANDOM = new Random(this.SEED);
+						initPopulation();
+
+						// Grab initial population fitness
+						this.evaluations = 0;
+						this.evaluatePopulation(this.POPULATION, run, 0);
+						// the initial population has no row of its own, but it is evaluated all the same
+						this.EVALUATIONS_DONE += this.evaluations;
+					}
+
+					int runWorstFitness = Integer.MIN_VALUE;
+					int runBestFitness = Integer.MAX_VALUE;
+					Chromosome runBest = createChromosome();
+					Chromosome runWorst = createChromosome();
+					long runSum = 0;
+					int firstGen = 1;
+					if (resuming) {
+						this.POPULATION = new Chromosome[this.POPULATION_SIZE];
+						for (int c = 0; c < this.POPULATION_SIZE; c++) {
+							this.POPULATION[c] = this.chromosomeOf(resumed.POPULATION[c]);
 						}
-						// Add to generation
-						if (c + 1 == this.POPULATION_SIZE) {
-							Chromosome randomParent = this.RANDOM.nextBoolean() ? parent1 : parent2;
-							generation[c] = randomParent;
+						System.arraycopy(resumed.POPULATION_FITNESS, 0, this.POPULATION_FITNESS, 0, this.POPULATION_SIZE);
+						runWorstFitness = resumed.RUN_WORST_FITNESS;
+						runBestFitness = resumed.RUN_BEST_FITNESS;
+						runBest = this.chromosomeOf(resumed.RUN_BEST);
+						runWorst = this.chromosomeOf(resumed.RUN_WORST);
+						runSum = resumed.RUN_SUM;
+						firstGen = resumed.GENERATION + 1;
+					}
+					// in the steady state, each generation is a period of as many offspring as there are chromosomes
+					SteadyState steadyState = this.STEADY_STATE ? new SteadyState(this, this.SEED, run,
+							this.POPULATION_SIZE, this.GENERATION_SPAN * this.POPULATION_SIZE, this.EVALUATION_THREADS)
+							: null;
+
+					// Each generation
+					for (int gen = firstGen; gen <= this.GENERATION_SPAN && !this.CANCELLED; gen++) {
+						long startTime = System.currentTimeMillis();
+						int genBestFitness = Integer.MAX_VALUE;
+						Chromosome genBest = createChromosome();
+						int genWorstFitness = Integer.MIN_VALUE;
+						Chromosome genWorst = createChromosome();
+						long genSum = 0;
+
+						//caching impact investigation
+						long cacheHits = this.CACHED_CHROMOSOME_FITNESS.getHits();
+						this.evaluations = 0;
+						this.postTransformCacheAccesses = 0;
+						this.transformMapUses = 0;
+
+						if (this.NOISY) System.out.println("Thread " + Thread.currentThread().getId() + " Run " + run + " Generation " + gen);
+
+						Chromosome[] generation;
+						int[] generationFitness;
+						if (steadyState != null) {
+							// the offspring evaluated in the period, which are already in the population if good enough
+							generation = steadyState.nextPeriod();
+							generationFitness = steadyState.getPeriodFitness();
 						} else {
-							generation[c] = parent1;
-							generation[c + 1] = parent2;
+							generation = this.nextGeneration(run, gen);
+							generationFitness = this.POPULATION_FITNESS;
 						}
-					}
-					// Collect fitnesses
-					for (int i = 0; i < this.POPULATION_SIZE; i++) {
-						int fitness = this.evaluate(generation[i]);
-						this.POPULATION_FITNESS[i] = fitness;
-						// Collect generation, run, global statistics
-						if (fitness < genBestFitness) {
-							genBest = generation[i].copy();
-							genBestFitness = fitness;
-							if (genBestFitness < runBestFitness) {
-								runBest = genBest.copy();
-								runBestFitness = genBestFitness;
-								if (runBestFitness < globalBestFitness) {
-									globalBest = runBest.copy();
-									globalBestFitness = runBestFitness;
+						for (int i = 0; i < this.POPULATION_SIZE; i++) {
+							int fitness = generationFitness[i];
+							// Collect generation, run, global statistics
+							if (fitness < genBestFitness) {
+								genBest = generation[i].copy();
+								genBestFitness = fitness;
+								if (genBestFitness < runBestFitness) {
+									runBest = genBest.copy();
+									runBestFitness = genBestFitness;
+									if (runBestFitness < globalBestFitness) {
+										globalBest = runBest.copy();
+										globalBestFitness = runBestFitness;
+									}
 								}
 							}
-						}
-						if (fitness > genWorstFitness) {
-							genWorst = generation[i].copy();
-							genWorstFitness = fitness;
-							if (genWorstFitness > runWorstFitness) {
-								runWorst = genWorst.copy();
-								runWorstFitness = genWorstFitness;
-								if (runWorstFitness > globalWorstFitness) {
-									globalWorst = runWorst.copy();
-									globalWorstFitness = runWorstFitness;
+							if (fitness > genWorstFitness) {
+								genWorst = generation[i].copy();
+								genWorstFitness = fitness;
+								if (genWorstFitness > runWorstFitness) {
+									runWorst = genWorst.copy();
+									runWorstFitness = genWorstFitness;
+									if (runWorstFitness > globalWorstFitness) {
+										globalWorst = runWorst.copy();
+										globalWorstFitness = runWorstFitness;
+									}
 								}
 							}
-						}
-						globalSum += fitness;
-						genSum += fitness;
-						runSum += fitness;
+							globalSum += fitness;
+							genSum += fitness;
+							runSum += fitness;
 
-						this.POPULATION[i] = generation[i];
+							if (steadyState == null) {
+								this.POPULATION[i] = generation[i];
+							}
+						}
+						// every other hit of the fitness cache was of a chromosome looked up before it was validated
+						this.cacheAccesses = (int) (this.CACHED_CHROMOSOME_FITNESS.getHits() - cacheHits)
+								- this.postTransformCacheAccesses - this.transformMapUses;
+						// Output the results, which the result writer turns into text and writes while the GA carries on
+						try {
+							this.OUTPUT.write(new ResultWriter.Row(new long[] {
+									run,
+									gen,
+									System.currentTimeMillis() - startTime,
+									globalBestFitness,
+									globalSum / (this.POPULATION_SIZE * ((this.GENERATION_SPAN * (run - firstRun)) + gen)),
+									globalWorstFitness,
+									runBestFitness,
+									runSum / (this.POPULATION_SIZE * gen),
+									runWorstFitness,
+									genBestFitness,
+									genSum / this.POPULATION_SIZE,
+									genWorstFitness
+							}, new long[][] {
+									globalBest.genes,
+									runBest.genes,
+									genBest.genes
+							}, new long[] {
+									this.cacheAccesses,
+									this.postTransformCacheAccesses,
+									this.transformMapUses,
+									this.evaluations,
+									this.CACHED_CHROMOSOME_FITNESS.size()
+							}));
+						} catch (Exception e) {
+							System.out.println("Unable to write to file: " + e.getMessage());
+						}
+						if (this.NOISY) {
+							System.out.println("Global Sum: " + globalSum);
+							System.out.println("Global total: " + (this.POPULATION_SIZE * ((this.GENERATION_SPAN * (run - firstRun)) + gen)));
+							System.out.println("Run Sum: " + runSum);
+							System.out.println("Run total: " + (this.POPULATION_SIZE * gen));
+							System.out.println("Generation Sum: " + genSum);
+							System.out.println("Generation total: " + this.POPULATION_SIZE);
+						}
+						totalCacheAccesses += this.cacheAccesses;
+						totalEvaluations += this.evaluations;
+						this.EVALUATIONS_DONE += this.evaluations;
+						this.GENERATIONS_DONE++;
+						if (this.CHECKPOINT_WRITER != null && gen % this.RUN_CHECKPOINT_INTERVAL == 0) {
+							RunCheckpoint checkpoint = this.checkpoint(run, gen);
+							checkpoint.GLOBAL_BEST_FITNESS = globalBestFitness;
+							checkpoint.GLOBAL_WORST_FITNESS = globalWorstFitness;
+							checkpoint.GLOBAL_SUM = globalSum;
+							checkpoint.GLOBAL_BEST = globalBest.genes;
+							checkpoint.GLOBAL_WORST = globalWorst.genes;
+							checkpoint.RUN_BEST_FITNESS = runBestFitness;
+							checkpoint.RUN_WORST_FITNESS = runWorstFitness;
+							checkpoint.RUN_SUM = runSum;
+							checkpoint.RUN_BEST = runBest.genes;
+							checkpoint.RUN_WORST = runWorst.genes;
+							checkpoint.TOTAL_CACHE_ACCESSES = totalCacheAccesses;
+							checkpoint.TOTAL_EVALUATIONS = totalEvaluations;
+							this.saveCheckpoint(checkpoint);
+						}
+						// exchange chromosomes with the other islands
+						if (this.ISLAND_MODEL != null && gen % this.MIGRATION_INTERVAL == 0 && gen < this.GENERATION_SPAN) {
+							this.ISLAND_MODEL.migrate(this.ISLAND_INDEX);
+						}
 					}
-					// Output the results
-					try {
-						this.OUTPUT.write(run + ","
-								+ gen + ","
-								+ (System.currentTimeMillis() - startTime) + ","
-								+ globalBestFitness + ","
-								+ (globalSum / (this.POPULATION_SIZE * ((this.GENERATION_SPAN * (run - 1)) + gen))) + ","
-								+ globalWorstFitness + ","
-								+ runBestFitness + ","
-								+ (runSum / (this.POPULATION_SIZE * gen)) + ","
-								+ runWorstFitness + ","
-								+ genBestFitness + ","
-								+ (genSum / this.POPULATION_SIZE) + ","
-								+ genWorstFitness + ","
-								+ "\"" + globalBest.toString() + "\","
-								+ "\"" + runBest.toString() + "\","
-								+ "\"" + genBest.toString() + "\","
-								+ this.cacheAccesses + ","
-								+ this.postTransformCacheAccesses + ","
-								+ this.transformMapUses + ","
-								+ this.evaluations + ","
-								+ this.CACHED_CHROMOSOME_FITNESS.size() + ","
-						);
-						this.OUTPUT.newLine();
-						this.OUTPUT.flush();
-					} catch (Exception e) {
-						System.out.println("Unable to write to file: " + e.getMessage());
+					if (steadyState != null) {
+						steadyState.close();
 					}
-					if (this.NOISY) {
-						System.out.println("Global Sum: " + globalSum);
-						System.out.println("Global total: " + (this.POPULATION_SIZE * ((this.GENERATION_SPAN * (run - 1)) + gen)));
-						System.out.println("Run Sum: " + runSum);
-						System.out.println("Run total: " + (this.POPULATION_SIZE * gen));
-						System.out.println("Generation Sum: " + genSum);
-						System.out.println("Generation total: " + this.POPULATION_SIZE);
+					// DEBUGGING/ADDITIONAL STATS
+					System.out.println("Run " + run);
+					System.out.println("Overall size of chromosome fitness cache: " + this.CACHED_CHROMOSOME_FITNESS.size());
+					System.out.println("Overall cache accesses: " + totalCacheAccesses);
+					System.out.println("Overall cache misses: " + this.CACHED_CHROMOSOME_FITNESS.getMisses());
+					System.out.println("Overall cache evictions: " + this.CACHED_CHROMOSOME_FITNESS.getEvictions());
+					System.out.println("Overall evaluations: " + totalEvaluations);
+					if (this.PREFIX_CHECKPOINTS != null) {
+						System.out.println("Evaluations resumed from prefix checkpoints: "
+								+ this.PREFIX_CHECKPOINTS.getResumes() + " (" + this.PREFIX_CHECKPOINTS.getSkippedGenes()
+								+ " genes skipped)");
+					}
+					if (this.DELTA_EVALUATION != null) {
+						System.out.println("Evaluations resumed from earlier chromosomes: "
+								+ this.DELTA_EVALUATION.getResumes() + " (" + this.DELTA_EVALUATION.getSkippedGenes()
+								+ " genes skipped)");
 					}
-					totalCacheAccesses += this.cacheAccesses;
-					totalEvaluations += this.evaluations;
 				}
-				// DEBUGGING/ADDITIONAL STATS
-				System.out.println("Run " + run);
-				System.out.println("Overall size of chromosome fitness cache: " + this.CACHED_CHROMOSOME_FITNESS.size());
-				System.out.println("Overall cache accesses: " + totalCacheAccesses);
-				System.out.println("Overall evaluations: " + totalEvaluations);
-			}
 			
-			//DEBUGGING/INVESTIGATION ONLY
-			int numTransformed = this.TRANSFORMED_CHROMOSOMES.size();
-			int totalResults = 0;
-			int numMoreThanOne = 0;
-			int maxVariants = 0;
-			for (Map.Entry<String, Set<String>> entry : this.TRANSFORMED_CHROMOSOMES.entrySet()) {
-				String key = entry.getKey();
-				Set transformedValues = entry.getValue();
-				int variations = transformedValues.size();
-				totalResults += variations;
-				if (variations > 1) numMoreThanOne ++;
-				if (variations > maxVariants) maxVariants = variations;
+				//DEBUGGING/INVESTIGATION ONLY
+				int numTransformed = this.TRANSFORMED_CHROMOSOMES.size();
+				int totalResults = 0;
+				int numMoreThanOne = 0;
+				int maxVariants = 0;
+				for (Map.Entry<FitnessCache.Key, Set<FitnessCache.Key>> entry : this.TRANSFORMED_CHROMOSOMES.entrySet()) {
+					Set transformedValues = entry.getValue();
+					int variations = transformedValues.size();
+					totalResults += variations;
+					if (variations > 1) numMoreThanOne ++;
+					if (variations > maxVariants) maxVariants = variations;
+				}
+				System.out.println(numTransformed + " chromosomes transformed.");
+				System.out.println(totalResults + " total resulting chromosomes.");
+				System.out.println(numMoreThanOne + "/" + numTransformed + " had more than one resulting transformation.");
+				System.out.println((double)totalResults / (double) numTransformed + " average different results per transformed chromosome.");
+				System.out.println("Maximum number of different variations from same starting chromosome: " + maxVariants);
+			} finally {
+				if (this.EVALUATION_POOL != null) {
+					this.EVALUATION_POOL.shutdown();
+					this.EVALUATION_POOL = null;
+				}
+				if (this.CHECKPOINT_WRITER != null) {
+					this.awaitCheckpoint();
+					this.CHECKPOINT_WRITER.shutdown();
+					this.CHECKPOINT_WRITER = null;
+				}
+				if (this.COORDINATOR != null) {
+					this.COORDINATOR.close();
+					this.COORDINATOR = null;
+				}
+				try {
+					this.OUTPUT.close();
+				} catch (Exception e) {
+					System.out.println("Unable to close file: " + e.getMessage());
+				}
 			}
-			System.out.println(numTransformed + " chromosomes transformed.");
-			System.out.println(totalResults + " total resulting chromosomes.");
-			System.out.println(numMoreThanOne + "/" + numTransformed + " had more than one resulting transformation.");
-			System.out.println((double)totalResults / (double) numTransformed + " average different results per transformed chromosome.");
-			System.out.println("Maximum number of different variations from same starting chromosome: " + maxVariants);
+		}
+	}
 
+	/**
+	 * @return the file the checkpoints of this GA are written to, next to its output file
+	 */
+	private Path checkpointPath() {
+		return Paths.get(OUT_DIRECTORY + this.OUTPUT_FILENAME.replaceAll("\\.csv$", RunCheckpoint.EXTENSION));
+	}
+
+	/**
+	 * Reads the checkpoint to resume from, if resuming.
+	 *
+	 * @return the checkpoint, null if not resuming, or if there is no checkpoint of this configuration to resume from
+	 */
+	private RunCheckpoint resumeCheckpoint() {
+		if (!this.RESUME) {
+			return null;
+		}
+		Path path = this.checkpointPath();
+		if (!Files.exists(path)) {
+			System.out.println("No checkpoint to resume from, starting from scratch: " + path);
+			return null;
+		}
+		RunCheckpoint checkpoint;
+		try {
+			checkpoint = RunCheckpoint.read(path, this.FITNESS_CACHE_BUDGET);
+		} catch (IOException e) {
+			System.out.println("Unable to read checkpoint, starting from scratch: " + e.getMessage());
+			return null;
+		}
+		if (!checkpoint.OUTPUT_FILENAME.equals(this.OUTPUT_FILENAME) || checkpoint.SEED != this.SEED
+				|| checkpoint.CHROMOSOME_SIZE != this.CHROMOSOME_SIZE
+				|| checkpoint.POPULATION.length != this.POPULATION_SIZE) {
+			System.out.println("Checkpoint does not match the configuration, starting from scratch: " + path);
+			return null;
+		}
+		if (new File(OUT_DIRECTORY + this.OUTPUT_FILENAME).length() < checkpoint.OUTPUT_LENGTH) {
+			System.out.println("Output file is shorter than at the checkpoint, starting from scratch: " + path);
+			return null;
+		}
+		System.out.println("Resuming from run " + checkpoint.RUN + ", generation " + checkpoint.GENERATION);
+		return checkpoint;
+	}
+
+	/**
+	 * Takes down the state of the GA that is kept in fields at the end of a generation. The statistics, which are
+	 * kept by run, are filled in by run.
+	 *
+	 * @param run the current run
+	 * @param generation the generation that has just ended
+	 * @return the checkpoint, sharing the genes of the population
+	 */
+	private RunCheckpoint checkpoint(int run, int generation) {
+		RunCheckpoint checkpoint = new RunCheckpoint();
+		checkpoint.OUTPUT_FILENAME = this.OUTPUT_FILENAME;
+		checkpoint.SEED = this.SEED;
+		checkpoint.CHROMOSOME_SIZE = this.CHROMOSOME_SIZE;
+		checkpoint.RUN = run;
+		checkpoint.GENERATION = generation;
+		checkpoint.POPULATION = new long[this.POPULATION_SIZE][];
+		for (int c = 0; c < this.POPULATION_SIZE; c++) {
+			checkpoint.POPULATION[c] = this.POPULATION[c].genes;
+		}
+		checkpoint.POPULATION_FITNESS = this.POPULATION_FITNESS;
+		checkpoint.RANDOM = this.RANDOM;
+		checkpoint.GENERATIONS_DONE = this.GENERATIONS_DONE;
+		checkpoint.EVALUATIONS_DONE = this.EVALUATIONS_DONE;
+		checkpoint.CACHE = this.CACHED_CHROMOSOME_FITNESS;
+		checkpoint.TRANSFORMED_CHROMOSOMES = this.TRANSFORMED_CHROMOSOMES;
+		checkpoint.TRANSFORM_MAP = this.TRANSFORM_MAP;
+		if (this.OUTPUT != null) {
+			// the rows up to this generation have to be on disk for the length of the file to be theirs
+			this.OUTPUT.drain();
+		}
+		checkpoint.OUTPUT_LENGTH = new File(OUT_DIRECTORY + this.OUTPUT_FILENAME).length();
+		return checkpoint;
+	}
+
+	/**
+	 * Writes a checkpoint out. The checkpoint is turned into bytes straight away, since it shares the state of the
+	 * GA, but written to disk by the checkpoint writer while the GA carries on.
+	 *
+	 * @param checkpoint the checkpoint, see checkpoint
+	 */
+	private void saveCheckpoint(RunCheckpoint checkpoint) {
+		byte[] bytes;
+		try {
+			bytes = checkpoint.toBytes();
+		} catch (IOException e) {
+			System.out.println("Unable to write checkpoint: " + e.getMessage());
+			return;
+		}
+		// one checkpoint at a time, so that an older one never replaces a newer one
+		this.awaitCheckpoint();
+		Path path = this.checkpointPath();
+		this.CHECKPOINT_WRITE = this.CHECKPOINT_WRITER.submit(() -> {
 			try {
-				this.OUTPUT.close();
-			} catch (Exception e) {
-				System.out.println("Unable to close file: " + e.getMessage());
+				RunCheckpoint.save(bytes, path);
+			} catch (IOException e) {
+				System.out.println("Unable to write checkpoint: " + e.getMessage());
 			}
+		});
+	}
+
+	/**
+	 * Waits for the checkpoint being written, if any, to be on disk.
+	 */
+	private void awaitCheckpoint() {
+		if (this.CHECKPOINT_WRITE == null) {
+			return;
 		}
+		try {
+			this.CHECKPOINT_WRITE.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			System.out.println("Unable to write checkpoint: " + e.getMessage());
+		}
+		this.CHECKPOINT_WRITE = null;
+	}
+
+	/**
+	 * @param genes the genes of a chromosome
+	 * @return a chromosome of the type of this GA, with those genes
+	 */
+	private Chromosome chromosomeOf(long[] genes) {
+		Chromosome chromosome = this.createChromosome();
+		System.arraycopy(genes, 0, chromosome.writableGenes(), 0, genes.length);
+		return chromosome;
 	}
 
 	/**
@@ -421,6 +735,86 @@ public class GAImplementation {
 		}
 	}
 
+	/**
+	 * Breeds the next generation from the population and evaluates it: the elites, then pairs of offspring.
+	 *
+	 * @param run the current run
+	 * @param generation the current generation
+	 * @return the next generation, whose fitness is in POPULATION_FITNESS
+	 */
+	private Chromosome[] nextGeneration(int run, int generation) {
+		// Elitism
+		Chromosome[] next = this.getElitePopulation();
+		// Apply crossover and mutation to generate the rest of the population
+		for (int c = this.ELITE_COUNT; c < this.POPULATION_SIZE; c += 2) {
+			Chromosome[] offspring = this.breed();
+			// Add to generation
+			if (c + 1 == this.POPULATION_SIZE) {
+				Chromosome randomParent = this.RANDOM.nextBoolean() ? offspring[0] : offspring[1];
+				next[c] = randomParent;
+			} else {
+				next[c] = offspring[0];
+				next[c + 1] = offspring[1];
+			}
+		}
+		// Collect fitnesses
+		this.evaluatePopulation(next, run, generation);
+		return next;
+	}
+
+	/**
+	 * Breeds two offspring from the population: two parents are picked by tournament selection, then crossed over and
+	 * mutated with the crossover and mutation rates.
+	 *
+	 * @return the two offspring, copies of the parents that are not shared with the population
+	 */
+	Chromosome[] breed() {
+		// Get parents via tournament selection
+		Chromosome parent1 = this.tournamentSelection();
+		Chromosome parent2 = this.tournamentSelection();
+		// Apply crossover
+		if (this.RANDOM.nextDouble() < this.CROSSOVER_RATE) {
+			this.crossover(parent1, parent2);
+		}
+		// Apply mutation
+		if (this.RANDOM.nextDouble() < this.MUTATION_RATE) {
+			parent1.mutate((LinkedGraph) this.ORIGINAL_GRAPH);
+		}
+		if (this.RANDOM.nextDouble() < this.MUTATION_RATE) {
+			parent2.mutate((LinkedGraph) this.ORIGINAL_GRAPH);
+		}
+		return new Chromosome[]{parent1, parent2};
+	}
+
+	/**
+	 * Puts an offspring into the population in the steady state, in place of the chromosome picked by REPLACEMENT,
+	 * unless the offspring is worse than it.
+	 *
+	 * @param offspring the offspring, which has been evaluated
+	 * @param fitness the fitness of the offspring
+	 */
+	void insert(Chromosome offspring, int fitness) {
+		int replaced = -1;
+		if (this.REPLACEMENT == SteadyState.Replacement.TOURNAMENT) {
+			for (int i = 0; i < this.TOURNAMENT_SIZE; i++) {
+				int randomIndex = this.RANDOM.nextInt(this.POPULATION_SIZE);
+				if (replaced < 0 || this.POPULATION_FITNESS[randomIndex] > this.POPULATION_FITNESS[replaced]) {
+					replaced = randomIndex;
+				}
+			}
+		} else {
+			for (int i = 0; i < this.POPULATION_SIZE; i++) {
+				if (replaced < 0 || this.POPULATION_FITNESS[i] > this.POPULATION_FITNESS[replaced]) {
+					replaced = i;
+				}
+			}
+		}
+		if (fitness <= this.POPULATION_FITNESS[replaced]) {
+			this.POPULATION[replaced] = offspring;
+			this.POPULATION_FITNESS[replaced] = fitness;
+		}
+	}
+
 	/**
 	 * Randomly selects a preset number of individual chromosomes, returns the best
 	 * chromosome of the selected set
@@ -429,17 +823,17 @@ public class GAImplementation {
 	 */
 	public Chromosome tournamentSelection() {
 		int best = Integer.MAX_VALUE;
-		Chromosome winner = createChromosome();
+		int winner = -1;
+		// only the winner is copied
 		for (int i = 0; i < this.TOURNAMENT_SIZE; i++) {
 			int randomIndex = this.RANDOM.nextInt(this.POPULATION_SIZE);
-			Chromosome participant = this.getChromosome(randomIndex);
 			int fitness = this.evaluatePrevious(randomIndex);
 			if (fitness < best) {
 				best = fitness;
-				winner = participant;
+				winner = randomIndex;
 			}
 		}
-		return winner;
+		return winner < 0 ? createChromosome() : this.getChromosome(winner);
 	}
 
 	/**
@@ -455,16 +849,13 @@ public class GAImplementation {
 		}
 		int start = this.RANDOM.nextInt(CHROMOSOME_SIZE);
 		int end = this.RANDOM.nextInt(CHROMOSOME_SIZE - start) + start;
-		for (int i = 0; i < this.CHROMOSOME_SIZE; i++) {
-			if (i >= start && i <= end) {
-				int tempRoot = chromosome1.genes[i][0];
-				chromosome1.genes[i][0] = chromosome2.genes[i][0];
-				chromosome2.genes[i][0] = tempRoot;
-				int tempOffset = chromosome1.genes[i][1];
-				chromosome1.genes[i][1] = chromosome2.genes[i][1];
-				chromosome2.genes[i][1] = tempOffset;
-			}
-		}
+		// swap the genes from start to end, inclusive
+		int length = end - start + 1;
+		long[] genes1 = chromosome1.writableGenes();
+		long[] genes2 = chromosome2.writableGenes();
+		long[] temp = Arrays.copyOfRange(genes1, start, end + 1);
+		System.arraycopy(genes2, start, genes1, start, length);
+		System.arraycopy(temp, 0, genes2, start, length);
 	}
 
 	/**
@@ -476,62 +867,275 @@ public class GAImplementation {
 	 */
 	public int evaluate(Chromosome chromosome) {
 		this.evaluations++;
-		String chromosomeString = chromosome.toString();
-		if (this.CACHED_CHROMOSOME_FITNESS.containsKey(chromosomeString)) {
-			this.cacheAccesses++;
-			return this.CACHED_CHROMOSOME_FITNESS.get(chromosomeString);
-		}
-
-		// check to see if it's an invalid chromosome that has been transformed before
-		if (this.SAVE_TRANSFORM && this.TRANSFORM_MAP.containsKey(chromosomeString)) {
-			String c = this.TRANSFORM_MAP.get(chromosomeString);
-			if(this.CACHED_CHROMOSOME_FITNESS.containsKey(c)) {
-				this.transformMapUses++;
-				return this.CACHED_CHROMOSOME_FITNESS.get(c);
-			}
+		FitnessCache.Key chromosomeKey = FitnessCache.Key.of(chromosome);
+		int cachedFitness = this.cachedFitness(chromosomeKey);
+		if (cachedFitness != FitnessCache.MISSING) {
+			return cachedFitness;
 		}
 
 		// if we don't already have the fitness calculation, begin the process for calculation
-		LinkedGraph current = (LinkedGraph) this.ORIGINAL_GRAPH.deepCopy();
+		// resuming from the state after the longest prefix the chromosome shares with an earlier one, if there is one
+		int start;
+		LinkedGraph current;
+		if (this.DELTA_EVALUATION != null) {
+			current = this.DELTA_EVALUATION.resume(chromosome);
+			start = this.DELTA_EVALUATION.getStart();
+		} else {
+			start = this.PREFIX_CHECKPOINTS == null ? 0 : this.PREFIX_CHECKPOINTS.find(chromosome);
+			current = start > 0 ? this.PREFIX_CHECKPOINTS.resume(chromosome, start)
+					: this.graphForEvaluation(chromosome);
+		}
 		// iterate through each gene, applying the changes to the graph
-		for (int i = 0; i < this.CHROMOSOME_SIZE; i++) {
+		for (int i = start; i < this.CHROMOSOME_SIZE; i++) {
 			chromosome.validateGene(i, current);
 			chromosome.applyGene(i, current);
+			if (this.DELTA_EVALUATION != null) {
+				this.DELTA_EVALUATION.applied(chromosome, i);
+			} else if (this.PREFIX_CHECKPOINTS != null) {
+				this.PREFIX_CHECKPOINTS.offer(chromosome, i + 1, current);
+			}
 		}
-		// re-build the string representing the chromosome, may have been altered
+		// re-hash the chromosome, may have been altered
 		// during the evaluation process to remove invalid merges
 		// check if the validated gene fitness has already been calculated
-		String currentChromosomeString = chromosome.toString();
+		FitnessCache.Key currentChromosomeKey = FitnessCache.Key.of(chromosome);
+		this.recordTransformation(chromosomeKey, currentChromosomeKey);
+
+		// check if we have the fitness for this new chromosome already, if so, return that
+		int fitness = this.CACHED_CHROMOSOME_FITNESS.get(currentChromosomeKey);
+		if (fitness != FitnessCache.MISSING) {
+			this.postTransformCacheAccesses++;
+			return fitness;
+		}
 
+		// determine the number of fake links introduced into the graph as a result
+		fitness = current.totalFakeLinks();
+
+		// put the new fitness in the cache
+		this.CACHED_CHROMOSOME_FITNESS.put(currentChromosomeKey, fitness);
+
+		return fitness;
+	}
+
+	/**
+	 * Looks up the fitness of a chromosome that has not been validated yet, either because it has been evaluated
+	 * before or because it is an invalid chromosome whose transformation has been saved.
+	 *
+	 * @param chromosomeKey the key of the chromosome
+	 * @return the cached fitness of the chromosome, FitnessCache.MISSING if it has to be evaluated
+	 */
+	private int cachedFitness(FitnessCache.Key chromosomeKey) {
+		int fitness = this.CACHED_CHROMOSOME_FITNESS.get(chromosomeKey);
+		if (fitness != FitnessCache.MISSING) {
+			return fitness;
+		}
+
+		// check to see if it's an invalid chromosome that has been transformed before
+		if (this.SAVE_TRANSFORM && this.TRANSFORM_MAP.containsKey(chromosomeKey)) {
+			fitness = this.CACHED_CHROMOSOME_FITNESS.get(this.TRANSFORM_MAP.get(chromosomeKey));
+			if (fitness != FitnessCache.MISSING) {
+				this.transformMapUses++;
+				return fitness;
+			}
+		}
+		return FitnessCache.MISSING;
+	}
+
+	/**
+	 * Looks up an offspring in the steady state before it is evaluated, counting it as an evaluation.
+	 *
+	 * @param chromosomeKey the key of the offspring
+	 * @return the cached fitness of the offspring, FitnessCache.MISSING if it has to be evaluated
+	 */
+	int cachedOffspringFitness(FitnessCache.Key chromosomeKey) {
+		this.evaluations++;
+		return this.cachedFitness(chromosomeKey);
+	}
+
+	/**
+	 * Caches the fitness of an offspring in the steady state once it has been validated and measured, as evaluate
+	 * would have.
+	 *
+	 * @param chromosomeKey the key of the offspring before it was validated
+	 * @param offspring the offspring, repaired
+	 * @param fitness the fitness measured for the offspring
+	 * @return the fitness of the offspring
+	 */
+	int offspringEvaluated(FitnessCache.Key chromosomeKey, Chromosome offspring, int fitness) {
+		FitnessCache.Key currentChromosomeKey = FitnessCache.Key.of(offspring);
+		this.recordTransformation(chromosomeKey, currentChromosomeKey);
+		int cachedFitness = this.CACHED_CHROMOSOME_FITNESS.get(currentChromosomeKey);
+		if (cachedFitness != FitnessCache.MISSING) {
+			this.postTransformCacheAccesses++;
+			return cachedFitness;
+		}
+		this.CACHED_CHROMOSOME_FITNESS.put(currentChromosomeKey, fitness);
+		return fitness;
+	}
+
+	/**
+	 * Records the transformation of an invalid chromosome into a valid one by evaluation.
+	 *
+	 * @param chromosomeKey the key of the chromosome before it was validated
+	 * @param currentChromosomeKey the key of the chromosome after it was validated
+	 */
+	private void recordTransformation(FitnessCache.Key chromosomeKey, FitnessCache.Key currentChromosomeKey) {
 		// If not saving the same transformation, measure the number of new variants
-		if (!currentChromosomeString.equals(chromosomeString)) {
+		if (!currentChromosomeKey.equals(chromosomeKey)) {
 			if(!this.SAVE_TRANSFORM) { // DEBUGGING / MEASURING
 				// if it's already in there, add the currentChromosome to the set of transformations
-				if (this.TRANSFORMED_CHROMOSOMES.containsKey(chromosomeString)) {
-					this.TRANSFORMED_CHROMOSOMES.get(chromosomeString).add(currentChromosomeString);
+				if (this.TRANSFORMED_CHROMOSOMES.containsKey(chromosomeKey)) {
+					this.TRANSFORMED_CHROMOSOMES.get(chromosomeKey).add(currentChromosomeKey);
 				} else { //add it
-					Set transformations = new HashSet<String>();
-					transformations.add(currentChromosomeString);
-					this.TRANSFORMED_CHROMOSOMES.put(chromosomeString, transformations);
+					Set<FitnessCache.Key> transformations = new HashSet<>();
+					transformations.add(currentChromosomeKey);
+					this.TRANSFORMED_CHROMOSOMES.put(chromosomeKey, transformations);
 				}
 			} else { // this should only ever happen once
-				this.TRANSFORM_MAP.put(chromosomeString, currentChromosomeString);
+				this.TRANSFORM_MAP.put(chromosomeKey, currentChromosomeKey);
 			}
 		}
+	}
 
-		// check if we have the fitness for this new chromosome already, if so, return that
-		if (this.CACHED_CHROMOSOME_FITNESS.containsKey(currentChromosomeString)) {
-			this.postTransformCacheAccesses++;
-			return this.CACHED_CHROMOSOME_FITNESS.get(currentChromosomeString);
+	/**
+	 * Evaluates every chromosome of a population, storing their fitness in POPULATION_FITNESS.
+	 * <br/>
+	 * Unless evaluating in parallel, this is the same as calling evaluate on each chromosome in turn. In parallel,
+	 * the chromosomes are first looked up in the cache in order, those that were not found are then validated and
+	 * measured in parallel, and finally their results are cached in order. Each chromosome repairs its genes with its
+	 * own RepairRandom stream, and the cache is only read while evaluating in parallel, so the results are the same
+	 * whatever the number of threads (though not the same as evaluating sequentially with the shared Random object).
+	 * With worker processes, the uncached chromosomes are validated and measured by the workers instead, with the same
+	 * streams, so the results are the same as in parallel.
+	 *
+	 * @param population the chromosomes to evaluate
+	 * @param run the current run
+	 * @param generation the current generation, 0 for the initial population
+	 */
+	private void evaluatePopulation(Chromosome[] population, int run, int generation) {
+		if (this.EVALUATION_POOL == null && this.COORDINATOR == null) {
+			for (int i = 0; i < this.POPULATION_SIZE; i++) {
+				this.POPULATION_FITNESS[i] = this.evaluate(population[i]);
+			}
+			return;
+		}
+		int[] fitness = this.POPULATION_FITNESS;
+		FitnessCache.Key[] chromosomeKeys = new FitnessCache.Key[this.POPULATION_SIZE];
+		FitnessCache.Key[] currentChromosomeKeys = new FitnessCache.Key[this.POPULATION_SIZE];
+		boolean[] postTransformCached = new boolean[this.POPULATION_SIZE];
+		int[] pending = new int[this.POPULATION_SIZE];
+		int pendingCount = 0;
+		for (int i = 0; i < this.POPULATION_SIZE; i++) {
+			this.evaluations++;
+			chromosomeKeys[i] = FitnessCache.Key.of(population[i]);
+			int cachedFitness = this.cachedFitness(chromosomeKeys[i]);
+			if (cachedFitness != FitnessCache.MISSING) {
+				fitness[i] = cachedFitness;
+			} else {
+				pending[pendingCount++] = i;
+			}
 		}
 
-		// determine the number of fake links introduced into the graph as a result
-		int fitness = current.totalFakeLinks();
+		int[] uncached = Arrays.copyOf(pending, pendingCount);
+		if (this.COORDINATOR != null) {
+			// the workers repair and measure, and the cache is only looked at here, as in parallel
+			this.COORDINATOR.evaluate(population, uncached, this.SEED, run, generation, fitness);
+			for (int i : uncached) {
+				currentChromosomeKeys[i] = FitnessCache.Key.of(population[i]);
+				int cachedFitness = this.CACHED_CHROMOSOME_FITNESS.peek(currentChromosomeKeys[i]);
+				postTransformCached[i] = cachedFitness != FitnessCache.MISSING;
+				if (postTransformCached[i]) {
+					fitness[i] = cachedFitness;
+				}
+			}
+		} else {
+			try {
+				this.EVALUATION_POOL.submit(() -> Arrays.stream(uncached).parallel().forEach(i -> {
+					Chromosome chromosome = population[i];
+					// repair with the stream of this slot, rather than the shared Random object
+					LinkedGraph current = this.repair(chromosome, RepairRandom.forSlot(this.SEED, run, generation, i));
+					currentChromosomeKeys[i] = FitnessCache.Key.of(chromosome);
+					// peek rather than get, which would mark the entry from several threads at once
+					int cachedFitness = this.CACHED_CHROMOSOME_FITNESS.peek(currentChromosomeKeys[i]);
+					postTransformCached[i] = cachedFitness != FitnessCache.MISSING;
+					fitness[i] = postTransformCached[i] ? cachedFitness : current.totalFakeLinks();
+				})).get();
+			} catch (InterruptedException | ExecutionException e) {
+				throw new IllegalStateException("Parallel evaluation failed", e);
+			}
+		}
 
-		// put the new fitness in the cache
-		this.CACHED_CHROMOSOME_FITNESS.put(currentChromosomeString, fitness);
+		for (int i : uncached) {
+			this.recordTransformation(chromosomeKeys[i], currentChromosomeKeys[i]);
+			if (postTransformCached[i]) {
+				this.postTransformCacheAccesses++;
+				// count the hit, in order
+				this.CACHED_CHROMOSOME_FITNESS.get(currentChromosomeKeys[i]);
+			} else {
+				this.CACHED_CHROMOSOME_FITNESS.put(currentChromosomeKeys[i], fitness[i]);
+			}
+		}
+	}
 
-		return fitness;
+	/**
+	 * Validates and applies every gene of a chromosome on a copy of the original graph, drawing any repairs from the
+	 * given Random object rather than the one the chromosome shares with the GA.
+	 *
+	 * @param chromosome the chromosome to validate, which is repaired in place
+	 * @param repairs the Random object to draw the repairs from
+	 * @return the copy of the original graph, compressed by the chromosome
+	 */
+	LinkedGraph repair(Chromosome chromosome, Random repairs) {
+		LinkedGraph current = this.copyForEvaluation(chromosome);
+		Random shared = chromosome.RANDOM;
+		chromosome.RANDOM = repairs;
+		try {
+			for (int g = 0; g < this.CHROMOSOME_SIZE; g++) {
+				chromosome.validateGene(g, current);
+				chromosome.applyGene(g, current);
+			}
+		} finally {
+			chromosome.RANDOM = shared;
+		}
+		return current;
+	}
+
+	/**
+	 * Returns the graph for the merges of a chromosome evaluated sequentially to be applied to. With rollback
+	 * evaluation, that is a copy of the original graph kept for every evaluation, whose merges are rolled back to the
+	 * original state first, rather than a new copy.
+	 *
+	 * @param chromosome the chromosome that will be evaluated on the graph
+	 * @return a graph in the state of the original graph
+	 */
+	private LinkedGraph graphForEvaluation(Chromosome chromosome) {
+		if (this.JOURNALED_GRAPHS == null) {
+			return this.copyForEvaluation(chromosome);
+		}
+		int kind = chromosome.usesAdjacency() ? 1 : 0;
+		if (this.JOURNALED_GRAPHS[kind] == null) {
+			this.JOURNALED_GRAPHS[kind] = this.copyForEvaluation(chromosome);
+			// the first mark of a journal is 0
+			this.JOURNALED_GRAPHS[kind].mark();
+		}
+		this.JOURNALED_GRAPHS[kind].rollbackTo(0);
+		return this.JOURNALED_GRAPHS[kind];
+	}
+
+	/**
+	 * Copies the original graph for the merges of a chromosome to be applied to. With the PARTITION merge engine,
+	 * chromosomes that do not look at the adjacency of the graph get a copy that only keeps track of the supernodes,
+	 * the fitness being computed from those alone.
+	 *
+	 * @param chromosome the chromosome that will be evaluated on the copy
+	 * @return a copy of the original graph
+	 */
+	private LinkedGraph copyForEvaluation(Chromosome chromosome) {
+		LinkedGraph original = (LinkedGraph) this.ORIGINAL_GRAPH;
+		if (original.getMergeEngine() == LinkedGraph.MergeEngine.PARTITION && !chromosome.usesAdjacency()) {
+			return original.clusterCopy();
+		}
+		return original.deepCopy();
 	}
 
 	/**
@@ -565,6 +1169,160 @@ public class GAImplementation {
 	}
 
 
+	/**
+	 * Finds the best chromosomes of the population, as ranked by the fitness of the previous generation.
+	 *
+	 * @param count the number of chromosomes to find
+	 * @return the indices of the best chromosomes, the best first
+	 */
+	int[] bestChromosomes(int count) {
+		PriorityQueue<WrappedNode> fitness = new PriorityQueue<WrappedNode>();
+		for (int i = 0; i < this.POPULATION_SIZE; i++) {
+			fitness.add(new WrappedNode(i, evaluatePrevious(i)));
+		}
+		int[] best = new int[Math.min(count, this.POPULATION_SIZE)];
+		for (int b = 0; b < best.length; b++) {
+			best[b] = fitness.remove().index;
+		}
+		return best;
+	}
+
+	/**
+	 * Replaces the worst chromosomes of the population with chromosomes from another island.
+	 *
+	 * @param immigrants the chromosomes to take in, which must not be shared with their island
+	 * @param fitness the fitness of each chromosome
+	 */
+	void replaceWorst(Chromosome[] immigrants, int[] fitness) {
+		PriorityQueue<WrappedNode> worst = new PriorityQueue<WrappedNode>();
+		for (int i = 0; i < this.POPULATION_SIZE; i++) {
+			worst.add(new WrappedNode(i, -evaluatePrevious(i)));
+		}
+		for (int m = 0; m < immigrants.length && m < this.POPULATION_SIZE; m++) {
+			int index = worst.remove().index;
+			// from now on the chromosome draws from the Random object of this island
+			immigrants[m].RANDOM = this.RANDOM;
+			this.POPULATION[index] = immigrants[m];
+			this.POPULATION_FITNESS[index] = fitness[m];
+		}
+	}
+
+	/**
+	 * Copies this GA as an island of an island model. The island has the same configuration and original graph, but
+	 * a seed and output file of its own.
+	 *
+	 * @param model the island model
+	 * @param index the index of the island
+	 * @return the island
+	 */
+	private GAImplementation island(IslandModel model, int index) {
+		GAImplementation island;
+		try {
+			island = (GAImplementation) this.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		island.ISLAND_MODEL = model;
+		island.ISLAND_INDEX = index;
+		// island 0 keeps the seed, so that a single island runs the same as the GA on its own
+		island.SEED = this.SEED + index * 0x9E3779B97F4A7C15L;
+		island.RANDOM = new Random(island.SEED);
+		island.OUTPUT_FILENAME = this.OUTPUT_FILENAME.replaceAll("\\.csv$", "_island" + index + ".csv");
+		return island;
+	}
+
+	/**
+	 * Copies this GA to make a single one of its runs, so that the runs of a configuration can be made at the same
+	 * time. The copy has the same configuration and original graph, but a seed and output file of its own: the first
+	 * run keeps the seed, so it is the same as the first run of the GA, while each later run starts from a seed of its
+	 * own instead of where the previous run left the Random object.
+	 * <br/>
+	 * Since that changes the results of every run but the first, runs are only made apart for configurations that ask
+	 * for it with "splitRuns true" (see isSplitRuns); the results of other configurations are those of run.
+	 *
+	 * @param run the run to make, from 1 to the run span
+	 * @return the copy, which writes the rows of that run only
+	 */
+	public GAImplementation forRun(int run) {
+		GAImplementation copy;
+		try {
+			copy = (GAImplementation) this.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+		copy.ONLY_RUN = run;
+		copy.SEED = this.SEED + (run - 1) * 0x9E3779B97F4A7C15L;
+		copy.RANDOM = new Random(copy.SEED);
+		copy.OUTPUT_FILENAME = this.OUTPUT_FILENAME.replaceAll("\\.csv$", "_r" + run + ".csv");
+		return copy;
+	}
+
+	/**
+	 * Asks the GA to stop once the generation it is on is over. Can be called from any thread.
+	 */
+	public void cancel() {
+		this.CANCELLED = true;
+	}
+
+	/**
+	 * @return whether the configuration was loaded, and the GA can be run
+	 */
+	public boolean isValid() {
+		return this.VALID;
+	}
+
+	/**
+	 * @return whether the configuration lets its runs be made apart with forRun
+	 */
+	public boolean isSplitRuns() {
+		return this.SPLIT_RUNS;
+	}
+
+	/**
+	 * @return the output file of run
+	 */
+	public Path getOutputPath() {
+		return Paths.get(OUT_DIRECTORY + this.OUTPUT_FILENAME);
+	}
+
+	/**
+	 * @return the number of runs in the configuration
+	 */
+	public int getRunSpan() {
+		return this.RUN_SPAN;
+	}
+
+	/**
+	 * @return the number of generations run makes, over every run it makes
+	 */
+	public int getGenerationsTotal() {
+		return this.GENERATION_SPAN * (this.ONLY_RUN > 0 ? 1 : this.RUN_SPAN);
+	}
+
+	/**
+	 * @return the number of generations run has finished so far, can be called from any thread
+	 */
+	public int getGenerationsDone() {
+		return this.GENERATIONS_DONE;
+	}
+
+	/**
+	 * @return the number of chromosomes run has evaluated so far, can be called from any thread
+	 */
+	public long getEvaluationsDone() {
+		return this.EVALUATIONS_DONE;
+	}
+
+	/**
+	 * A rough measure of how long run takes, to schedule the longest runs first: every generation evaluates the
+	 * population, and every gene of a chromosome may search the graph.
+	 *
+	 * @return the estimated cost of run, in no particular unit
+	 */
+	public long getEstimatedCost() {
+		return (long) this.getGenerationsTotal() * this.POPULATION_SIZE * this.CHROMOSOME_SIZE * this.GRAPH_SIZE;
+	}
+
 	/**
 	 * Creates a Chromosome of the correct concrete type based on the CHROMOSOME_TYPE parameter and the other specified
 	 * constant parameters.
@@ -612,6 +1370,55 @@ public class GAImplementation {
 		this.CHROMOSOME_TYPE = "BFS";
 		this.TEST_TYPE  = "PERFORMANCE"; // set seed once at the beginning, do not reset each run.
 		this.DEG_SELECT_RATE = 1.0; //always choose the neighbour with min degree
+		this.KHOP_INDEX = "NONE";
+		this.KHOP_INDEX_BUDGET = 256L * 1024 * 1024;
+		this.PARALLEL_EVALUATION = false;
+		this.EVALUATION_THREADS = Runtime.getRuntime().availableProcessors();
+		this.FITNESS_CACHE_BUDGET = FitnessCache.DEFAULT_BUDGET;
+		this.USE_PREFIX_CHECKPOINTS = false;
+		this.CHECKPOINT_INTERVAL = 64;
+		this.CHECKPOINT_LIMIT = 1024;
+		this.ROLLBACK_EVALUATION = false;
+		this.USE_DELTA_EVALUATION = false;
+		this.DELTA_INTERVAL = 8;
+		this.DELTA_GRAPHS = 8;
+		this.WORKERS = 0;
+		this.WORKER_BATCH_SIZE = 8;
+		this.WORKER_TIMEOUT = 300000;
+		this.ISLANDS = 1;
+		this.STEADY_STATE = false;
+		this.SPLIT_RUNS = false;
+		this.REPLACEMENT = SteadyState.Replacement.WORST;
+		this.RUN_CHECKPOINT_INTERVAL = 0;
+		this.RESUME = false;
+		this.OUTPUT_FLUSH_ROWS = 1;
+		this.OUTPUT_FLUSH_INTERVAL = 0;
+		this.MIGRATION_INTERVAL = 10;
+		this.MIGRANTS = 1;
+		this.TOPOLOGY = IslandModel.Topology.RING;
+	}
+
+	/**
+	 * Builds the k-hop index of the original graph for the distance limit, if one was asked for. The size of the
+	 * index is reported before it is built, and it is only built if it fits in the budget; otherwise the
+	 * neighbourhoods are searched for as usual.
+	 */
+	private void buildKHopIndex() {
+		if (this.KHOP_INDEX.equals("NONE")) {
+			return;
+		}
+		LinkedGraph graph = (LinkedGraph) this.ORIGINAL_GRAPH;
+		int[] counts = GraphRegistry.getKHopCounts(this.SOURCE_FILENAME, this.DISTANCE_LIMIT);
+		long bytes = KHopIndex.getMemoryFootprint(counts);
+		System.out.println("K-hop index: " + KHopIndex.getEntryCount(counts) + " candidates, "
+				+ String.format("%.2f", bytes / (1024.0 * 1024.0)) + " MB");
+		if (bytes > this.KHOP_INDEX_BUDGET) {
+			System.out.println("K-hop index exceeds the budget of " + this.KHOP_INDEX_BUDGET / (1024 * 1024)
+					+ " MB, searching neighbourhoods instead");
+			return;
+		}
+		graph.setKHopIndex(GraphRegistry.getKHopIndex(this.SOURCE_FILENAME, this.DISTANCE_LIMIT,
+				this.KHOP_INDEX.equals("DEGREE")));
 	}
 
 	/**
@@ -768,7 +1575,8 @@ public class GAImplementation {
 						break;
 					case "source":
 						this.SOURCE_FILENAME = data[1].trim();
-						LinkedGraph g = LinkedGraph.load(this.SOURCE_FILENAME);
+						// read once per process, and shared with the other GAs on the same source
+						LinkedGraph g = GraphRegistry.get(this.SOURCE_FILENAME, this.NOISY);
 						this.GRAPH_SIZE = g.getSize();
 						this.ORIGINAL_GRAPH = g;
 						break;
@@ -781,12 +1589,183 @@ public class GAImplementation {
 					case "cache":
 						if (data[1].trim().toUpperCase().equals("TRUE")) {
 							// this is terrible, but it will work
-							((LinkedGraph) this.ORIGINAL_GRAPH).setCache(true);
+							((LinkedGraph) this.ORIGINAL_GRAPH).setNeighbourhoodCache(
+									GraphRegistry.getNeighbourhoodCache(this.SOURCE_FILENAME, NeighbourhoodCache.DEFAULT_BUDGET));
 							this.BFS_CACHE = true;
 						} else {
 							this.BFS_CACHE = false;
 						}
 						break;
+					case "cacheBudget":
+						// in megabytes, turns the cache on (or off, if 0)
+						long budget = Long.parseLong(data[1].trim()) * 1024 * 1024;
+						((LinkedGraph) this.ORIGINAL_GRAPH).setNeighbourhoodCache(
+								GraphRegistry.getNeighbourhoodCache(this.SOURCE_FILENAME, budget));
+						this.BFS_CACHE = budget > 0;
+						break;
+					case "fitnessCacheBudget":
+						// in megabytes, 0 turns the fitness cache off
+						this.FITNESS_CACHE_BUDGET = Long.parseLong(data[1].trim()) * 1024 * 1024;
+						break;
+					case "prefixCheckpoints":
+						if (data[1].trim().toUpperCase().equals("TRUE")) {
+							this.USE_PREFIX_CHECKPOINTS = true;
+						} else {
+							this.USE_PREFIX_CHECKPOINTS = false;
+						}
+						break;
+					case "checkpointInterval":
+						this.CHECKPOINT_INTERVAL = Integer.parseInt(data[1].trim());
+						break;
+					case "checkpointLimit":
+						this.CHECKPOINT_LIMIT = Integer.parseInt(data[1].trim());
+						break;
+					case "rollbackEvaluation":
+						if (data[1].trim().toUpperCase().equals("TRUE")) {
+							this.ROLLBACK_EVALUATION = true;
+						} else {
+							this.ROLLBACK_EVALUATION = false;
+						}
+						break;
+					case "deltaEvaluation":
+						if (data[1].trim().toUpperCase().equals("TRUE")) {
+							this.USE_DELTA_EVALUATION = true;
+						} else {
+							this.USE_DELTA_EVALUATION = false;
+						}
+						break;
+					case "deltaInterval":
+						this.DELTA_INTERVAL = Integer.parseInt(data[1].trim());
+						break;
+					case "deltaGraphs":
+						this.DELTA_GRAPHS = Integer.parseInt(data[1].trim());
+						break;
+					case "mergeEngine":
+						// like cache, this needs the source to be set first
+						switch (data[1].trim().toUpperCase()) {
+							case "SUPEREDGES":
+								((LinkedGraph) this.ORIGINAL_GRAPH).setMergeEngine(LinkedGraph.MergeEngine.SUPEREDGES);
+								break;
+							case "PARTITION":
+								((LinkedGraph) this.ORIGINAL_GRAPH).setMergeEngine(LinkedGraph.MergeEngine.PARTITION);
+								break;
+							case "FAKEEDGES":
+							case "FAKE_EDGES":
+								((LinkedGraph) this.ORIGINAL_GRAPH).setMergeEngine(LinkedGraph.MergeEngine.FAKE_EDGES);
+								break;
+							default:
+								System.out.println("Unknown merge engine: " + data[1].trim()
+										+ ", use parameter: mergeEngine [FAKEEDGES,SUPEREDGES,PARTITION]");
+								break;
+						}
+						break;
+					case "neighbourSampling":
+						// like cache, this needs the source to be set first
+						switch (data[1].trim().toUpperCase()) {
+							case "EXACT":
+								((LinkedGraph) this.ORIGINAL_GRAPH).setNeighbourSampling(LinkedGraph.NeighbourSampling.EXACT);
+								break;
+							case "RANDOMWALK":
+							case "RANDOM_WALK":
+								((LinkedGraph) this.ORIGINAL_GRAPH).setNeighbourSampling(LinkedGraph.NeighbourSampling.RANDOM_WALK);
+								break;
+							default:
+								System.out.println("Unknown neighbour sampling: " + data[1].trim()
+										+ ", use parameter: neighbourSampling [EXACT,RANDOMWALK]");
+								break;
+						}
+						break;
+					case "khopIndex":
+						switch (data[1].trim().toUpperCase()) {
+							case "NONE":
+							case "BFS":
+							case "DEGREE":
+								this.KHOP_INDEX = data[1].trim().toUpperCase();
+								break;
+							default:
+								System.out.println("Unknown k-hop index: " + data[1].trim()
+										+ ", use parameter: khopIndex [NONE,BFS,DEGREE]");
+								break;
+						}
+						break;
+					case "parallelEvaluation":
+						if (data[1].trim().toUpperCase().equals("TRUE")) {
+							this.PARALLEL_EVALUATION = true;
+						} else {
+							this.PARALLEL_EVALUATION = false;
+						}
+						break;
+					case "evaluationThreads":
+						this.EVALUATION_THREADS = Integer.parseInt(data[1].trim());
+						break;
+					case "workers":
+						this.WORKERS = Integer.parseInt(data[1].trim());
+						break;
+					case "workerBatchSize":
+						this.WORKER_BATCH_SIZE = Integer.parseInt(data[1].trim());
+						break;
+					case "workerTimeout":
+						this.WORKER_TIMEOUT = Integer.parseInt(data[1].trim());
+						break;
+					case "islands":
+						this.ISLANDS = Integer.parseInt(data[1].trim());
+						break;
+					case "migrationInterval":
+						this.MIGRATION_INTERVAL = Integer.parseInt(data[1].trim());
+						break;
+					case "migrants":
+						this.MIGRANTS = Integer.parseInt(data[1].trim());
+						break;
+					case "topology":
+						try {
+							this.TOPOLOGY = IslandModel.Topology.valueOf(data[1].trim().toUpperCase());
+						} catch (IllegalArgumentException e) {
+							System.out.println("Unknown topology: " + data[1].trim()
+									+ ", use parameter: topology [RING,RANDOM,FULL]");
+						}
+						break;
+					case "runCheckpointInterval":
+						this.RUN_CHECKPOINT_INTERVAL = Integer.parseInt(data[1].trim());
+						break;
+					case "outputFlushRows":
+						this.OUTPUT_FLUSH_ROWS = Integer.parseInt(data[1].trim());
+						break;
+					case "outputFlushInterval":
+						this.OUTPUT_FLUSH_INTERVAL = Long.parseLong(data[1].trim());
+						break;
+					case "resume":
+						if (data[1].trim().toUpperCase().equals("TRUE")) {
+							this.RESUME = true;
+						} else {
+							this.RESUME = false;
+						}
+						break;
+					case "steadyState":
+						if (data[1].trim().toUpperCase().equals("TRUE")) {
+							this.STEADY_STATE = true;
+						} else {
+							this.STEADY_STATE = false;
+						}
+						break;
+					case "splitRuns":
+						if (data[1].trim().toUpperCase().equals("TRUE")) {
+							this.SPLIT_RUNS = true;
+						} else {
+							this.SPLIT_RUNS = false;
+						}
+						break;
+					case "replacement":
+						try {
+							this.REPLACEMENT = SteadyState.Replacement.valueOf(data[1].trim().toUpperCase());
+						} catch (IllegalArgumentException e) {
+							System.out.println("Unknown replacement: " + data[1].trim()
+									+ ", use parameter: replacement [WORST,TOURNAMENT]");
+						}
+						break;
+					case "khopIndexBudget":
+						// in megabytes
+						this.KHOP_INDEX_BUDGET = Long.parseLong(data[1].trim()) * 1024 * 1024;
+						break;
 					case "saveTransform":
 						if (data[1].trim().toUpperCase().equals("TRUE")) {
 							this.SAVE_TRANSFORM = true;
@@ -0,0 +1,125 @@
+package ga;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing multiset of genes, counting how many times each gene appears in a chromosome, so that
+ * Chromosome.duplicateGene does not have to scan every gene. Laid out like linkedgraph.IntIntMap, with the packed
+ * genes as keys: genes never have a negative root, so EMPTY cannot be a gene.
+ */
+class GeneCounts {
+
+	private static final long EMPTY = -1L;
+
+	private long[] KEYS;
+	private int[] COUNTS;
+	private int SIZE;
+
+	/**
+	 * @param genes the genes to count
+	 * @param length the number of genes at the start of the array to count
+	 */
+	GeneCounts(long[] genes, int length) {
+		int capacity = 4;
+		while (capacity < length * 2) {
+			capacity <<= 1;
+		}
+		this.KEYS = new long[capacity];
+		this.COUNTS = new int[capacity];
+		Arrays.fill(this.KEYS, EMPTY);
+		for (int i = 0; i < length; i++) {
+			this.add(genes[i]);
+		}
+	}
+
+	/**
+	 * @param gene the gene to look up
+	 * @return the number of times the gene was added and not removed since
+	 */
+	int count(long gene) {
+		int mask = this.KEYS.length - 1;
+		for (int slot = hash(gene) & mask; this.KEYS[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (this.KEYS[slot] == gene) {
+				return this.COUNTS[slot];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param gene the gene to count once more
+	 */
+	void add(long gene) {
+		int mask = this.KEYS.length - 1;
+		int slot = hash(gene) & mask;
+		while (this.KEYS[slot] != EMPTY) {
+			if (this.KEYS[slot] == gene) {
+				this.COUNTS[slot]++;
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+		this.KEYS[slot] = gene;
+		this.COUNTS[slot] = 1;
+		this.SIZE++;
+		// keep the table at most half full
+		if (this.SIZE * 2 > this.KEYS.length) {
+			this.grow();
+		}
+	}
+
+	/**
+	 * Counts a gene once less, dropping it once it is no longer counted. The keys after it are shifted back so that
+	 * no probe sequence is broken.
+	 *
+	 * @param gene the gene to count once less
+	 */
+	void remove(long gene) {
+		int mask = this.KEYS.length - 1;
+		int hole = hash(gene) & mask;
+		while (this.KEYS[hole] != gene) {
+			if (this.KEYS[hole] == EMPTY) {
+				return;
+			}
+			hole = (hole + 1) & mask;
+		}
+		if (--this.COUNTS[hole] > 0) {
+			return;
+		}
+		for (int next = (hole + 1) & mask; this.KEYS[next] != EMPTY; next = (next + 1) & mask) {
+			int home = hash(this.KEYS[next]) & mask;
+			// move the key into the hole unless its home lies cyclically in (hole, next]
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				this.KEYS[hole] = this.KEYS[next];
+				this.COUNTS[hole] = this.COUNTS[next];
+				hole = next;
+			}
+		}
+		this.KEYS[hole] = EMPTY;
+		this.SIZE--;
+	}
+
+	private void grow() {
+		long[] keys = this.KEYS;
+		int[] counts = this.COUNTS;
+		this.KEYS = new long[keys.length * 2];
+		this.COUNTS = new int[counts.length * 2];
+		Arrays.fill(this.KEYS, EMPTY);
+		int mask = this.KEYS.length - 1;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				int slot = hash(keys[i]) & mask;
+				while (this.KEYS[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				this.KEYS[slot] = keys[i];
+				this.COUNTS[slot] = counts[i];
+			}
+		}
+	}
+
+	private static int hash(long gene) {
+		long h = gene * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
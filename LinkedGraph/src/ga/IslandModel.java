@@ -0,0 +1,158 @@
+package ga;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Phaser;
+
+/**
+ * Island model: several sub-populations (islands) of the same GA evolve on their own threads, and every
+ * migrationInterval generations each island sends copies of its best chromosomes to other islands, which take in the
+ * best of those they receive in place of their worst chromosomes.
+ * <br/>
+ * Each island is a GAImplementation of its own, with the configuration of the GA it was made from and a seed derived
+ * from its seed (island 0 keeps the seed, so a single island behaves like the GA on its own). Islands write their
+ * results to separate files, suffixed with the index of the island.
+ * <br/>
+ * Migrants are passed through lock-free queues, one per island. Migrations are synchronised in two steps: every
+ * island sends its migrants, then every island takes in the migrants it has received, sorted by fitness (ties by the
+ * island they came from). The results therefore do not depend on how the threads are scheduled.
+ */
+public class IslandModel {
+
+	/**
+	 * Which islands each island sends its migrants to.
+	 * <br/>
+	 * RING sends to the next island, wrapping around. RANDOM sends to another island chosen at random at each
+	 * migration. FULL sends to every other island.
+	 */
+	public enum Topology {
+		RING, RANDOM, FULL
+	}
+
+	/**
+	 * A chromosome on its way to another island, with the fitness it was evaluated to on its own island.
+	 */
+	private static class Migrant {
+		private final int SOURCE;
+		private final Chromosome CHROMOSOME;
+		private final int FITNESS;
+
+		private Migrant(int source, Chromosome chromosome, int fitness) {
+			this.SOURCE = source;
+			this.CHROMOSOME = chromosome;
+			this.FITNESS = fitness;
+		}
+	}
+
+	private final GAImplementation[] ISLANDS;
+	private final List<ConcurrentLinkedQueue<Migrant>> INBOXES;
+	// picks the targets of each island for the RANDOM topology
+	private final Random[] ROUTES;
+	private final Topology TOPOLOGY;
+	private final int MIGRANTS;
+	private final Phaser PHASER;
+
+	/**
+	 * @param islands the islands, each set up with this model by GAImplementation.island
+	 * @param topology which islands each island sends its migrants to
+	 * @param migrants the number of chromosomes an island sends to each target, and takes in, at each migration
+	 * @param seed seed to pick the targets of the RANDOM topology with
+	 */
+	IslandModel(GAImplementation[] islands, Topology topology, int migrants, long seed) {
+		this.ISLANDS = islands;
+		this.TOPOLOGY = topology;
+		this.MIGRANTS = migrants;
+		this.INBOXES = new ArrayList<>(islands.length);
+		this.ROUTES = new Random[islands.length];
+		for (int i = 0; i < islands.length; i++) {
+			this.INBOXES.add(new ConcurrentLinkedQueue<>());
+			this.ROUTES[i] = new Random(seed + i);
+		}
+		this.PHASER = new Phaser(islands.length);
+	}
+
+	/**
+	 * Runs every island on its own thread, returning once they have all finished.
+	 */
+	public void run() {
+		Thread[] threads = new Thread[this.ISLANDS.length];
+		for (int i = 0; i < this.ISLANDS.length; i++) {
+			GAImplementation island = this.ISLANDS[i];
+			threads[i] = new Thread(() -> {
+				try {
+					island.run();
+				} finally {
+					// an island that stops early must not hold up the migrations of the others
+					this.PHASER.arriveAndDeregister();
+				}
+			}, "Island " + i);
+			threads[i].start();
+		}
+		for (Thread thread : threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Sends the migrants of an island and takes in the migrants sent to it. Called by every island at the same
+	 * generations, from its own thread; returns once every island has sent its migrants.
+	 *
+	 * @param index the index of the island
+	 */
+	void migrate(int index) {
+		GAImplementation island = this.ISLANDS[index];
+		int[] emigrants = island.bestChromosomes(this.MIGRANTS);
+		for (int target : this.targets(index)) {
+			for (int e : emigrants) {
+				this.INBOXES.get(target).offer(new Migrant(index, island.getChromosome(e), island.evaluatePrevious(e)));
+			}
+		}
+		// wait for every island to send its migrants
+		this.PHASER.arriveAndAwaitAdvance();
+		List<Migrant> received = new ArrayList<>();
+		Migrant migrant;
+		while ((migrant = this.INBOXES.get(index).poll()) != null) {
+			received.add(migrant);
+		}
+		received.sort(Comparator.<Migrant>comparingInt(m -> m.FITNESS).thenComparingInt(m -> m.SOURCE));
+		int count = Math.min(this.MIGRANTS, received.size());
+		Chromosome[] immigrants = new Chromosome[count];
+		int[] fitness = new int[count];
+		for (int i = 0; i < count; i++) {
+			immigrants[i] = received.get(i).CHROMOSOME;
+			fitness[i] = received.get(i).FITNESS;
+		}
+		island.replaceWorst(immigrants, fitness);
+		// wait for every island to take in its migrants, so none of the next ones are mixed in with them
+		this.PHASER.arriveAndAwaitAdvance();
+	}
+
+	private int[] targets(int index) {
+		int count = this.ISLANDS.length;
+		switch (this.TOPOLOGY) {
+			case RANDOM:
+				// any island but this one
+				int target = this.ROUTES[index].nextInt(count - 1);
+				return new int[]{target >= index ? target + 1 : target};
+			case FULL:
+				int[] targets = new int[count - 1];
+				for (int i = 0, t = 0; i < count; i++) {
+					if (i != index) {
+						targets[t++] = i;
+					}
+				}
+				return targets;
+			case RING:
+			default:
+				return new int[]{(index + 1) % count};
+		}
+	}
+}
@@ -0,0 +1,129 @@
+package ga;
+
+import linkedgraph.LinkedGraph;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Cache of the graph states reached part way through evaluating a chromosome, so that the evaluation of another
+ * chromosome starting with the same genes can resume from there instead of replaying every merge.
+ * <br/>
+ * Every INTERVAL genes, the graph is checkpointed under the key of the genes applied so far (as they were after
+ * validation). The state of the graph only depends on those merges, so any chromosome starting with the same genes
+ * reaches the same state. Resuming is only allowed where validation would not have changed any of the skipped genes
+ * either: each of them was valid against the checkpointed states when it was stored, so it only remains to check that
+ * none of them appears twice in the new chromosome. Validation then draws nothing from the Random object for the
+ * skipped genes, and the evaluation ends exactly as it would have from the start.
+ * <br/>
+ * At most LIMIT checkpoints are kept, the least recently used being dropped first. Checkpoints are only used by
+ * sequential evaluation; the cache is not thread-safe.
+ */
+public class PrefixCheckpoints {
+
+	// how many more prefixes are remembered as offered than there are checkpoints
+	private static final int SEEN_PER_CHECKPOINT = 16;
+
+	private final int INTERVAL;
+	private final Map<FitnessCache.Key, LinkedGraph> CHECKPOINTS;
+	// prefixes offered once, which are checkpointed if they are offered again
+	private final Map<FitnessCache.Key, Boolean> OFFERED;
+
+	private long RESUMES;
+	private long SKIPPED_GENES;
+
+	/**
+	 * @param interval the number of genes between checkpoints
+	 * @param limit the maximum number of checkpoints kept
+	 */
+	public PrefixCheckpoints(int interval, int limit) {
+		this.INTERVAL = interval;
+		this.CHECKPOINTS = new LinkedHashMap<FitnessCache.Key, LinkedGraph>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<FitnessCache.Key, LinkedGraph> eldest) {
+				return this.size() > limit;
+			}
+		};
+		this.OFFERED = new LinkedHashMap<FitnessCache.Key, Boolean>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<FitnessCache.Key, Boolean> eldest) {
+				return this.size() > limit * SEEN_PER_CHECKPOINT;
+			}
+		};
+	}
+
+	/**
+	 * @return the number of genes between checkpoints
+	 */
+	public int getInterval() {
+		return this.INTERVAL;
+	}
+
+	/**
+	 * Finds the longest prefix of a chromosome that the evaluation can resume after.
+	 *
+	 * @param chromosome the chromosome about to be evaluated
+	 * @return the number of genes that can be skipped, 0 if the evaluation has to start from the original graph
+	 */
+	public int find(Chromosome chromosome) {
+		int limit = chromosome.firstDuplicate();
+		for (int length = limit - limit % this.INTERVAL; length > 0; length -= this.INTERVAL) {
+			if (this.CHECKPOINTS.containsKey(FitnessCache.Key.ofPrefix(chromosome, length))) {
+				return length;
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * @param chromosome the chromosome about to be evaluated
+	 * @param length the number of genes to skip, as returned by find
+	 * @return a copy of the graph with the first genes of the chromosome applied
+	 */
+	public LinkedGraph resume(Chromosome chromosome, int length) {
+		this.RESUMES++;
+		this.SKIPPED_GENES += length;
+		return this.CHECKPOINTS.get(FitnessCache.Key.ofPrefix(chromosome, length)).checkpoint();
+	}
+
+	/**
+	 * Checkpoints the graph if a checkpoint is due after this many genes and there is none for them yet. Copying the
+	 * graph makes the rest of the evaluation copy every row and node it changes, so a prefix is only checkpointed the
+	 * second time it is offered, once another chromosome has turned out to share it.
+	 *
+	 * @param chromosome the chromosome being evaluated, validated up to length
+	 * @param length the number of genes applied to the graph
+	 * @param graph the graph, which is copied
+	 */
+	public void offer(Chromosome chromosome, int length, LinkedGraph graph) {
+		if (length % this.INTERVAL != 0) {
+			return;
+		}
+		FitnessCache.Key key = FitnessCache.Key.ofPrefix(chromosome, length);
+		if (!this.CHECKPOINTS.containsKey(key) && this.OFFERED.put(key, Boolean.TRUE) != null) {
+			this.CHECKPOINTS.put(key, graph.checkpoint());
+			this.OFFERED.remove(key);
+		}
+	}
+
+	/**
+	 * @return the number of evaluations resumed from a checkpoint
+	 */
+	public long getResumes() {
+		return this.RESUMES;
+	}
+
+	/**
+	 * @return the total number of genes not replayed thanks to the checkpoints
+	 */
+	public long getSkippedGenes() {
+		return this.SKIPPED_GENES;
+	}
+
+	/**
+	 * @return the number of checkpoints kept
+	 */
+	public int size() {
+		return this.CHECKPOINTS.size();
+	}
+}
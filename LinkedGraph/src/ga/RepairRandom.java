@@ -0,0 +1,67 @@
+package ga;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * A Random object drawing from a SplittableRandom stream, so that it can be handed to the chromosomes (which take a
+ * Random) when they are evaluated in parallel.
+ * <br/>
+ * Each chromosome of a generation repairs its genes with its own stream, derived from the seed of the GA and the
+ * run, generation and slot of the chromosome alone. Which thread evaluates which chromosome, and in which order, then
+ * has no effect on the repairs.
+ * <br/>
+ * Every method of Random is built on next(bits), which is all this class replaces. Like SplittableRandom, it is not
+ * thread-safe, and is only meant to be used by one thread at a time.
+ */
+public class RepairRandom extends Random {
+
+	private static final long serialVersionUID = 1L;
+
+	private final SplittableRandom STREAM;
+
+	private RepairRandom(SplittableRandom stream) {
+		super(0L);
+		this.STREAM = stream;
+	}
+
+	/**
+	 * @param seed the seed of the GA
+	 * @param run the run, starting from 1
+	 * @param generation the generation, 0 being the initial population
+	 * @param slot the index of the chromosome in the population
+	 * @return the stream for the chromosome in that slot
+	 */
+	public static RepairRandom forSlot(long seed, int run, int generation, int slot) {
+		long key = mix(seed);
+		key = mix(key ^ run);
+		key = mix(key ^ generation);
+		key = mix(key ^ slot);
+		return new RepairRandom(new SplittableRandom(key));
+	}
+
+	/**
+	 * @param seed the seed of the GA
+	 * @param run the run, starting from 1
+	 * @param offspring the number of the offspring in a steady-state run, in the order they were bred
+	 * @return the stream for the offspring, which no chromosome of a generational run uses
+	 */
+	public static RepairRandom forOffspring(long seed, int run, int offspring) {
+		// generations are never negative
+		return forSlot(seed, run, -1, offspring);
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (this.STREAM.nextLong() >>> (64 - bits));
+	}
+
+	/**
+	 * The finaliser of MurmurHash3, so that nearby seeds, runs, generations and slots give unrelated streams.
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return z ^ (z >>> 33);
+	}
+}
@@ -0,0 +1,217 @@
+package ga;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes the output file of a GA from a thread of its own, so that the GA hands each generation over and carries on
+ * instead of turning its chromosomes into text and waiting for the disk.
+ * <br/>
+ * Lines and rows are queued in the order they are written and come out exactly as if they had been written in place.
+ * The file is flushed every so many rows and every so many milliseconds while rows are waiting, either of which can be
+ * turned off, and always by drain and close. The queue is bounded: a writer that falls that far behind holds the GA
+ * back rather than letting rows pile up.
+ * <br/>
+ * If the file can not be written to, the failure is reported once and every later row is dropped, so that the GA is
+ * never held up by a writer that has stopped writing.
+ */
+class ResultWriter {
+
+	/**
+	 * The statistics of a generation, as a row of the output file: numbers, then chromosomes in quotes, then numbers
+	 * again. The chromosomes are kept as their genes, which nothing writes to once they have been copied (see
+	 * Chromosome(Chromosome)), and only turned into text when the row is written.
+	 */
+	static final class Row {
+		private final long[] STATISTICS;
+		private final long[][] CHROMOSOMES;
+		private final long[] COUNTS;
+
+		/**
+		 * @param statistics the columns before the chromosomes
+		 * @param chromosomes the genes of the chromosomes, which must not be written to afterwards
+		 * @param counts the columns after the chromosomes
+		 */
+		Row(long[] statistics, long[][] chromosomes, long[] counts) {
+			this.STATISTICS = statistics;
+			this.CHROMOSOMES = chromosomes;
+			this.COUNTS = counts;
+		}
+
+		private String format() {
+			StringBuilder line = new StringBuilder();
+			for (long statistic : this.STATISTICS) {
+				line.append(statistic).append(',');
+			}
+			for (long[] genes : this.CHROMOSOMES) {
+				line.append('"');
+				Chromosome.appendGenes(line, genes);
+				line.append("\",");
+			}
+			for (long count : this.COUNTS) {
+				line.append(count).append(',');
+			}
+			return line.toString();
+		}
+	}
+
+	private static final int QUEUE_SIZE = 1024;
+	// queued by close, after everything else
+	private static final Object END = new Object();
+
+	private final BufferedWriter OUTPUT;
+	private final int FLUSH_ROWS;
+	private final long FLUSH_INTERVAL;
+	// lines, rows, latches to count down once what came before them is flushed, and END
+	private final BlockingQueue<Object> QUEUE;
+	private final Thread WRITER;
+	private boolean FAILED;
+	private int UNFLUSHED;
+	private long FIRST_UNFLUSHED;
+
+	/**
+	 * @param output the file to write to
+	 * @param flushRows the number of rows after which the file is flushed, 0 for no limit
+	 * @param flushInterval the number of milliseconds a row may wait to be flushed, 0 for no limit
+	 * @param name the name of the file, for the writer thread
+	 */
+	ResultWriter(Writer output, int flushRows, long flushInterval, String name) {
+		this.OUTPUT = new BufferedWriter(output);
+		this.FLUSH_ROWS = Math.max(0, flushRows);
+		this.FLUSH_INTERVAL = TimeUnit.MILLISECONDS.toNanos(Math.max(0, flushInterval));
+		this.QUEUE = new ArrayBlockingQueue<>(QUEUE_SIZE);
+		this.WRITER = new Thread(this::write, "Result writer " + name);
+		this.WRITER.setDaemon(true);
+		this.WRITER.start();
+	}
+
+	/**
+	 * Queues a line, such as the header of the file, to be written as it is.
+	 *
+	 * @param line the line, without a line separator
+	 */
+	void writeLine(String line) {
+		this.queue(line);
+	}
+
+	/**
+	 * Queues a row to be written.
+	 *
+	 * @param row the row
+	 */
+	void write(Row row) {
+		this.queue(row);
+	}
+
+	/**
+	 * Waits for everything queued so far to be written and flushed, e.g. before the length of the file is taken.
+	 */
+	void drain() {
+		CountDownLatch drained = new CountDownLatch(1);
+		this.queue(drained);
+		try {
+			drained.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Writes out everything queued so far and closes the file.
+	 */
+	void close() {
+		this.queue(END);
+		try {
+			this.WRITER.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void queue(Object item) {
+		try {
+			this.QUEUE.put(item);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Takes lines and rows off the queue and writes them until close is called, run by the writer thread.
+	 */
+	private void write() {
+		try {
+			while (true) {
+				Object item;
+				if (this.UNFLUSHED > 0 && this.FLUSH_INTERVAL > 0) {
+					// wait no longer than the oldest row waiting to be flushed may wait
+					long wait = this.FIRST_UNFLUSHED + this.FLUSH_INTERVAL - System.nanoTime();
+					item = this.QUEUE.poll(Math.max(0, wait), TimeUnit.NANOSECONDS);
+				} else {
+					item = this.QUEUE.take();
+				}
+				if (item == null) {
+					this.flush();
+				} else if (item == END) {
+					break;
+				} else if (item instanceof CountDownLatch) {
+					this.flush();
+					((CountDownLatch) item).countDown();
+				} else {
+					String line = item instanceof Row ? ((Row) item).format() : (String) item;
+					this.writeLine(line, item instanceof Row);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		this.flush();
+		try {
+			this.OUTPUT.close();
+		} catch (IOException e) {
+			System.out.println("Unable to close file: " + e.getMessage());
+		}
+	}
+
+	private void writeLine(String line, boolean row) {
+		if (this.FAILED) {
+			return;
+		}
+		try {
+			this.OUTPUT.write(line);
+			this.OUTPUT.newLine();
+		} catch (IOException e) {
+			this.fail(e);
+			return;
+		}
+		if (this.UNFLUSHED++ == 0) {
+			this.FIRST_UNFLUSHED = System.nanoTime();
+		}
+		// the header is flushed straight away, as it always was
+		if (!row || (this.FLUSH_ROWS > 0 && this.UNFLUSHED >= this.FLUSH_ROWS)) {
+			this.flush();
+		}
+	}
+
+	private void flush() {
+		this.UNFLUSHED = 0;
+		if (this.FAILED) {
+			return;
+		}
+		try {
+			this.OUTPUT.flush();
+		} catch (IOException e) {
+			this.fail(e);
+		}
+	}
+
+	private void fail(IOException e) {
+		System.out.println("Unable to write to file: " + e.getMessage());
+		this.FAILED = true;
+	}
+}
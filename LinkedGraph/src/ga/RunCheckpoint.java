@@ -0,0 +1,235 @@
+package ga;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * The state of a GA at the end of a generation, from which GAImplementation.run can carry on exactly as if it had
+ * never stopped: the population and its fitness, the statistics of the run and of every run before it, the Random
+ * object, the fitness cache (with its eviction state) and the transformations recorded so far, and the length of the
+ * output file at the time.
+ * <br/>
+ * The state is written to a byte array first, on the thread running the GA, which only takes as long as copying it.
+ * The array is then written out by save, to a temporary file that is renamed over the checkpoint once it is on disk,
+ * so a GA stopped at any moment leaves either the previous checkpoint or the new one, never part of one.
+ * <br/>
+ * What only makes evaluation faster (prefix checkpoints, delta evaluation, journaled graphs) is not kept, as the
+ * results do not depend on it.
+ */
+class RunCheckpoint {
+
+	/**
+	 * File extension of checkpoints, which are written next to the output file.
+	 */
+	static final String EXTENSION = ".checkpoint";
+	private static final int MAGIC = 0x47414350;
+	private static final int VERSION = 1;
+
+	// what the checkpoint was taken of, to check that it is resumed with the same configuration
+	String OUTPUT_FILENAME;
+	long SEED;
+	int CHROMOSOME_SIZE;
+
+	int RUN;
+	int GENERATION;
+	long[][] POPULATION;
+	int[] POPULATION_FITNESS;
+	Random RANDOM;
+
+	int GLOBAL_BEST_FITNESS;
+	int GLOBAL_WORST_FITNESS;
+	long GLOBAL_SUM;
+	long[] GLOBAL_BEST;
+	long[] GLOBAL_WORST;
+	int RUN_BEST_FITNESS;
+	int RUN_WORST_FITNESS;
+	long RUN_SUM;
+	long[] RUN_BEST;
+	long[] RUN_WORST;
+	int TOTAL_CACHE_ACCESSES;
+	int TOTAL_EVALUATIONS;
+	int GENERATIONS_DONE;
+	long EVALUATIONS_DONE;
+
+	FitnessCache CACHE;
+	Map<FitnessCache.Key, Set<FitnessCache.Key>> TRANSFORMED_CHROMOSOMES;
+	Map<FitnessCache.Key, FitnessCache.Key> TRANSFORM_MAP;
+
+	long OUTPUT_LENGTH;
+
+	/**
+	 * @return the checkpoint, as written to its file
+	 * @throws IOException if the Random object can not be serialised
+	 */
+	byte[] toBytes() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		out.writeUTF(this.OUTPUT_FILENAME);
+		out.writeLong(this.SEED);
+		out.writeInt(this.CHROMOSOME_SIZE);
+		out.writeInt(this.RUN);
+		out.writeInt(this.GENERATION);
+		out.writeInt(this.POPULATION.length);
+		for (int c = 0; c < this.POPULATION.length; c++) {
+			writeGenes(out, this.POPULATION[c]);
+			out.writeInt(this.POPULATION_FITNESS[c]);
+		}
+		// Random keeps its state to itself, but serialises it
+		ByteArrayOutputStream random = new ByteArrayOutputStream();
+		try (ObjectOutputStream objects = new ObjectOutputStream(random)) {
+			objects.writeObject(this.RANDOM);
+		}
+		out.writeInt(random.size());
+		random.writeTo(out);
+		out.writeInt(this.GLOBAL_BEST_FITNESS);
+		out.writeInt(this.GLOBAL_WORST_FITNESS);
+		out.writeLong(this.GLOBAL_SUM);
+		writeGenes(out, this.GLOBAL_BEST);
+		writeGenes(out, this.GLOBAL_WORST);
+		out.writeInt(this.RUN_BEST_FITNESS);
+		out.writeInt(this.RUN_WORST_FITNESS);
+		out.writeLong(this.RUN_SUM);
+		writeGenes(out, this.RUN_BEST);
+		writeGenes(out, this.RUN_WORST);
+		out.writeInt(this.TOTAL_CACHE_ACCESSES);
+		out.writeInt(this.TOTAL_EVALUATIONS);
+		out.writeInt(this.GENERATIONS_DONE);
+		out.writeLong(this.EVALUATIONS_DONE);
+		this.CACHE.write(out);
+		out.writeInt(this.TRANSFORMED_CHROMOSOMES.size());
+		for (Map.Entry<FitnessCache.Key, Set<FitnessCache.Key>> entry : this.TRANSFORMED_CHROMOSOMES.entrySet()) {
+			entry.getKey().write(out);
+			out.writeInt(entry.getValue().size());
+			for (FitnessCache.Key key : entry.getValue()) {
+				key.write(out);
+			}
+		}
+		out.writeInt(this.TRANSFORM_MAP.size());
+		for (Map.Entry<FitnessCache.Key, FitnessCache.Key> entry : this.TRANSFORM_MAP.entrySet()) {
+			entry.getKey().write(out);
+			entry.getValue().write(out);
+		}
+		out.writeLong(this.OUTPUT_LENGTH);
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * @param path the checkpoint file
+	 * @param cacheBudget the budget of the fitness cache
+	 * @return the checkpoint read from the file
+	 * @throws IOException if the file can not be read, or is not a checkpoint
+	 */
+	static RunCheckpoint read(Path path, long cacheBudget) throws IOException {
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(Files.readAllBytes(path)));
+		if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+			throw new IOException("Not a checkpoint: " + path);
+		}
+		RunCheckpoint checkpoint = new RunCheckpoint();
+		checkpoint.OUTPUT_FILENAME = in.readUTF();
+		checkpoint.SEED = in.readLong();
+		checkpoint.CHROMOSOME_SIZE = in.readInt();
+		checkpoint.RUN = in.readInt();
+		checkpoint.GENERATION = in.readInt();
+		int populationSize = in.readInt();
+		checkpoint.POPULATION = new long[populationSize][];
+		checkpoint.POPULATION_FITNESS = new int[populationSize];
+		for (int c = 0; c < populationSize; c++) {
+			checkpoint.POPULATION[c] = readGenes(in);
+			checkpoint.POPULATION_FITNESS[c] = in.readInt();
+		}
+		byte[] random = new byte[in.readInt()];
+		in.readFully(random);
+		try (ObjectInputStream objects = new ObjectInputStream(new ByteArrayInputStream(random))) {
+			checkpoint.RANDOM = (Random) objects.readObject();
+		} catch (ClassNotFoundException | ClassCastException e) {
+			throw new IOException("Random object not read: " + e.getMessage());
+		}
+		checkpoint.GLOBAL_BEST_FITNESS = in.readInt();
+		checkpoint.GLOBAL_WORST_FITNESS = in.readInt();
+		checkpoint.GLOBAL_SUM = in.readLong();
+		checkpoint.GLOBAL_BEST = readGenes(in);
+		checkpoint.GLOBAL_WORST = readGenes(in);
+		checkpoint.RUN_BEST_FITNESS = in.readInt();
+		checkpoint.RUN_WORST_FITNESS = in.readInt();
+		checkpoint.RUN_SUM = in.readLong();
+		checkpoint.RUN_BEST = readGenes(in);
+		checkpoint.RUN_WORST = readGenes(in);
+		checkpoint.TOTAL_CACHE_ACCESSES = in.readInt();
+		checkpoint.TOTAL_EVALUATIONS = in.readInt();
+		checkpoint.GENERATIONS_DONE = in.readInt();
+		checkpoint.EVALUATIONS_DONE = in.readLong();
+		checkpoint.CACHE = FitnessCache.read(in, cacheBudget);
+		int transformed = in.readInt();
+		checkpoint.TRANSFORMED_CHROMOSOMES = new HashMap<>();
+		for (int t = 0; t < transformed; t++) {
+			FitnessCache.Key key = FitnessCache.Key.read(in);
+			int results = in.readInt();
+			Set<FitnessCache.Key> transformations = new HashSet<>();
+			for (int r = 0; r < results; r++) {
+				transformations.add(FitnessCache.Key.read(in));
+			}
+			checkpoint.TRANSFORMED_CHROMOSOMES.put(key, transformations);
+		}
+		int mapped = in.readInt();
+		checkpoint.TRANSFORM_MAP = new HashMap<>();
+		for (int m = 0; m < mapped; m++) {
+			checkpoint.TRANSFORM_MAP.put(FitnessCache.Key.read(in), FitnessCache.Key.read(in));
+		}
+		checkpoint.OUTPUT_LENGTH = in.readLong();
+		return checkpoint;
+	}
+
+	/**
+	 * Writes a checkpoint to its file, replacing the previous one only once the new one is entirely on disk.
+	 *
+	 * @param bytes the checkpoint, see toBytes
+	 * @param path the checkpoint file
+	 * @throws IOException if the checkpoint can not be written
+	 */
+	static void save(byte[] bytes, Path path) throws IOException {
+		Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	private static void writeGenes(DataOutputStream out, long[] genes) throws IOException {
+		out.writeInt(genes.length);
+		for (long gene : genes) {
+			out.writeLong(gene);
+		}
+	}
+
+	private static long[] readGenes(DataInputStream in) throws IOException {
+		long[] genes = new long[in.readInt()];
+		for (int g = 0; g < genes.length; g++) {
+			genes[g] = in.readLong();
+		}
+		return genes;
+	}
+}
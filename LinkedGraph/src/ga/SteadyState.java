@@ -0,0 +1,179 @@
+package ga;
+
+import linkedgraph.LinkedGraph;
+
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Steady-state evolution of a run of the GA: rather than a generation at a time, offspring are bred and evaluated one
+ * at a time, each taking the place of a chromosome of the population (see Replacement) as soon as its evaluation is
+ * over.
+ * <br/>
+ * The GA, on the thread running it, breeds every offspring from the population as it is at the time, looks it up in
+ * the fitness cache and puts it into the population. Only the validation and measuring of the offspring that are not
+ * in the cache is handed to the threads of the engine, which do not touch the GA otherwise. Twice as many offspring
+ * as there are threads are kept in evaluation, and another one is bred as soon as one is back, so there is no barrier
+ * at which every thread waits for the slowest evaluation.
+ * <br/>
+ * The run is reported in periods of as many offspring as there are chromosomes in the population, each period being
+ * written out as a generation would, so that the output is comparable with that of a generational run with the same
+ * number of generations. The elite count does not apply: an offspring never replaces a better chromosome, so the best
+ * chromosome found is kept anyway.
+ * <br/>
+ * Each offspring repairs its genes with its own RepairRandom stream, numbered in the order the offspring are bred.
+ * With a single thread the results only depend on the seed; with more, they also depend on the order in which the
+ * evaluations finish.
+ */
+public class SteadyState {
+
+	/**
+	 * Which chromosome an offspring takes the place of, provided the offspring is no worse.
+	 * <br/>
+	 * WORST replaces the worst chromosome of the population. TOURNAMENT replaces the worst of as many chromosomes,
+	 * picked at random, as take part in a selection tournament.
+	 */
+	public enum Replacement {
+		WORST, TOURNAMENT
+	}
+
+	/**
+	 * An offspring on its way back from evaluation.
+	 */
+	private static class Evaluated {
+		private final Chromosome OFFSPRING;
+		private final FitnessCache.Key KEY;
+		private final int FITNESS;
+
+		private Evaluated(Chromosome offspring, FitnessCache.Key key, int fitness) {
+			this.OFFSPRING = offspring;
+			this.KEY = key;
+			this.FITNESS = fitness;
+		}
+	}
+
+	private final GAImplementation GA;
+	private final long SEED;
+	private final int RUN;
+	private final int PERIOD;
+	private final int TOTAL;
+	private final int IN_FLIGHT_LIMIT;
+	private final ExecutorService THREADS;
+	private final CompletionService<Evaluated> COMPLETIONS;
+
+	// the pair of offspring bred last, and how many of them have been used
+	private Chromosome[] PAIR;
+	private int PAIR_USED;
+	private int BRED;
+	private int IN_FLIGHT;
+
+	private int[] PERIOD_FITNESS;
+
+	/**
+	 * @param ga the GA to evolve the population of, which has been evaluated
+	 * @param seed the seed of the GA, to derive the repair streams from
+	 * @param run the current run
+	 * @param period the number of offspring in a period
+	 * @param total the number of offspring to breed in the run
+	 * @param threads the number of threads to evaluate with
+	 */
+	SteadyState(GAImplementation ga, long seed, int run, int period, int total, int threads) {
+		this.GA = ga;
+		this.SEED = seed;
+		this.RUN = run;
+		this.PERIOD = period;
+		this.TOTAL = total;
+		this.IN_FLIGHT_LIMIT = 2 * Math.max(1, threads);
+		this.THREADS = Executors.newFixedThreadPool(Math.max(1, threads), runnable -> {
+			Thread thread = new Thread(runnable, "Steady state evaluation");
+			// never keep the JVM alive for a run that has been abandoned
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.COMPLETIONS = new ExecutorCompletionService<>(this.THREADS);
+	}
+
+	/**
+	 * Breeds and evaluates offspring, putting each into the population as soon as it has been evaluated, until a
+	 * period's worth of them have been evaluated.
+	 *
+	 * @return the offspring evaluated in the period, in the order they were evaluated, whether or not they made it
+	 * into the population
+	 */
+	Chromosome[] nextPeriod() {
+		Chromosome[] offspring = new Chromosome[this.PERIOD];
+		this.PERIOD_FITNESS = new int[this.PERIOD];
+		for (int o = 0; o < this.PERIOD; o++) {
+			Evaluated evaluated = this.next();
+			this.GA.insert(evaluated.OFFSPRING, evaluated.FITNESS);
+			offspring[o] = evaluated.OFFSPRING;
+			this.PERIOD_FITNESS[o] = evaluated.FITNESS;
+		}
+		return offspring;
+	}
+
+	/**
+	 * @return the fitness of each offspring returned by the last nextPeriod
+	 */
+	int[] getPeriodFitness() {
+		return this.PERIOD_FITNESS;
+	}
+
+	/**
+	 * Stops the threads. Offspring still being evaluated are dropped.
+	 */
+	void close() {
+		this.THREADS.shutdownNow();
+	}
+
+	/**
+	 * Keeps the threads busy with new offspring, and returns the next offspring to have been evaluated: either one
+	 * found in the cache straight away, or the first to come back from the threads.
+	 */
+	private Evaluated next() {
+		while (this.IN_FLIGHT < this.IN_FLIGHT_LIMIT && this.BRED < this.TOTAL) {
+			Chromosome offspring = this.breed();
+			int number = this.BRED++;
+			FitnessCache.Key key = FitnessCache.Key.of(offspring);
+			int cachedFitness = this.GA.cachedOffspringFitness(key);
+			if (cachedFitness != FitnessCache.MISSING) {
+				return new Evaluated(offspring, key, cachedFitness);
+			}
+			RepairRandom repairs = RepairRandom.forOffspring(this.SEED, this.RUN, number);
+			this.COMPLETIONS.submit(() -> {
+				LinkedGraph current = this.GA.repair(offspring, repairs);
+				return new Evaluated(offspring, key, current.totalFakeLinks());
+			});
+			this.IN_FLIGHT++;
+		}
+		if (this.IN_FLIGHT == 0) {
+			throw new IllegalStateException("No offspring left to evaluate in run " + this.RUN);
+		}
+		Evaluated evaluated;
+		try {
+			evaluated = this.COMPLETIONS.take().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Steady-state evaluation interrupted", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("Steady-state evaluation failed", e);
+		}
+		this.IN_FLIGHT--;
+		int fitness = this.GA.offspringEvaluated(evaluated.KEY, evaluated.OFFSPRING, evaluated.FITNESS);
+		return new Evaluated(evaluated.OFFSPRING, evaluated.KEY, fitness);
+	}
+
+	/**
+	 * @return the next offspring, bred in pairs like the offspring of a generation
+	 */
+	private Chromosome breed() {
+		if (this.PAIR == null || this.PAIR_USED == this.PAIR.length) {
+			this.PAIR = this.GA.breed();
+			this.PAIR_USED = 0;
+		}
+		return this.PAIR[this.PAIR_USED++];
+	}
+}
@@ -15,35 +15,37 @@ public class UnrestrictedChromosome extends Chromosome {
         super(RANDOM, size, maxDepth);
     }
 
+    protected UnrestrictedChromosome(UnrestrictedChromosome other) {
+        super(other);
+    }
+
     @Override
     public Chromosome copy() {
-        Chromosome copy = new UnrestrictedChromosome(this.RANDOM, this.size, this.maxDepth);
-        for (int i = 0; i < this.size; i++) {
-            for (int j = 0; j < this.genes[i].length; j++) {
-                copy.genes[i][j] = this.genes[i][j];
-            }
-        }
-        return copy;
+        return new UnrestrictedChromosome(this);
     }
 
     @Override
     public void mutateGene(int index, LinkedGraph graph) {
         // select a random starting node
         int randomRoot = this.RANDOM.nextInt(graph.getSize());
-        // set that as the root of the selected gene
-        this.genes[index][0] = randomRoot;
         // calculate the offset value
         int randomOffset = this.RANDOM.nextInt(graph.getSize() - 1) + 1;
-        // set the offset
-        this.genes[index][1] = randomOffset;
+        // set the gene
+        this.setGene(index, randomRoot, randomOffset);
+    }
+
+    @Override
+    public boolean usesAdjacency() {
+        // genes are drawn from the whole graph, only the supernodes are checked
+        return false;
     }
 
     @Override
     public void validateGene(int index, LinkedGraph graph) {
-        int from = this.genes[index][0];
-        int to = (this.genes[index][0] + this.genes[index][1]) % graph.getSize();
-        int[] tempGene = new int[]{this.genes[index][0], this.genes[index][1]};
-        int offset = this.genes[index][1];
+        int from = this.getRoot(index);
+        int to = (from + this.getOffset(index)) % graph.getSize();
+        long tempGene = this.genes[index];
+        int offset = this.getOffset(index);
 
         // if the gene is invalid, because it appears more than once in the chromosome
         // or merges two nodes already in the same cluster, replace it with a new gene
@@ -51,19 +53,16 @@ public class UnrestrictedChromosome extends Chromosome {
             // make one attempt to only change the offset
             offset = this.RANDOM.nextInt(graph.getSize() - 1) + 1;
             to = Math.floorMod(from + offset, graph.getSize());
-            tempGene[0] = from;
-            tempGene[1] = offset;
+            tempGene = gene(from, offset);
             // if that doesn't work, randomly select a new 'from' node and corresponding 'to' node
             while (duplicateGene(tempGene) || graph.sameCluster(from, to)) {
                 from = this.RANDOM.nextInt(graph.getSize());
                 offset = this.RANDOM.nextInt(graph.getSize() - 1) + 1;
                 to = Math.floorMod(from + offset, graph.getSize());
-                tempGene[0] = from;
-                tempGene[1] = offset;
+                tempGene = gene(from, offset);
             }
         }
         // update the gene
-        this.genes[index][0] = from;
-        this.genes[index][1] = offset;
+        this.setGene(index, from, offset);
     }
 }
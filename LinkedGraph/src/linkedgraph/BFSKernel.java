@@ -0,0 +1,339 @@
+package linkedgraph;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Breadth-first search over the adjacency list of a LinkedGraph that does not allocate once warmed up.
+ * <br/>
+ * The queue is a preallocated int array holding the supernodes in the order they are first reached, with the depth
+ * of each entry kept in a parallel array. Visited supernodes are marked by stamping them with the current epoch, so
+ * the visited array never needs clearing: starting a new search is a matter of bumping the epoch.
+ * <br/>
+ * The original searches return their results in the iteration order of the HashSet they explore with, and the GA
+ * draws from those lists by index, so its results depend on that order. toLegacyOrder reproduces it from the order
+ * in which the nodes were reached, by replaying the bucket layout and resizes of the HashSet (buckets are iterated in
+ * order, and hold their entries in insertion order). The only case it does not replay is a bucket large enough to be
+ * turned into a tree, where it falls back on filling an actual HashSet.
+ * <br/>
+ * Kernels are not thread-safe; LinkedGraph keeps one per thread.
+ */
+public class BFSKernel {
+
+	// HashMap constants that the iteration order depends on
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int TREEIFY_THRESHOLD = 8;
+	private static final int MIN_TREEIFY_CAPACITY = 64;
+
+	private int[] QUEUE;
+	private int[] DEPTH;
+	private int[] VISITED;
+	private int EPOCH;
+	// number of nodes reached by the last search, including the root
+	private int COUNT;
+	// scratch space for toLegacyOrder
+	private int[] BUCKETS;
+
+	public BFSKernel() {
+		this.QUEUE = new int[0];
+		this.DEPTH = new int[0];
+		this.VISITED = new int[0];
+		this.BUCKETS = new int[0];
+	}
+
+	/**
+	 * Searches the supernodes within depth edges of the supernode holding root.
+	 *
+	 * @param adjacency the adjacency list of the graph, indexed by supernode id
+	 * @param clusters the supernodes of the graph
+	 * @param root index of the node to search from
+	 * @param depth the maximum number of edges away from the root to search
+	 * @return the number of supernodes reached, including the root's, which can be read back with get
+	 */
+	public int search(List<? extends List<Integer>> adjacency, DisjointSet clusters, int root, int depth) {
+		this.begin(adjacency.size());
+		int rootValue = clusters.getId(root);
+		this.visit(rootValue, 0);
+		for (int head = 0; head < this.COUNT; head++) {
+			int atDistance = this.DEPTH[head];
+			if (atDistance < depth) {
+				List<Integer> neighbours = adjacency.get(this.QUEUE[head]);
+				for (int i = 0; i < neighbours.size(); i++) {
+					int iValue = clusters.getId(neighbours.get(i));
+					if (this.VISITED[iValue] != this.EPOCH) {
+						this.visit(iValue, atDistance + 1);
+					}
+				}
+			}
+		}
+		return this.COUNT;
+	}
+
+	/**
+	 * Randomly searches the neighbourhood of root, as LinkedGraph.randomAddBFS does: each neighbour of a reached
+	 * supernode is only followed if its bit is set in a random, non-zero bit mask. Draws the same numbers from r as
+	 * randomAddBFS, without building the bit masks as strings.
+	 *
+	 * @param adjacency the adjacency list of the graph, indexed by supernode id
+	 * @param clusters the supernodes of the graph
+	 * @param root index of the node to search from
+	 * @param depth the maximum number of edges away from the root to search
+	 * @param r the Random object to be used for the random inclusion
+	 * @return the number of supernodes reached, including the root's, which can be read back with get
+	 */
+	public int randomSearch(List<? extends List<Integer>> adjacency, DisjointSet clusters, int root, int depth,
+			Random r) {
+		this.begin(adjacency.size());
+		int rootValue = clusters.getId(root);
+		this.visit(rootValue, 0);
+		for (int head = 0; head < this.COUNT; head++) {
+			int atDistance = this.DEPTH[head];
+			if (atDistance < depth) {
+				List<Integer> neighbours = adjacency.get(this.QUEUE[head]);
+				int size = neighbours.size();
+				int mask = 0;
+				int portion = 0;
+				for (int i = 0; i < size; i++) {
+					// draw the next 32 bits of the mask, most significant bit first
+					if (i % 32 == 0) {
+						portion = Math.min(32, size - i);
+						mask = r.nextInt((int) Math.pow(2, portion) - 1) + 1;
+					}
+					if ((mask >>> (portion - 1 - i % 32) & 1) == 1) {
+						int iValue = clusters.getId(neighbours.get(i));
+						// if it's a self-loop, pick either the one before or the one after
+						if (iValue == rootValue) {
+							if (i - 1 >= 0) {
+								iValue = clusters.getId(neighbours.get(i - 1));
+							} else if (i + 1 < size) {
+								iValue = clusters.getId(neighbours.get(i + 1));
+							}
+						}
+						if (this.VISITED[iValue] != this.EPOCH) {
+							this.visit(iValue, atDistance + 1);
+						}
+					}
+				}
+			}
+		}
+		return this.COUNT;
+	}
+
+	/**
+	 * Searches the nodes within depth edges of root in the original graph, following each row in the order it was
+	 * loaded. This reaches the nodes in the same order as search does on a graph that has not been merged yet.
+	 *
+	 * @param original the original graph
+	 * @param root index of the node to search from
+	 * @param depth the maximum number of edges away from the root to search
+	 * @return the number of nodes reached, including the root, which can be read back with get
+	 */
+	public int searchOriginal(CSRGraph original, int root, int depth) {
+		this.begin(original.getSize());
+		this.visit(root, 0);
+		for (int head = 0; head < this.COUNT; head++) {
+			int atDistance = this.DEPTH[head];
+			if (atDistance < depth) {
+				int at = this.QUEUE[head];
+				for (int k = original.getStart(at); k < original.getEnd(at); k++) {
+					int neighbour = original.getOrderedTarget(k);
+					if (this.VISITED[neighbour] != this.EPOCH) {
+						this.visit(neighbour, atDistance + 1);
+					}
+				}
+			}
+		}
+		return this.COUNT;
+	}
+
+	/**
+	 * Loads a neighbourhood of the original graph as the result of a search, mapping each node through the
+	 * supernodes. Only the nodes from 'frontier' on may be in a merged supernode: several of them may then map to
+	 * the same supernode, which is only kept once. The depths of the nodes are not loaded.
+	 *
+	 * @param nodes the nodes of the neighbourhood, in the order they were reached
+	 * @param start index of the root in nodes
+	 * @param frontier index of the first node at the full depth of the neighbourhood
+	 * @param end one past the index of the last node
+	 * @param clusters the supernodes of the graph
+	 * @return the number of supernodes loaded, including the root, which can be read back with get
+	 */
+	public int load(int[] nodes, int start, int frontier, int end, DisjointSet clusters) {
+		return this.load(nodes, start, frontier, end, clusters, false);
+	}
+
+	/**
+	 * Same as load, but only if each supernode that the nodes from 'frontier' on map to is first reached through the
+	 * node whose id it keeps. A merge that absorbs a node moves its supernode to the end of the adjacency lists of its
+	 * neighbours, unless the supernode is already in them, so only then do the supernodes come in the order that a
+	 * search of the merged graph reaches them in.
+	 *
+	 * @param nodes the nodes of the neighbourhood, in the order they were reached
+	 * @param start index of the root in nodes
+	 * @param frontier index of the first node at the full depth of the neighbourhood
+	 * @param end one past the index of the last node
+	 * @param clusters the supernodes of the graph
+	 * @return the number of supernodes loaded, including the root, or -1 if a supernode is first reached through a
+	 * node it has absorbed
+	 */
+	public int loadInOrder(int[] nodes, int start, int frontier, int end, DisjointSet clusters) {
+		return this.load(nodes, start, frontier, end, clusters, true);
+	}
+
+	private int load(int[] nodes, int start, int frontier, int end, DisjointSet clusters, boolean inOrder) {
+		this.begin(clusters.getSize());
+		for (int i = start; i < frontier; i++) {
+			this.visit(nodes[i], 0);
+		}
+		for (int i = frontier; i < end; i++) {
+			int id = clusters.getId(nodes[i]);
+			if (this.VISITED[id] != this.EPOCH) {
+				if (inOrder && id != nodes[i]) {
+					return -1;
+				}
+				this.visit(id, 0);
+			}
+		}
+		return this.COUNT;
+	}
+
+	/**
+	 * @param index index of the result, less than the count returned by the last search
+	 * @return the supernode reached in that position, in the order the search reached them (the root first)
+	 */
+	public int get(int index) {
+		return this.QUEUE[index];
+	}
+
+	/**
+	 * @param index index of the result, less than the count returned by the last search
+	 * @return the number of edges between the root and the supernode in that position
+	 */
+	public int getDepth(int index) {
+		return this.DEPTH[index];
+	}
+
+	/**
+	 * Copies the result of the last search, less the root, into out in the order the original search returns it.
+	 *
+	 * @param out the buffer to write into, holding at least one less than the count returned by the last search
+	 * @return the number of supernodes written
+	 */
+	public int toLegacyOrder(int[] out) {
+		return this.toLegacyOrder(this.QUEUE, 0, this.COUNT, out);
+	}
+
+	/**
+	 * Copies the result of a search, less the root, into out in the order the original search returns it.
+	 *
+	 * @param nodes the nodes reached by the search, in the order they were reached
+	 * @param start index of the root in nodes
+	 * @param end one past the index of the last node reached
+	 * @param out the buffer to write into, holding at least end - start - 1 entries
+	 * @return the number of nodes written
+	 */
+	public int toLegacyOrder(int[] nodes, int start, int end, int[] out) {
+		int capacity = this.legacyCapacity(nodes, start, end);
+		if (capacity < 0) {
+			// a bucket would have been turned into a tree, so insert into a HashSet the way the original search does
+			Set<Integer> explored = new HashSet<>();
+			for (int i = start; i < end; i++) {
+				explored.add(nodes[i]);
+			}
+			int written = 0;
+			for (int node : explored) {
+				if (node != nodes[start]) {
+					out[written++] = node;
+				}
+			}
+			return written;
+		}
+		// stable counting sort of the reached nodes by bucket, skipping the root
+		int[] buckets = this.buckets(capacity + 1);
+		Arrays.fill(buckets, 0, capacity + 1, 0);
+		for (int i = start + 1; i < end; i++) {
+			buckets[bucket(nodes[i], capacity) + 1]++;
+		}
+		for (int b = 0; b < capacity; b++) {
+			buckets[b + 1] += buckets[b];
+		}
+		for (int i = start + 1; i < end; i++) {
+			out[buckets[bucket(nodes[i], capacity)]++] = nodes[i];
+		}
+		return end - start - 1;
+	}
+
+	/**
+	 * Replays the insertions of nodes[start] .. nodes[end - 1] into a HashSet, returning the capacity of its table at
+	 * the end, or -1 if one of its buckets would have been turned into a tree.
+	 */
+	private int legacyCapacity(int[] nodes, int start, int end) {
+		int capacity = INITIAL_CAPACITY;
+		int[] counts = this.buckets(capacity);
+		Arrays.fill(counts, 0, capacity, 0);
+		for (int size = 1; size <= end - start; size++) {
+			int b = bucket(nodes[start + size - 1], capacity);
+			if (++counts[b] > TREEIFY_THRESHOLD) {
+				if (capacity >= MIN_TREEIFY_CAPACITY) {
+					return -1;
+				}
+				// small tables are resized instead of treeified
+				capacity <<= 1;
+				counts = this.recount(nodes, start, size, capacity);
+			}
+			if (size > capacity / 4 * 3) {
+				capacity <<= 1;
+				counts = this.recount(nodes, start, size, capacity);
+			}
+		}
+		return capacity;
+	}
+
+	private int[] recount(int[] nodes, int start, int size, int capacity) {
+		int[] counts = this.buckets(capacity);
+		Arrays.fill(counts, 0, capacity, 0);
+		for (int i = start; i < start + size; i++) {
+			counts[bucket(nodes[i], capacity)]++;
+		}
+		return counts;
+	}
+
+	private int[] buckets(int size) {
+		if (this.BUCKETS.length < size) {
+			this.BUCKETS = new int[Math.max(size, this.BUCKETS.length * 2)];
+		}
+		return this.BUCKETS;
+	}
+
+	/**
+	 * @return the bucket that HashMap puts an Integer key in, for a table of the given capacity
+	 */
+	private static int bucket(int key, int capacity) {
+		return (key ^ (key >>> 16)) & (capacity - 1);
+	}
+
+	private void begin(int size) {
+		if (this.VISITED.length < size) {
+			this.QUEUE = new int[size];
+			this.DEPTH = new int[size];
+			this.VISITED = new int[size];
+			this.EPOCH = 0;
+		}
+		if (++this.EPOCH == 0) {
+			// the stamps have wrapped around, start over
+			Arrays.fill(this.VISITED, 0);
+			this.EPOCH = 1;
+		}
+		this.COUNT = 0;
+	}
+
+	private void visit(int node, int depth) {
+		this.VISITED[node] = this.EPOCH;
+		this.QUEUE[this.COUNT] = node;
+		this.DEPTH[this.COUNT] = depth;
+		this.COUNT++;
+	}
+}
@@ -0,0 +1,158 @@
+package linkedgraph;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable compressed-sparse-row (CSR) form of the original, uncompressed graph.
+ * <br/>
+ * The neighbours of node i are held in TARGETS[OFFSETS[i]] .. TARGETS[OFFSETS[i + 1] - 1], sorted in ascending
+ * order so that an edge lookup is a binary search over a single row. The same neighbours are also kept in the order
+ * in which they were first loaded (ORDER), since the adjacency lists of a LinkedGraph start out in that order and
+ * BFS results (and therefore the GA) depend on it. When every row was loaded already sorted the two arrays are
+ * shared.
+ * <br/>
+ * Nothing in this object changes after construction, so a single instance is shared by a LinkedGraph and all of
+ * its copies.
+ */
+public class CSRGraph {
+
+	/**
+	 * Start index of each node's row, with one trailing entry holding the total number of entries.
+	 */
+	private final int[] OFFSETS;
+	/**
+	 * Neighbours of every node, each row sorted in ascending order.
+	 */
+	private final int[] TARGETS;
+	/**
+	 * Neighbours of every node, each row in the order it was loaded.
+	 */
+	private final int[] ORDER;
+
+	private CSRGraph(int[] offsets, int[] targets, int[] order) {
+		this.OFFSETS = offsets;
+		this.TARGETS = targets;
+		this.ORDER = order;
+	}
+
+	/**
+	 * Builds the CSR form of an adjacency list. Each list is expected to be free of duplicates, as is the case for
+	 * the adjacency lists built by LinkedGraph.
+	 *
+	 * @param adjacency the neighbours of each node, in load order
+	 * @return the CSR form of the adjacency list
+	 */
+	public static CSRGraph fromAdjacency(List<? extends List<Integer>> adjacency) {
+		int size = adjacency.size();
+		int[] offsets = new int[size + 1];
+		for (int i = 0; i < size; i++) {
+			offsets[i + 1] = offsets[i] + adjacency.get(i).size();
+		}
+		int[] order = new int[offsets[size]];
+		int[] targets = new int[offsets[size]];
+		boolean sorted = true;
+		for (int i = 0; i < size; i++) {
+			int k = offsets[i];
+			for (int neighbour : adjacency.get(i)) {
+				order[k] = neighbour;
+				targets[k] = neighbour;
+				if (k > offsets[i] && order[k - 1] > neighbour) {
+					sorted = false;
+				}
+				k++;
+			}
+			Arrays.sort(targets, offsets[i], offsets[i + 1]);
+		}
+		// no need to hold the same row twice if it was loaded in sorted order
+		return new CSRGraph(offsets, targets, sorted ? targets : order);
+	}
+
+	/**
+	 * Builds the CSR form of a graph snapshot, copying its arrays in bulk.
+	 *
+	 * @param snapshot the snapshot of the original graph
+	 * @return the CSR form of the snapshot
+	 */
+	public static CSRGraph fromSnapshot(GraphSnapshot snapshot) {
+		int[] targets = snapshot.copyTargets();
+		int[] order = snapshot.copyOrder();
+		return new CSRGraph(snapshot.copyOffsets(), targets, Arrays.equals(targets, order) ? targets : order);
+	}
+
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	public int getSize() {
+		return this.OFFSETS.length - 1;
+	}
+
+	/**
+	 * @return the total number of adjacency entries, i.e. twice the number of edges plus the number of self-loops
+	 */
+	public int getEntryCount() {
+		return this.OFFSETS[this.OFFSETS.length - 1];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the number of neighbours of the node in the original graph
+	 */
+	public int getDegree(int node) {
+		return this.OFFSETS[node + 1] - this.OFFSETS[node];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the index of the first entry of the node's row
+	 */
+	public int getStart(int node) {
+		return this.OFFSETS[node];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return one past the index of the last entry of the node's row
+	 */
+	public int getEnd(int node) {
+		return this.OFFSETS[node + 1];
+	}
+
+	/**
+	 * @param entry index of the entry, between getStart(node) and getEnd(node)
+	 * @return the neighbour at that entry, rows being in ascending order
+	 */
+	public int getTarget(int entry) {
+		return this.TARGETS[entry];
+	}
+
+	/**
+	 * @param entry index of the entry, between getStart(node) and getEnd(node)
+	 * @return the neighbour at that entry, rows being in the order they were loaded
+	 */
+	public int getOrderedTarget(int entry) {
+		return this.ORDER[entry];
+	}
+
+	/**
+	 * Checks for an edge in the original graph with a binary search over the row of 'from'.
+	 *
+	 * @param from index of the first node
+	 * @param to index of the second node
+	 * @return True if the edge exists in the original graph, False otherwise
+	 */
+	public boolean hasEdge(int from, int to) {
+		return Arrays.binarySearch(this.TARGETS, this.OFFSETS[from], this.OFFSETS[from + 1], to) >= 0;
+	}
+
+	/**
+	 * @return an estimate of the heap used by the arrays of this graph, in bytes
+	 */
+	public long getMemoryFootprint() {
+		long entries = (long) this.OFFSETS.length + this.TARGETS.length;
+		if (this.ORDER != this.TARGETS) {
+			entries += this.ORDER.length;
+		}
+		return entries * Integer.BYTES;
+	}
+}
@@ -0,0 +1,163 @@
+package linkedgraph;
+
+/**
+ * Union-find (disjoint-set) structure that tracks which supernode each node of a LinkedGraph belongs to.
+ * <br/>
+ * Finds use path halving and unions link the smaller tree under the larger one, so both run in near-constant time
+ * without recursing. Since union by size picks the root by tree size, the id of a supernode (the node the merge was
+ * made into, as used throughout LinkedGraph) is kept separately as the label of the root.
+ * <br/>
+ * While a journal is set, unions are logged so that they can be undone, and finds stop halving paths: a path
+ * shortened across a union would skip over it once it is undone. Union by size alone keeps the trees shallow.
+ */
+public class DisjointSet {
+
+	private final int[] PARENT;
+	private final int[] SIZE;
+	private final int[] LABEL;
+	private MergeJournal JOURNAL;
+
+	/**
+	 * @param size the number of nodes, each of which starts out in its own set
+	 */
+	public DisjointSet(int size) {
+		this.PARENT = new int[size];
+		this.SIZE = new int[size];
+		this.LABEL = new int[size];
+		for (int i = 0; i < size; i++) {
+			this.PARENT[i] = i;
+			this.SIZE[i] = 1;
+			this.LABEL[i] = i;
+		}
+	}
+
+	/**
+	 * @return the number of nodes tracked by this structure
+	 */
+	public int getSize() {
+		return this.PARENT.length;
+	}
+
+	/**
+	 * Finds the root of the tree holding the node, halving the path on the way up.
+	 *
+	 * @param node index of the node
+	 * @return the index of the root of the node's set
+	 */
+	public int find(int node) {
+		while (this.PARENT[node] != node) {
+			if (this.JOURNAL == null) {
+				this.PARENT[node] = this.PARENT[this.PARENT[node]];
+			}
+			node = this.PARENT[node];
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the id of the supernode holding the node, i.e. the node every other member has been merged into.
+	 *
+	 * @param node index of the node
+	 * @return the id of the node's supernode
+	 */
+	public int getId(int node) {
+		return this.LABEL[this.find(node)];
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the number of nodes in the node's supernode
+	 */
+	public int getClusterSize(int node) {
+		return this.SIZE[this.find(node)];
+	}
+
+	/**
+	 * @param from index of the first node
+	 * @param to index of the second node
+	 * @return True if both nodes are in the same supernode, False otherwise
+	 */
+	public boolean sameCluster(int from, int to) {
+		return this.find(from) == this.find(to);
+	}
+
+	/**
+	 * Merges the supernode holding 'secondary' into the supernode holding 'primary'. The merged supernode keeps the
+	 * id of the primary supernode.
+	 *
+	 * @param secondary index of a node in the supernode being absorbed
+	 * @param primary index of a node in the supernode absorbing it
+	 * @return True if the two supernodes were merged, False if they were already the same supernode
+	 */
+	public boolean union(int secondary, int primary) {
+		int secondaryRoot = this.find(secondary);
+		int primaryRoot = this.find(primary);
+		if (secondaryRoot == primaryRoot) {
+			return false;
+		}
+		if (this.JOURNAL != null) {
+			this.log(secondaryRoot);
+			this.log(primaryRoot);
+			this.JOURNAL.push(MergeJournal.UNION);
+		}
+		int label = this.LABEL[primaryRoot];
+		// link the smaller tree under the larger one
+		if (this.SIZE[secondaryRoot] > this.SIZE[primaryRoot]) {
+			int temp = secondaryRoot;
+			secondaryRoot = primaryRoot;
+			primaryRoot = temp;
+		}
+		this.PARENT[secondaryRoot] = primaryRoot;
+		this.SIZE[primaryRoot] += this.SIZE[secondaryRoot];
+		this.LABEL[primaryRoot] = label;
+		return true;
+	}
+
+	/**
+	 * Sets the journal to log unions to, null to stop logging them.
+	 *
+	 * @param journal the journal
+	 */
+	void setJournal(MergeJournal journal) {
+		this.JOURNAL = journal;
+	}
+
+	/**
+	 * Undoes the union on top of the journal, whose kind has already been popped.
+	 *
+	 * @param journal the journal
+	 */
+	void undo(MergeJournal journal) {
+		// the roots were logged secondary first
+		for (int r = 0; r < 2; r++) {
+			int label = journal.pop();
+			int size = journal.pop();
+			int parent = journal.pop();
+			int root = journal.pop();
+			this.PARENT[root] = parent;
+			this.SIZE[root] = size;
+			this.LABEL[root] = label;
+		}
+	}
+
+	/**
+	 * Logs the entry of a root as it is before a union.
+	 */
+	private void log(int root) {
+		this.JOURNAL.push(root);
+		this.JOURNAL.push(this.PARENT[root]);
+		this.JOURNAL.push(this.SIZE[root]);
+		this.JOURNAL.push(this.LABEL[root]);
+	}
+
+	/**
+	 * Overwrites this structure with the supernodes held by another one of the same size.
+	 *
+	 * @param other the structure to copy
+	 */
+	public void copyFrom(DisjointSet other) {
+		System.arraycopy(other.PARENT, 0, this.PARENT, 0, this.PARENT.length);
+		System.arraycopy(other.SIZE, 0, this.SIZE, 0, this.SIZE.length);
+		System.arraycopy(other.LABEL, 0, this.LABEL, 0, this.LABEL.length);
+	}
+}
@@ -0,0 +1,209 @@
+package linkedgraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a graph from an edge list file: the number of vertices, followed by the two endpoints of every edge, all
+ * separated by whitespace (spaces, tabs or line breaks).
+ * <br/>
+ * The file is read in blocks through a FileChannel and the integers are parsed straight from the bytes. The edges
+ * are then grouped into rows, one per vertex, in CSR form: the neighbours of vertex i are
+ * getTarget(getStart(i)) .. getTarget(getEnd(i) - 1).
+ * <br/>
+ * Each row lists the neighbours of the vertex in the order they first appear in the file, without repeats, which
+ * is the order LinkedGraph.load has always built its adjacency list in. Searches and the GA depend on that order, so
+ * the repeats are dropped by marking the neighbours already seen in the row rather than by sorting the row.
+ */
+public class EdgeListReader {
+
+	private static final int BLOCK_SIZE = 1 << 16;
+
+	private final int SIZE;
+	private final int[] OFFSETS;
+	private final int[] TARGETS;
+	// number of edges listed in the file, including repeats
+	private final long EDGES;
+	// time taken to read the file, in nanoseconds
+	private final long NANOS;
+
+	private EdgeListReader(int size, int[] offsets, int[] targets, long edges, long nanos) {
+		this.SIZE = size;
+		this.OFFSETS = offsets;
+		this.TARGETS = targets;
+		this.EDGES = edges;
+		this.NANOS = nanos;
+	}
+
+	/**
+	 * Reads the edge list file.
+	 *
+	 * @param filename String name and location of the file
+	 * @return the graph in the file
+	 * @throws IOException if the file can not be read, or is not a valid edge list
+	 */
+	public static EdgeListReader read(String filename) throws IOException {
+		long start = System.nanoTime();
+		int[] endpoints = new int[1024];
+		int count = 0;
+		int size = -1;
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			ByteBuffer buffer = ByteBuffer.allocate(BLOCK_SIZE);
+			byte[] bytes = buffer.array();
+			long value = 0;
+			boolean inNumber = false;
+			long position = 0;
+			int read;
+			while ((read = channel.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++, position++) {
+					byte b = bytes[i];
+					if (b >= '0' && b <= '9') {
+						value = value * 10 + (b - '0');
+						if (value > Integer.MAX_VALUE) {
+							throw new IOException("Number too large at byte " + position + " of " + filename);
+						}
+						inNumber = true;
+					} else if (b == ' ' || b == '\t' || b == '\n' || b == '\r') {
+						if (inNumber) {
+							if (size < 0) {
+								size = (int) value;
+							} else {
+								if (count == endpoints.length) {
+									endpoints = Arrays.copyOf(endpoints, count * 2);
+								}
+								endpoints[count++] = (int) value;
+							}
+							value = 0;
+							inNumber = false;
+						}
+					} else {
+						throw new IOException("Unexpected character '" + (char) b + "' at byte " + position + " of "
+								+ filename);
+					}
+				}
+				buffer.clear();
+			}
+			if (inNumber) {
+				// the last number is not followed by a line break
+				if (size < 0) {
+					size = (int) value;
+				} else {
+					if (count == endpoints.length) {
+						endpoints = Arrays.copyOf(endpoints, count + 1);
+					}
+					endpoints[count++] = (int) value;
+				}
+			}
+		}
+		if (size < 0) {
+			throw new IOException("No vertex count in " + filename);
+		}
+		if (count % 2 != 0) {
+			throw new IOException("Edge without a second endpoint in " + filename);
+		}
+		for (int i = 0; i < count; i++) {
+			if (endpoints[i] >= size) {
+				throw new IOException("Vertex " + endpoints[i] + " out of range in " + filename + ", which has "
+						+ size + " vertices");
+			}
+		}
+
+		// group both directions of every edge into rows, keeping the order of the file
+		int[] offsets = new int[size + 1];
+		for (int i = 0; i < count; i += 2) {
+			offsets[endpoints[i] + 1]++;
+			if (endpoints[i + 1] != endpoints[i]) {
+				offsets[endpoints[i + 1] + 1]++;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		int[] targets = new int[offsets[size]];
+		int[] next = Arrays.copyOf(offsets, size);
+		for (int i = 0; i < count; i += 2) {
+			int from = endpoints[i];
+			int to = endpoints[i + 1];
+			targets[next[from]++] = to;
+			if (to != from) {
+				targets[next[to]++] = from;
+			}
+		}
+
+		// drop the repeats, marking the neighbours seen in row i with i + 1 ('next' is no longer needed)
+		int[] seen = next;
+		Arrays.fill(seen, 0);
+		int written = 0;
+		int rowStart = 0;
+		for (int i = 0; i < size; i++) {
+			int rowEnd = offsets[i + 1];
+			offsets[i] = written;
+			for (int k = rowStart; k < rowEnd; k++) {
+				if (seen[targets[k]] != i + 1) {
+					seen[targets[k]] = i + 1;
+					targets[written++] = targets[k];
+				}
+			}
+			rowStart = rowEnd;
+		}
+		offsets[size] = written;
+		return new EdgeListReader(size, offsets, Arrays.copyOf(targets, written), count / 2,
+				System.nanoTime() - start);
+	}
+
+	/**
+	 * @return the number of vertices
+	 */
+	public int getSize() {
+		return this.SIZE;
+	}
+
+	/**
+	 * @param node index of the vertex
+	 * @return the index of the first neighbour of the vertex
+	 */
+	public int getStart(int node) {
+		return this.OFFSETS[node];
+	}
+
+	/**
+	 * @param node index of the vertex
+	 * @return one past the index of the last neighbour of the vertex
+	 */
+	public int getEnd(int node) {
+		return this.OFFSETS[node + 1];
+	}
+
+	/**
+	 * @param entry index of the neighbour, between getStart(node) and getEnd(node)
+	 * @return the neighbour
+	 */
+	public int getTarget(int entry) {
+		return this.TARGETS[entry];
+	}
+
+	/**
+	 * @return the number of edges listed in the file, including repeats
+	 */
+	public long getEdgeCount() {
+		return this.EDGES;
+	}
+
+	/**
+	 * @return the time taken to read the file, in nanoseconds
+	 */
+	public long getReadTime() {
+		return this.NANOS;
+	}
+
+	/**
+	 * @return the number of edges read per second
+	 */
+	public double getEdgesPerSecond() {
+		return this.EDGES / (Math.max(this.NANOS, 1) / 1e9);
+	}
+}
@@ -0,0 +1,140 @@
+package linkedgraph;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Process-wide registry of the graphs read from source files, so that GAs running in the same process on the same
+ * source share one copy of it instead of reading their own.
+ * <br/>
+ * Each source is read once, into a graph that is never merged or handed out. Every GA gets a copy of it (see
+ * LinkedGraph.deepCopy), which shares the immutable original graph, the degrees and the rows of the adjacency list,
+ * and only has merge state and settings of its own. The neighbourhood caches and k-hop indices of a source, which
+ * only depend on its original graph, are kept here as well, so that neighbourhoods searched by one GA serve the
+ * others: one cache per budget, and one index per depth and order.
+ * <br/>
+ * Thread-safe: each source is locked while it is read or copied, and the caches are synchronized themselves.
+ */
+public class GraphRegistry {
+
+	/**
+	 * A source, and what is shared between the graphs read from it.
+	 */
+	private static class Source {
+		private LinkedGraph GRAPH;
+		private final Map<Long, NeighbourhoodCache> CACHES = new HashMap<>();
+		private final Map<Integer, int[]> KHOP_COUNTS = new HashMap<>();
+		private final Map<Integer, KHopIndex> KHOP_INDICES = new HashMap<>();
+	}
+
+	private static final Map<String, Source> SOURCES = new ConcurrentHashMap<>();
+
+	private GraphRegistry() {
+	}
+
+	/**
+	 * Returns a graph of a source file, reading the file if no graph has been asked for from it yet. Files ending in
+	 * GraphSnapshot.EXTENSION are mapped as snapshots, any others are read as edge lists.
+	 *
+	 * @param filename the source file
+	 * @param noisy whether to print how long reading the file took
+	 * @return a copy of the graph of the file, which the caller may set up and merge as it sees fit
+	 * @throws IOException if the file can not be read
+	 */
+	public static LinkedGraph get(String filename, boolean noisy) throws IOException {
+		Source source = SOURCES.computeIfAbsent(filename, key -> new Source());
+		synchronized (source) {
+			if (source.GRAPH == null) {
+				source.GRAPH = read(filename, noisy);
+			}
+			// the first copy takes the ownership of the rows away from the graph (see LinkedGraph.deepCopy), which must not
+			// be done by two threads at once; later copies only read the graph
+			return source.GRAPH.deepCopy();
+		}
+	}
+
+	/**
+	 * Returns the neighbourhood cache that the graphs of a source with this budget share, see
+	 * LinkedGraph.setNeighbourhoodCache.
+	 *
+	 * @param filename the source file, which has been read by get
+	 * @param budget the maximum number of bytes the cached neighbourhoods may take up
+	 * @return the cache, null if the budget is 0
+	 */
+	public static NeighbourhoodCache getNeighbourhoodCache(String filename, long budget) {
+		if (budget <= 0) {
+			return null;
+		}
+		Source source = source(filename);
+		synchronized (source) {
+			return source.CACHES.computeIfAbsent(budget, NeighbourhoodCache::new);
+		}
+	}
+
+	/**
+	 * Returns the number of candidates of every node in a k-hop index of a source, see KHopIndex.measure.
+	 *
+	 * @param filename the source file, which has been read by get
+	 * @param depth the depth of the index
+	 * @return the counts, which must not be changed
+	 */
+	public static int[] getKHopCounts(String filename, int depth) {
+		Source source = source(filename);
+		synchronized (source) {
+			return source.KHOP_COUNTS.computeIfAbsent(depth, d -> KHopIndex.measure(source.GRAPH.getOriginal(), d));
+		}
+	}
+
+	/**
+	 * Returns the k-hop index of a source, building it if no graph of the source has asked for it yet.
+	 *
+	 * @param filename the source file, which has been read by get
+	 * @param depth the depth of the index
+	 * @param sortByDegree whether the candidates are sorted by degree rather than kept in search order
+	 * @return the index
+	 */
+	public static KHopIndex getKHopIndex(String filename, int depth, boolean sortByDegree) {
+		int[] counts = getKHopCounts(filename, depth);
+		Source source = source(filename);
+		synchronized (source) {
+			// the depth in the low bits, the order in the sign
+			return source.KHOP_INDICES.computeIfAbsent(sortByDegree ? -depth - 1 : depth,
+					key -> KHopIndex.build(source.GRAPH.getOriginal(), depth, counts, sortByDegree));
+		}
+	}
+
+	/**
+	 * Forgets every source, so that the graphs, caches and indices that no GA holds on to any more can be collected.
+	 * Graphs asked for from now on are read again.
+	 */
+	public static void clear() {
+		SOURCES.clear();
+	}
+
+	private static Source source(String filename) {
+		Source source = SOURCES.get(filename);
+		if (source != null) {
+			synchronized (source) {
+				if (source.GRAPH != null) {
+					return source;
+				}
+			}
+		}
+		throw new IllegalStateException("Graph not read: " + filename);
+	}
+
+	private static LinkedGraph read(String filename, boolean noisy) throws IOException {
+		if (filename.endsWith(GraphSnapshot.EXTENSION)) {
+			return LinkedGraph.load(GraphSnapshot.map(filename));
+		}
+		EdgeListReader edges = EdgeListReader.read(filename);
+		if (noisy) {
+			System.out.println("Read " + edges.getEdgeCount() + " edges in "
+					+ String.format("%.3f", edges.getReadTime() / 1e9) + "s ("
+					+ String.format("%.0f", edges.getEdgesPerSecond()) + " edges/s)");
+		}
+		return LinkedGraph.load(edges);
+	}
+}
@@ -0,0 +1,240 @@
+package linkedgraph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Binary snapshot of an original graph, loaded by memory-mapping the file rather than parsing it.
+ * <br/>
+ * The file is a sequence of little-endian ints: a header (MAGIC, VERSION, the number of nodes n and the number of
+ * adjacency entries e), then the CSR form of the graph as held by CSRGraph: the n + 1 row offsets, the e neighbours
+ * with each row in load order, the e neighbours with each row sorted, and finally the n original degrees.
+ * <br/>
+ * The arrays are read straight from the mapping through IntBuffer views, so nothing is parsed and several
+ * processes loading the same snapshot share the page cache for it. LinkedGraph.load(GraphSnapshot) builds its
+ * adjacency lists from the views, and only bulk-copies the arrays that CSRGraph keeps on the heap for its searches.
+ * Snapshots are made from the text edge lists with convert, or by running this class:
+ * GraphSnapshot input.txt output.snapshot
+ */
+public class GraphSnapshot {
+
+	/**
+	 * File extension of snapshots, used by LinkedGraph.load to tell them apart from text edge lists.
+	 */
+	public static final String EXTENSION = ".snapshot";
+	// "LGSN"
+	private static final int MAGIC = 0x4E53474C;
+	private static final int VERSION = 1;
+	private static final int HEADER_INTS = 4;
+
+	private final int SIZE;
+	private final int ENTRIES;
+	private final IntBuffer OFFSETS;
+	private final IntBuffer ORDER;
+	private final IntBuffer TARGETS;
+	private final IntBuffer DEGREES;
+
+	private GraphSnapshot(IntBuffer ints, int size, int entries) {
+		this.SIZE = size;
+		this.ENTRIES = entries;
+		this.OFFSETS = slice(ints, HEADER_INTS, size + 1);
+		this.ORDER = slice(ints, HEADER_INTS + size + 1, entries);
+		this.TARGETS = slice(ints, HEADER_INTS + size + 1 + entries, entries);
+		this.DEGREES = slice(ints, HEADER_INTS + size + 1 + 2 * entries, size);
+	}
+
+	/**
+	 * Memory-maps a snapshot.
+	 *
+	 * @param filename String name and location of the snapshot
+	 * @return the snapshot
+	 * @throws IOException if the file can not be read, or is not a valid snapshot
+	 */
+	public static GraphSnapshot map(String filename) throws IOException {
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+			long length = channel.size();
+			if (length > Integer.MAX_VALUE) {
+				throw new IOException("Snapshot too large to map: " + filename);
+			}
+			if (length < HEADER_INTS * Integer.BYTES) {
+				throw new IOException("Not a graph snapshot: " + filename);
+			}
+			// the mapping stays valid once the channel is closed
+			MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			IntBuffer ints = bytes.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+			if (ints.get(0) != MAGIC) {
+				throw new IOException("Not a graph snapshot: " + filename);
+			}
+			if (ints.get(1) != VERSION) {
+				throw new IOException("Unsupported snapshot version " + ints.get(1) + ": " + filename);
+			}
+			int size = ints.get(2);
+			int entries = ints.get(3);
+			long expected = ((long) HEADER_INTS + size + 1 + 2L * entries + size) * Integer.BYTES;
+			if (size < 0 || entries < 0 || expected != length) {
+				throw new IOException("Truncated or corrupt snapshot: " + filename);
+			}
+			return new GraphSnapshot(ints, size, entries);
+		}
+	}
+
+	/**
+	 * Writes a snapshot of an original graph.
+	 *
+	 * @param filename String name and location of the snapshot
+	 * @param original the original graph
+	 * @throws IOException if the file can not be written
+	 */
+	public static void write(String filename, CSRGraph original) throws IOException {
+		int size = original.getSize();
+		int entries = original.getEntryCount();
+		long length = ((long) HEADER_INTS + size + 1 + 2L * entries + size) * Integer.BYTES;
+		if (length > Integer.MAX_VALUE) {
+			throw new IOException("Graph too large for a snapshot: " + length + " bytes");
+		}
+		ByteBuffer bytes = ByteBuffer.allocate((int) length).order(ByteOrder.LITTLE_ENDIAN);
+		bytes.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(entries);
+		for (int i = 0; i <= size; i++) {
+			bytes.putInt(i < size ? original.getStart(i) : entries);
+		}
+		for (int k = 0; k < entries; k++) {
+			bytes.putInt(original.getOrderedTarget(k));
+		}
+		for (int k = 0; k < entries; k++) {
+			bytes.putInt(original.getTarget(k));
+		}
+		for (int i = 0; i < size; i++) {
+			bytes.putInt(original.getDegree(i));
+		}
+		bytes.flip();
+		try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (bytes.hasRemaining()) {
+				channel.write(bytes);
+			}
+		}
+	}
+
+	/**
+	 * Converts a text edge list (see LinkedGraph.load) into a snapshot.
+	 *
+	 * @param textFilename String name and location of the edge list
+	 * @param snapshotFilename String name and location of the snapshot to write
+	 * @throws IOException if the edge list can not be read or the snapshot can not be written
+	 */
+	public static void convert(String textFilename, String snapshotFilename) throws IOException {
+		write(snapshotFilename, LinkedGraph.load(EdgeListReader.read(textFilename)).getOriginal());
+	}
+
+	public static void main(String... args) {
+		if (args.length != 2) {
+			System.out.println("Usage: GraphSnapshot <edge list> <snapshot>");
+			return;
+		}
+		try {
+			convert(args[0], args[1]);
+		} catch (IOException e) {
+			System.out.println("Snapshot not written: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return the number of nodes in the graph
+	 */
+	public int getSize() {
+		return this.SIZE;
+	}
+
+	/**
+	 * @return the total number of adjacency entries
+	 */
+	public int getEntryCount() {
+		return this.ENTRIES;
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the index of the first entry of the node's row
+	 */
+	public int getStart(int node) {
+		return this.OFFSETS.get(node);
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return one past the index of the last entry of the node's row
+	 */
+	public int getEnd(int node) {
+		return this.OFFSETS.get(node + 1);
+	}
+
+	/**
+	 * @param entry index of the entry, between getStart(node) and getEnd(node)
+	 * @return the neighbour at that entry, rows being in the order they were loaded
+	 */
+	public int getOrderedTarget(int entry) {
+		return this.ORDER.get(entry);
+	}
+
+	/**
+	 * @param entry index of the entry, between getStart(node) and getEnd(node)
+	 * @return the neighbour at that entry, rows being in ascending order
+	 */
+	public int getTarget(int entry) {
+		return this.TARGETS.get(entry);
+	}
+
+	/**
+	 * @param node index of the node
+	 * @return the number of neighbours of the node in the original graph
+	 */
+	public int getDegree(int node) {
+		return this.DEGREES.get(node);
+	}
+
+	/**
+	 * Copies the row offsets into an array.
+	 */
+	int[] copyOffsets() {
+		return copy(this.OFFSETS);
+	}
+
+	/**
+	 * Copies the neighbours, each row in load order, into an array.
+	 */
+	int[] copyOrder() {
+		return copy(this.ORDER);
+	}
+
+	/**
+	 * Copies the neighbours, each row sorted, into an array.
+	 */
+	int[] copyTargets() {
+		return copy(this.TARGETS);
+	}
+
+	/**
+	 * Copies the original degrees into an array.
+	 */
+	int[] copyDegrees() {
+		return copy(this.DEGREES);
+	}
+
+	private static int[] copy(IntBuffer buffer) {
+		int[] array = new int[buffer.capacity()];
+		buffer.duplicate().get(array);
+		return array;
+	}
+
+	private static IntBuffer slice(IntBuffer ints, int start, int length) {
+		IntBuffer view = ints.duplicate();
+		view.position(start).limit(start + length);
+		return view.slice();
+	}
+}
@@ -0,0 +1,165 @@
+package linkedgraph;
+
+import java.util.Arrays;
+
+/**
+ * Small open-addressing hash map from non-negative int keys to int values, used where a HashMap of boxed Integers
+ * would dominate the cost (e.g. superedge weights). Entries are added to, and only removed to undo an addition (see
+ * remove); missing keys read as 0.
+ * <br/>
+ * Iterate over the entries with capacity(), keyAt() and valueAt(); keyAt() returns EMPTY for unused slots.
+ */
+public class IntIntMap {
+
+	public static final int EMPTY = -1;
+
+	private int[] KEYS;
+	private int[] VALUES;
+	private int SIZE;
+
+	/**
+	 * @param expected the number of entries expected, used to size the table
+	 */
+	public IntIntMap(int expected) {
+		int capacity = 4;
+		while (capacity < expected * 2) {
+			capacity <<= 1;
+		}
+		this.KEYS = new int[capacity];
+		this.VALUES = new int[capacity];
+		Arrays.fill(this.KEYS, EMPTY);
+	}
+
+	/**
+	 * @param key the key to look up
+	 * @return the value held for the key, 0 if there is none
+	 */
+	public int get(int key) {
+		int mask = this.KEYS.length - 1;
+		for (int slot = hash(key) & mask; this.KEYS[slot] != EMPTY; slot = (slot + 1) & mask) {
+			if (this.KEYS[slot] == key) {
+				return this.VALUES[slot];
+			}
+		}
+		return 0;
+	}
+
+	/**
+	 * Adds to the value held for the key, inserting the key first if it is not there yet.
+	 *
+	 * @param key the key to add to
+	 * @param amount the amount to add to the value
+	 * @return True if the key was inserted, False if it was already there
+	 */
+	public boolean add(int key, int amount) {
+		int mask = this.KEYS.length - 1;
+		int slot = hash(key) & mask;
+		while (this.KEYS[slot] != EMPTY) {
+			if (this.KEYS[slot] == key) {
+				this.VALUES[slot] += amount;
+				return false;
+			}
+			slot = (slot + 1) & mask;
+		}
+		this.KEYS[slot] = key;
+		this.VALUES[slot] = amount;
+		this.SIZE++;
+		// keep the table at most half full
+		if (this.SIZE * 2 > this.KEYS.length) {
+			this.grow();
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a key and its value, shifting back the keys after it so that no probe sequence is broken.
+	 *
+	 * @param key the key to remove
+	 */
+	public void remove(int key) {
+		int mask = this.KEYS.length - 1;
+		int hole = hash(key) & mask;
+		while (this.KEYS[hole] != key) {
+			if (this.KEYS[hole] == EMPTY) {
+				return;
+			}
+			hole = (hole + 1) & mask;
+		}
+		for (int next = (hole + 1) & mask; this.KEYS[next] != EMPTY; next = (next + 1) & mask) {
+			int home = hash(this.KEYS[next]) & mask;
+			// move the key into the hole unless its home lies cyclically in (hole, next]
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				this.KEYS[hole] = this.KEYS[next];
+				this.VALUES[hole] = this.VALUES[next];
+				hole = next;
+			}
+		}
+		this.KEYS[hole] = EMPTY;
+		this.SIZE--;
+	}
+
+	/**
+	 * @return the number of keys held
+	 */
+	public int size() {
+		return this.SIZE;
+	}
+
+	/**
+	 * @return the number of slots in the table, for iterating with keyAt and valueAt
+	 */
+	public int capacity() {
+		return this.KEYS.length;
+	}
+
+	/**
+	 * @param slot index of the slot, less than capacity()
+	 * @return the key held in the slot, EMPTY if the slot is unused
+	 */
+	public int keyAt(int slot) {
+		return this.KEYS[slot];
+	}
+
+	/**
+	 * @param slot index of the slot, less than capacity()
+	 * @return the value held in the slot
+	 */
+	public int valueAt(int slot) {
+		return this.VALUES[slot];
+	}
+
+	/**
+	 * @return a copy of this map
+	 */
+	public IntIntMap copy() {
+		IntIntMap other = new IntIntMap(0);
+		other.KEYS = this.KEYS.clone();
+		other.VALUES = this.VALUES.clone();
+		other.SIZE = this.SIZE;
+		return other;
+	}
+
+	private void grow() {
+		int[] keys = this.KEYS;
+		int[] values = this.VALUES;
+		this.KEYS = new int[keys.length * 2];
+		this.VALUES = new int[values.length * 2];
+		Arrays.fill(this.KEYS, EMPTY);
+		int mask = this.KEYS.length - 1;
+		for (int i = 0; i < keys.length; i++) {
+			if (keys[i] != EMPTY) {
+				int slot = hash(keys[i]) & mask;
+				while (this.KEYS[slot] != EMPTY) {
+					slot = (slot + 1) & mask;
+				}
+				this.KEYS[slot] = keys[i];
+				this.VALUES[slot] = values[i];
+			}
+		}
+	}
+
+	private static int hash(int key) {
+		int h = key * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+}
@@ -0,0 +1,181 @@
+package linkedgraph;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed neighbourhoods of every node of the original graph, up to a fixed depth: the candidate merge partners
+ * of each node, as found by LinkedGraph.bfs(root, depth) before any merges.
+ * <br/>
+ * The candidates are held in CSR form: those of node i are TARGETS[OFFSETS[i]] .. TARGETS[OFFSETS[i + 1] - 1].
+ * By default each row is in the same order that LinkedGraph.bfs returns it in, so picking a candidate by index gives
+ * the same result as picking it from the search. Alternatively the rows can be sorted by original degree (ties
+ * keeping the search order), which puts the lowest degree candidate first.
+ * <br/>
+ * Building the index searches from every node, which is done in parallel. The size of the index is only known once
+ * every node has been searched, so building is split in two: measure counts the candidates of every node, which
+ * tells how much memory the index will take before any of it is allocated, and build fills the index in.
+ */
+public class KHopIndex {
+
+	private final int DEPTH;
+	private final boolean SORTED_BY_DEGREE;
+	private final int[] OFFSETS;
+	private final int[] TARGETS;
+
+	private KHopIndex(int depth, boolean sortedByDegree, int[] offsets, int[] targets) {
+		this.DEPTH = depth;
+		this.SORTED_BY_DEGREE = sortedByDegree;
+		this.OFFSETS = offsets;
+		this.TARGETS = targets;
+	}
+
+	/**
+	 * Counts the candidates of every node, searching from every node in parallel.
+	 *
+	 * @param original the original graph
+	 * @param depth the maximum number of edges between a node and its candidates
+	 * @return the number of candidates of each node
+	 */
+	public static int[] measure(CSRGraph original, int depth) {
+		ThreadLocal<BFSKernel> kernels = ThreadLocal.withInitial(BFSKernel::new);
+		int[] counts = new int[original.getSize()];
+		IntStream.range(0, original.getSize()).parallel().forEach(root -> {
+			counts[root] = kernels.get().searchOriginal(original, root, depth) - 1;
+		});
+		return counts;
+	}
+
+	/**
+	 * @param counts the number of candidates of each node, as returned by measure
+	 * @return the number of bytes an index with those counts takes up
+	 */
+	public static long getMemoryFootprint(int[] counts) {
+		return ((long) counts.length + 1 + getEntryCount(counts)) * Integer.BYTES;
+	}
+
+	/**
+	 * @param counts the number of candidates of each node, as returned by measure
+	 * @return the total number of candidates
+	 */
+	public static long getEntryCount(int[] counts) {
+		long entries = 0;
+		for (int count : counts) {
+			entries += count;
+		}
+		return entries;
+	}
+
+	/**
+	 * Builds the index, searching from every node in parallel.
+	 *
+	 * @param original the original graph
+	 * @param depth the maximum number of edges between a node and its candidates
+	 * @param counts the number of candidates of each node, as returned by measure for the same graph and depth
+	 * @param sortByDegree True to sort the candidates of each node by their original degree, False to keep them in
+	 *                     the order LinkedGraph.bfs returns them in
+	 * @return the index
+	 * @throws IllegalArgumentException if there are too many candidates to fit in an array
+	 */
+	public static KHopIndex build(CSRGraph original, int depth, int[] counts, boolean sortByDegree) {
+		long entries = getEntryCount(counts);
+		if (entries > Integer.MAX_VALUE - 8) {
+			throw new IllegalArgumentException("Too many candidates for a k-hop index: " + entries);
+		}
+		int size = original.getSize();
+		int[] offsets = new int[size + 1];
+		for (int i = 0; i < size; i++) {
+			offsets[i + 1] = offsets[i] + counts[i];
+		}
+		int[] targets = new int[(int) entries];
+		ThreadLocal<BFSKernel> kernels = ThreadLocal.withInitial(BFSKernel::new);
+		ThreadLocal<int[]> buffers = ThreadLocal.withInitial(() -> new int[size]);
+		ThreadLocal<long[]> keys = ThreadLocal.withInitial(() -> new long[size]);
+		IntStream.range(0, size).parallel().forEach(root -> {
+			BFSKernel kernel = kernels.get();
+			int[] buffer = buffers.get();
+			kernel.searchOriginal(original, root, depth);
+			int count = kernel.toLegacyOrder(buffer);
+			if (sortByDegree) {
+				// sort by degree, then by position, so that ties keep their order
+				long[] key = keys.get();
+				for (int i = 0; i < count; i++) {
+					key[i] = ((long) original.getDegree(buffer[i]) << 32) | i;
+				}
+				Arrays.sort(key, 0, count);
+				for (int i = 0; i < count; i++) {
+					targets[offsets[root] + i] = buffer[(int) key[i]];
+				}
+			} else {
+				System.arraycopy(buffer, 0, targets, offsets[root], count);
+			}
+		});
+		return new KHopIndex(depth, sortByDegree, offsets, targets);
+	}
+
+	/**
+	 * Measures and builds the index in one go.
+	 *
+	 * @param original the original graph
+	 * @param depth the maximum number of edges between a node and its candidates
+	 * @param sortByDegree True to sort the candidates of each node by their original degree
+	 * @return the index
+	 */
+	public static KHopIndex build(CSRGraph original, int depth, boolean sortByDegree) {
+		return build(original, depth, measure(original, depth), sortByDegree);
+	}
+
+	/**
+	 * @return the maximum number of edges between a node and its candidates
+	 */
+	public int getDepth() {
+		return this.DEPTH;
+	}
+
+	/**
+	 * @return True if the candidates of each node are sorted by original degree, False if they are in the order
+	 * LinkedGraph.bfs returns them in
+	 */
+	public boolean isSortedByDegree() {
+		return this.SORTED_BY_DEGREE;
+	}
+
+	/**
+	 * @param root index of the node
+	 * @return the index of the first candidate of the node
+	 */
+	public int getStart(int root) {
+		return this.OFFSETS[root];
+	}
+
+	/**
+	 * @param root index of the node
+	 * @return one past the index of the last candidate of the node
+	 */
+	public int getEnd(int root) {
+		return this.OFFSETS[root + 1];
+	}
+
+	/**
+	 * @param root index of the node
+	 * @return the number of candidates of the node
+	 */
+	public int getCount(int root) {
+		return this.OFFSETS[root + 1] - this.OFFSETS[root];
+	}
+
+	/**
+	 * @param entry index of the candidate, between getStart(root) and getEnd(root)
+	 * @return the candidate
+	 */
+	public int get(int entry) {
+		return this.TARGETS[entry];
+	}
+
+	/**
+	 * @return the number of bytes taken up by the arrays of this index
+	 */
+	public long getMemoryFootprint() {
+		return ((long) this.OFFSETS.length + this.TARGETS.length) * Integer.BYTES;
+	}
+}
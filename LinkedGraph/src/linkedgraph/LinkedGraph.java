@@ -3,9 +3,10 @@ package linkedgraph;
 import graph.Graph;
 
 // file input/output
-import java.io.File;
 import java.util.*;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
 
 // data structures
 // could probably replace all instances of arraylist with linked list
@@ -20,20 +21,93 @@ import java.io.IOException;
  */
 public class LinkedGraph implements Graph {
 
+	/**
+	 * The ways in which the fake edges introduced by merges can be tracked.
+	 * <br/>
+	 * FAKE_EDGES materialises every fake edge on the nodes it joins, which is the original behaviour.
+	 * SUPEREDGES only keeps the number of original edges within and between supernodes, see SuperedgeTable.
+	 * PARTITION only keeps the supernodes, and counts the fake links from them when asked, see PartitionFitness.
+	 * <br/>
+	 * The engines only replace the fake edge bookkeeping. Unless a graph merges without its adjacency list (see
+	 * clusterCopy), every engine still rebuilds the boxed adjacency rows a merge touches, as those rows give searches
+	 * over the merged graph their order.
+	 */
+	public enum MergeEngine {
+		FAKE_EDGES, SUPEREDGES, PARTITION
+	}
+
+	/**
+	 * The ways in which sampleNeighbour picks a node within k hops of a root.
+	 * <br/>
+	 * EXACT picks uniformly among the whole neighbourhood, exactly as picking at random from bfs(root, depth) does,
+	 * and draws the same numbers from the Random object. Its cost depends on the size of the neighbourhood, unless a
+	 * k-hop index is available.
+	 * RANDOM_WALK takes a random walk of at most k steps from the root. Its cost only depends on k, but the pick is
+	 * not uniform, see sampleNeighbour.
+	 */
+	public enum NeighbourSampling {
+		EXACT, RANDOM_WALK
+	}
+
+	// walks that end back on the root before sampleNeighbour falls back on an exact pick
+	private static final int WALK_ATTEMPTS = 16;
+
 	// set this to false to hide hashId when printing.
 	private final boolean SHOW_MEMORY = false;
 	/**
-	 * The list of all the vertices in the graph.
+	 * The list of all the vertices in the graph. Each node is only created once it is needed, see node().
 	 */
 	private Node[] NODES;
+	/**
+	 * Marks the nodes owned by this graph, as ROW_OWNER does for the rows of MATRIX: nodes are shared between a graph
+	 * and its checkpoints until one of them changes the node, see editableNode.
+	 */
+	private int[] NODE_OWNER;
+	/**
+	 * Tracks the supernode that each vertex has been merged into.
+	 */
+	private DisjointSet CLUSTERS;
+	/**
+	 * The superedges between supernodes, null unless the SUPEREDGES merge engine is used.
+	 */
+	private SuperedgeTable SUPEREDGES;
+	private MergeEngine ENGINE;
+	private NeighbourSampling SAMPLING;
+	/**
+	 * False if merges only update the supernodes and leave the adjacency list as it is, see clusterCopy.
+	 */
+	private boolean ADJACENCY;
 	/**
 	 * The list of all the edges in the graph.
+	 * Rows are shared between a graph and its copies until one of them changes the row, see editableRow.
 	 */
 	private ArrayList<ArrayList<Integer>> MATRIX;
 	/**
-	 * The list of all the edges in the graph.
+	 * The edges of the original, uncompressed graph. Immutable, and shared by every copy of this graph. Null while it
+	 * is out of date with the adjacency list, see original().
 	 */
-	private ArrayList<ArrayList<Integer>> ORIGINAL_MATRIX;
+	private CSRGraph ORIGINAL;
+	/**
+	 * Marks the rows of MATRIX owned by this graph: a row may only be changed in place if its entry matches TOKEN,
+	 * otherwise it may still be shared with another copy of the graph.
+	 */
+	private int[] ROW_OWNER;
+	private int TOKEN;
+	/**
+	 * Whether an entry of ROW_OWNER or NODE_OWNER may match TOKEN. A graph that owns no rows or nodes has nothing to
+	 * give up when it is copied, so deepCopy leaves it untouched.
+	 */
+	private boolean OWNER;
+	private static final AtomicInteger TOKENS = new AtomicInteger();
+	/**
+	 * BFS kernel of each thread, reused by every graph searched from that thread.
+	 */
+	private static final ThreadLocal<BFSKernel> KERNELS = ThreadLocal.withInitial(BFSKernel::new);
+	/**
+	 * Buffer of each thread for the neighbourhoods searched by bfs(root, depth) and sampleNeighbour, see
+	 * neighbourBuffer.
+	 */
+	private static final ThreadLocal<int[]> SAMPLES = ThreadLocal.withInitial(() -> new int[0]);
 	/**
 	 * The current size of the graph, after all the merges.
 	 */
@@ -43,14 +117,26 @@ public class LinkedGraph implements Graph {
 	 */
 	private int MAX_SIZE;
 
-	private boolean CACHE; // flag to cache BFS results
-
-	// a HashMap to store the results of computing BFS
-	private HashMap<String, List<Integer>> ORIGINAL_NEIGHBOURHOODS;
+	/**
+	 * Neighbourhoods of the original graph, shared by every copy of this graph. null unless caching is turned on.
+	 * Each entry holds the index of the first node at the full depth, followed by the nodes in the order the search
+	 * reached them, the root first.
+	 */
+	private NeighbourhoodCache NEIGHBOURHOODS;
+	/**
+	 * Precomputed neighbourhoods of the original graph, indexed by depth and shared by every copy of this graph. null
+	 * (as are its entries) unless an index has been set.
+	 */
+	private KHopIndex[] KHOP_INDICES;
 
 	// int array to store the original degree for every node in the original graph
 	private int[] ORIGINAL_DEGREE;
 
+	/**
+	 * Log of the changes made by merges since the first mark, null unless marks are being taken, see mark.
+	 */
+	private MergeJournal JOURNAL;
+
 	/**
 	 * Private constructor that constructs the required data for an empty
 	 * LinkedGraph, such as the size, adjacency list, default nodes.
@@ -61,24 +147,131 @@ public class LinkedGraph implements Graph {
 		this.SIZE = size;
 		this.MAX_SIZE = size;
 		this.MATRIX = new ArrayList<ArrayList<Integer>>(size);
-		this.ORIGINAL_MATRIX = new ArrayList<ArrayList<Integer>>(size);
 		this.NODES = new Node[size];
-		for (int i = 0; i < this.NODES.length; i++) {
-			// populate nodes with default references
-			this.NODES[i] = new Node(i);
-			// populate adjacency list with empty lists
-			this.MATRIX.add(new ArrayList<Integer>());
-			this.ORIGINAL_MATRIX.add(new ArrayList<Integer>());
-		}
-		this.CACHE = false;
-		// init empty HashMap
-		ORIGINAL_NEIGHBOURHOODS = new HashMap<>();
-		// init empty degree array
-		ORIGINAL_DEGREE = new int[this.NODES.length];
+		this.CLUSTERS = new DisjointSet(size);
+		this.ENGINE = MergeEngine.FAKE_EDGES;
+		this.SAMPLING = NeighbourSampling.EXACT;
+		this.ADJACENCY = true;
+		this.ROW_OWNER = new int[size];
+		this.NODE_OWNER = new int[size];
+		this.TOKEN = TOKENS.incrementAndGet();
 	}
 
 	public void setCache(boolean cache){
-		this.CACHE = cache;
+		this.setCacheBudget(cache ? NeighbourhoodCache.DEFAULT_BUDGET : 0);
+	}
+
+	/**
+	 * Turns on caching of BFS results, shared by this graph and every copy made of it from now on. Neighbourhoods are
+	 * cached as found in the original graph, and are only used on a merged graph while they are still exact for it,
+	 * see cachedBfs.
+	 *
+	 * @param budget the maximum number of bytes the cached neighbourhoods may take up, 0 to turn caching off
+	 */
+	public void setCacheBudget(long budget) {
+		this.setNeighbourhoodCache(budget > 0 ? new NeighbourhoodCache(budget) : null);
+	}
+
+	/**
+	 * Sets the cache of BFS results, shared by this graph and every copy made of it from now on, as setCacheBudget
+	 * does, but with a cache that may be shared with other graphs of the same original graph (see GraphRegistry).
+	 *
+	 * @param cache the cache to use, null to turn caching off
+	 */
+	public void setNeighbourhoodCache(NeighbourhoodCache cache) {
+		this.NEIGHBOURHOODS = cache;
+	}
+
+	/**
+	 * Sets the k-hop index to use for searches of the index's depth, by this graph and every copy made of it from now
+	 * on. The index must have been built from this graph's original graph.
+	 *
+	 * @param index the index to use
+	 */
+	public void setKHopIndex(KHopIndex index) {
+		if (this.KHOP_INDICES == null || this.KHOP_INDICES.length <= index.getDepth()) {
+			this.KHOP_INDICES = Arrays.copyOf(this.KHOP_INDICES == null ? new KHopIndex[0] : this.KHOP_INDICES,
+					index.getDepth() + 1);
+		}
+		this.KHOP_INDICES[index.getDepth()] = index;
+	}
+
+	/**
+	 * Returns the k-hop index for the depth, as long as this graph has not been merged: the index holds the
+	 * neighbourhoods of the original graph, which are the neighbourhoods of this graph until it is merged.
+	 *
+	 * @param depth the maximum number of edges away from the root of the neighbourhoods
+	 * @return the index for the depth, null if there is none or this graph has been merged
+	 */
+	public KHopIndex getKHopIndex(int depth) {
+		return this.SIZE == this.MAX_SIZE ? this.khopIndex(depth) : null;
+	}
+
+	/**
+	 * @return the k-hop index for the depth, null if there is none
+	 */
+	private KHopIndex khopIndex(int depth) {
+		if (this.KHOP_INDICES == null || depth >= this.KHOP_INDICES.length) {
+			return null;
+		}
+		return this.KHOP_INDICES[depth];
+	}
+
+	/**
+	 * @return the original, uncompressed graph, which is immutable
+	 */
+	public CSRGraph getOriginal() {
+		return this.original();
+	}
+
+	/**
+	 * @return the cache of BFS results used by this graph, null if caching is turned off
+	 */
+	public NeighbourhoodCache getNeighbourhoodCache() {
+		return this.NEIGHBOURHOODS;
+	}
+
+	/**
+	 * Sets the way merges keep track of fake edges. Copies made with deepCopy use the same engine. Must be set before
+	 * any merges are made.
+	 *
+	 * @param engine the merge engine to use
+	 */
+	public void setMergeEngine(MergeEngine engine) {
+		if (this.SIZE != this.MAX_SIZE) {
+			System.err.println("Merge engine can not be changed after merging.");
+			return;
+		}
+		this.ENGINE = engine;
+		if (engine == MergeEngine.SUPEREDGES) {
+			this.SUPEREDGES = new SuperedgeTable(this.original(), this.CLUSTERS);
+			this.SUPEREDGES.setJournal(this.JOURNAL);
+		} else {
+			this.SUPEREDGES = null;
+		}
+	}
+
+	/**
+	 * @return the way merges keep track of fake edges
+	 */
+	public MergeEngine getMergeEngine() {
+		return this.ENGINE;
+	}
+
+	/**
+	 * Sets the way sampleNeighbour picks a node. Copies made with deepCopy use the same way.
+	 *
+	 * @param sampling the way to pick nodes
+	 */
+	public void setNeighbourSampling(NeighbourSampling sampling) {
+		this.SAMPLING = sampling;
+	}
+
+	/**
+	 * @return the way sampleNeighbour picks a node
+	 */
+	public NeighbourSampling getNeighbourSampling() {
+		return this.SAMPLING;
 	}
 
 	/**
@@ -102,19 +295,66 @@ public class LinkedGraph implements Graph {
 	 * @param to Integer value of the index of the second node
 	 */
 	public void addEdge(int from, int to) {
-		int aFrom = this.NODES[from].getId();
-		int aTo = this.NODES[to].getId();
+		int aFrom = this.CLUSTERS.getId(from);
+		int aTo = this.CLUSTERS.getId(to);
 		// if the edge is not already in the adjacency list, add it
 		if (!this.MATRIX.get(aFrom).contains(aTo)) {
-			this.MATRIX.get(aFrom).add(aTo);
-			this.ORIGINAL_MATRIX.get(aFrom).add(aTo);
+			this.editableRow(aFrom).add(aTo);
 		}
 		if (!this.MATRIX.get(aTo).contains(aFrom)) {
-			this.MATRIX.get(aTo).add(aFrom);
-			this.ORIGINAL_MATRIX.get(aTo).add(aFrom);
+			this.editableRow(aTo).add(aFrom);
+		}
+		// the original graph is immutable, so it is rebuilt to include the new edges once it is next needed, rather
+		// than for every edge added
+		this.ORIGINAL = null;
+		if (this.NEIGHBOURHOODS != null) {
+			// any cached neighbourhoods are out of date
+			this.NEIGHBOURHOODS = new NeighbourhoodCache(this.NEIGHBOURHOODS.getBudget());
+		}
+		this.KHOP_INDICES = null;
+	}
+
+	/**
+	 * @return the original graph, rebuilt first if edges have been added since it was last built
+	 */
+	private CSRGraph original() {
+		if (this.ORIGINAL == null) {
+			this.buildOriginal();
+		}
+		return this.ORIGINAL;
+	}
+
+	/**
+	 * Rebuilds the original graph and the original degrees from the current adjacency list. Only meaningful before
+	 * any merges have been made.
+	 */
+	private void buildOriginal() {
+		this.ORIGINAL = CSRGraph.fromAdjacency(this.MATRIX);
+		this.ORIGINAL_DEGREE = new int[this.MAX_SIZE];
+		for (int i = 0; i < this.MAX_SIZE; i++) {
+			this.ORIGINAL_DEGREE[i] = this.ORIGINAL.getDegree(i);
 		}
 	}
 
+	/**
+	 * Returns the adjacency list of a node so that it can be changed in place. Rows are shared between a graph and
+	 * its copies (see deepCopy), so a shared row is copied into this graph first.
+	 *
+	 * @param index index of the (super)node
+	 * @return the adjacency list of the node, owned by this graph
+	 */
+	private ArrayList<Integer> editableRow(int index) {
+		if (this.ROW_OWNER[index] != this.TOKEN) {
+			if (this.JOURNAL != null) {
+				this.logRow(index);
+			}
+			this.MATRIX.set(index, new ArrayList<Integer>(this.MATRIX.get(index)));
+			this.ROW_OWNER[index] = this.TOKEN;
+			this.OWNER = true;
+		}
+		return this.MATRIX.get(index);
+	}
+
 	/**
 	 * Loads and returns a LinkedGraph with an existing list of edges.
 	 *
@@ -125,10 +365,11 @@ public class LinkedGraph implements Graph {
 		LinkedGraph other = new LinkedGraph(m.size());
 		// populate the adjacency matrix/list
 		for (int i = 0; i < other.MAX_SIZE; i++) {
-			other.MATRIX.set(i, new ArrayList<Integer>(m.get(i)));
-			other.ORIGINAL_MATRIX.set(i, new ArrayList<Integer>(m.get(i)));
-			other.ORIGINAL_DEGREE[i] = other.ORIGINAL_MATRIX.get(i).size();
+			other.MATRIX.add(new ArrayList<Integer>(m.get(i)));
+			other.ROW_OWNER[i] = other.TOKEN;
 		}
+		other.OWNER = true;
+		other.buildOriginal();
 		return other;
 	}
 
@@ -143,37 +384,112 @@ public class LinkedGraph implements Graph {
 	 * 0 1   <br/>
 	 * 0 2   <br/>
 	 * 1 2   <br/>
+	 * Files ending in GraphSnapshot.EXTENSION are memory-mapped as binary snapshots instead.
 	 *
 	 * @param filename String name and location of the file
 	 * @return
 	 */
 	public static LinkedGraph load(String filename) {
-		File f = new File(filename);
-		Scanner s = null;
 		try {
-			s = new Scanner(f);
+			if (filename.endsWith(GraphSnapshot.EXTENSION)) {
+				return load(GraphSnapshot.map(filename));
+			}
+			return load(EdgeListReader.read(filename));
 		} catch (IOException e) {
 			System.out.println("Graph not loaded properly: " + e.getMessage());
 			return null;
 		}
-		int SIZE = s.nextInt();
-		// set default data
-		LinkedGraph other = new LinkedGraph(SIZE);
+	}
+
+	/**
+	 * Loads and returns a LinkedGraph from an edge list that has been read from a file, see load(String).
+	 *
+	 * @param edges the edge list
+	 * @return the graph of the edge list
+	 */
+	public static LinkedGraph load(EdgeListReader edges) {
+		LinkedGraph other = new LinkedGraph(edges.getSize());
 		// populate the adjacency matrix/list
-		while (s.hasNext()) {
-			int from = s.nextInt();
-			int to = s.nextInt();
-			other.addEdge(from, to);
+		for (int i = 0; i < other.MAX_SIZE; i++) {
+			ArrayList<Integer> row = new ArrayList<Integer>(edges.getEnd(i) - edges.getStart(i));
+			for (int k = edges.getStart(i); k < edges.getEnd(i); k++) {
+				row.add(edges.getTarget(k));
+			}
+			other.MATRIX.add(row);
+			other.ROW_OWNER[i] = other.TOKEN;
 		}
-		//populate the degree array!
+		other.OWNER = true;
+		// build the original graph and populate the degree array!
+		other.buildOriginal();
+		return other;
+	}
+
+	/**
+	 * Loads and returns a LinkedGraph from a memory-mapped graph snapshot, see GraphSnapshot.
+	 *
+	 * @param snapshot the snapshot
+	 * @return the graph of the snapshot
+	 */
+	public static LinkedGraph load(GraphSnapshot snapshot) {
+		LinkedGraph other = new LinkedGraph(snapshot.getSize());
+		// populate the adjacency matrix/list
 		for (int i = 0; i < other.MAX_SIZE; i++) {
-			other.ORIGINAL_DEGREE[i] = other.ORIGINAL_MATRIX.get(i).size();
+			ArrayList<Integer> row = new ArrayList<Integer>(snapshot.getEnd(i) - snapshot.getStart(i));
+			for (int k = snapshot.getStart(i); k < snapshot.getEnd(i); k++) {
+				row.add(snapshot.getOrderedTarget(k));
+			}
+			other.MATRIX.add(row);
+			other.ROW_OWNER[i] = other.TOKEN;
 		}
+		other.OWNER = true;
+		// the original graph and degrees are already in the snapshot
+		other.ORIGINAL = CSRGraph.fromSnapshot(snapshot);
+		other.ORIGINAL_DEGREE = snapshot.copyDegrees();
 		return other;
 	}
 
 	public Node get(int index) {
-		return this.NODES[this.NODES[index].getId()];
+		return this.node(this.CLUSTERS.getId(index));
+	}
+
+	/**
+	 * Returns the node at the index, creating it first if this graph has not needed it yet.
+	 *
+	 * @param index index of the node
+	 * @return the node at the index
+	 */
+	private Node node(int index) {
+		if (this.NODES[index] == null) {
+			if (this.JOURNAL != null) {
+				// rolling back removes the node again
+				this.logNode(index);
+			}
+			this.NODES[index] = new Node(index);
+			this.NODE_OWNER[index] = this.TOKEN;
+			this.OWNER = true;
+		}
+		return this.NODES[index];
+	}
+
+	/**
+	 * Returns the node at the index so that it can be changed, copying it into this graph first if it may still be
+	 * shared with a checkpoint of this graph.
+	 *
+	 * @param index index of the node
+	 * @return the node at the index, owned by this graph
+	 */
+	private Node editableNode(int index) {
+		Node node = this.node(index);
+		if (this.NODE_OWNER[index] != this.TOKEN) {
+			if (this.JOURNAL != null) {
+				this.logNode(index);
+			}
+			node = node.copy();
+			this.NODES[index] = node;
+			this.NODE_OWNER[index] = this.TOKEN;
+			this.OWNER = true;
+		}
+		return node;
 	}
 
 	/**
@@ -183,10 +499,15 @@ public class LinkedGraph implements Graph {
 	 * @return True if the nodes have been merged into the same supernode, False otherwise
 	 */
 	public boolean sameCluster(int from, int to) {
-		int secondary = this.NODES[from].getId();
-		int primary = this.NODES[to].getId();
+		return this.CLUSTERS.sameCluster(from, to);
+	}
 
-		return secondary == primary;
+	/**
+	 * @param node index of the node
+	 * @return the number of original nodes in the supernode holding the node
+	 */
+	public int getClusterSize(int node) {
+		return this.CLUSTERS.getClusterSize(node);
 	}
 
 	/*
@@ -195,119 +516,294 @@ public class LinkedGraph implements Graph {
 	 */
 	public void merge(int from, int to) {
 
-		int secondary = this.NODES[from].getId();
-		int primary = this.NODES[to].getId();
+		int secondary = this.CLUSTERS.getId(from);
+		int primary = this.CLUSTERS.getId(to);
 
 		// if already in the same supernode, return
 		if (primary == secondary) {
 			System.out.println(from + " to " + to);
 			return;
 		}
+		if (this.JOURNAL != null) {
+			this.JOURNAL.push(MergeJournal.MERGE);
+		}
+
+		switch (this.ENGINE) {
+			case SUPEREDGES:
+				// the superedge weights stand in for the fake edges
+				this.SUPEREDGES.merge(secondary, primary);
+				break;
+			case PARTITION:
+				// the fake edges are counted from the supernodes once all merges are made
+				this.CLUSTERS.union(secondary, primary);
+				break;
+			default:
+				this.mergeFakeEdges(secondary, primary);
+				break;
+		}
+
+		if (!this.ADJACENCY) {
+			this.SIZE--;
+			return;
+		}
+
+		ArrayList<Integer> primaryCurrentNeighbors = new ArrayList<>(this.MATRIX.get(primary));
+		ArrayList<Integer> secondaryCurrentNeighbors = new ArrayList<>(this.MATRIX.get(secondary));
+
+		Set<Integer> newPrimary = new HashSet<Integer>();
+
+		// removes edges to each other, since the nodes are now the same supernode
+		if (primaryCurrentNeighbors.contains(secondary)) {
+			primaryCurrentNeighbors.remove(primaryCurrentNeighbors.indexOf(secondary));
+		}
+		if (secondaryCurrentNeighbors.contains(primary)) {
+			secondaryCurrentNeighbors.remove(secondaryCurrentNeighbors.indexOf(primary));
+		}
+
+		// combine neighbors
+		newPrimary.addAll(secondaryCurrentNeighbors);
+		newPrimary.addAll(primaryCurrentNeighbors);
+
+		// set new neighbor list to A+B-{to, from}
+		if (this.JOURNAL != null) {
+			this.logRow(primary);
+		}
+		this.MATRIX.set(primary, new ArrayList<>(newPrimary));
+		this.ROW_OWNER[primary] = this.TOKEN;
+		this.OWNER = true;
 
+		// updates neighbors' neighbors to include primary (to)
+		for (int neighbor : newPrimary) {
+			ArrayList<Integer> neighborRow = this.editableRow(neighbor);
+			// remove if secondary exists
+			if (neighborRow.contains(secondary)) {
+				neighborRow.remove(neighborRow.indexOf(secondary));
+			}
+			// add if primary doesn't exist
+			if (!neighborRow.contains(primary)) {
+				neighborRow.add(primary);
+			}
+		}
+		// updates size
+		this.SIZE--;
+	}
+
+	/**
+	 * Merges two supernodes the original way, materialising the fake edges introduced by the merge on every node
+	 * involved.
+	 *
+	 * @param secondary id of the supernode being absorbed
+	 * @param primary id of the supernode absorbing it
+	 */
+	private void mergeFakeEdges(int secondary, int primary) {
 		// get all nodes already merged with the secondary node
-		Set<Integer> secondaryMerges = new HashSet<>(this.NODES[secondary].getMergeNodes());
+		Set<Integer> secondaryMerges = new HashSet<>(this.node(secondary).getMergeNodes());
 		// add the secondary node itself to the nodes to be merged
 		secondaryMerges.add(secondary);
 		// do the same for the primary node (which we are merging into)
-		Set<Integer> primaryMerges = new HashSet<>(this.NODES[primary].getMergeNodes());
+		Set<Integer> primaryMerges = new HashSet<>(this.node(primary).getMergeNodes());
 		primaryMerges.add(primary);
 
 		// if there wasn't already an edge between the primary and secondary node, add a fake edge to each
-		if (!this.ORIGINAL_MATRIX.get(primary).contains(secondary)) {
-			this.NODES[primary].addFakeEdge(secondary);
-			this.NODES[secondary].addFakeEdge(primary);
+		if (!this.original().hasEdge(primary, secondary)) {
+			this.editableNode(primary).addFakeEdge(secondary);
+			this.editableNode(secondary).addFakeEdge(primary);
 		}
 
-		// update the reference for the secondary node to reflect being absorbed into the primary node
-		this.NODES[secondary].setReference(this.NODES[primary]);
-
-		ArrayList<Integer> primaryCurrentNeighbors = new ArrayList<>(this.MATRIX.get(primary));
-		ArrayList<Integer> secondaryCurrentNeighbors = new ArrayList<>(this.MATRIX.get(secondary));
-		ArrayList<Integer> primaryOriginalNeighbors = new ArrayList<>(this.ORIGINAL_MATRIX.get(primary));
-		ArrayList<Integer> secondaryOriginalNeighbors = new ArrayList<>(this.ORIGINAL_MATRIX.get(secondary));
-
+		// update the supernode of the secondary node to reflect being absorbed into the primary node
+		this.CLUSTERS.union(secondary, primary);
 
 		// for each of the nodes in the secondary (super)node that needs to be merged
 		for (int secondaryMerge : secondaryMerges) {
 			// for each of the nodes held in the primary (super)node that we are merging into
 			for (int primaryMerge : primaryMerges) {
 				// get the original set of neighbours for the secondary node
-				HashSet<Integer> secondaryMergeOriginalNeighbors = new HashSet<>(this.ORIGINAL_MATRIX.get(secondaryMerge));
+				HashSet<Integer> secondaryMergeOriginalNeighbors = this.originalNeighbours(secondaryMerge);
 				// add in all nodes connected by a fake edge to the list of neighbours
-				secondaryMergeOriginalNeighbors.addAll(this.NODES[secondaryMerge].getFakeEdges());
+				this.node(secondaryMerge).collectFakeEdges(secondaryMergeOriginalNeighbors);
 				// remove any nodes that are already adjacent to the node we are merging into
-				secondaryMergeOriginalNeighbors.removeAll(this.ORIGINAL_MATRIX.get(primaryMerge));
+				this.removeOriginalNeighbours(secondaryMergeOriginalNeighbors, primaryMerge);
 				// remove the node we are merging into from the neighbours
 				secondaryMergeOriginalNeighbors.remove(primaryMerge);
 				// all of the edges and fake edges to the node being merged into which
 				// did not already exist to the primary node are added as fake edges
-				this.NODES[primaryMerge].addFakeEdges(secondaryMergeOriginalNeighbors);
+				this.editableNode(primaryMerge).addFakeEdges(secondaryMergeOriginalNeighbors);
 
 				// add the corresponding fake edge to each of the secondary node's neighbours
 				for (int secondaryMergeNeighbor : secondaryMergeOriginalNeighbors) {
-					this.NODES[secondaryMergeNeighbor].addFakeEdge(primaryMerge);
+					this.editableNode(secondaryMergeNeighbor).addFakeEdge(primaryMerge);
 				}
 
 				// repeat the above process to add fake edges from the neighbours of the primary node to the secondary node
-				HashSet<Integer> primaryMergeOriginalNeighbors = new HashSet<>(this.ORIGINAL_MATRIX.get(primaryMerge));
-				primaryMergeOriginalNeighbors.addAll(this.NODES[primaryMerge].getFakeEdges());
-				primaryMergeOriginalNeighbors.removeAll(this.ORIGINAL_MATRIX.get(secondaryMerge));
+				HashSet<Integer> primaryMergeOriginalNeighbors = this.originalNeighbours(primaryMerge);
+				this.node(primaryMerge).collectFakeEdges(primaryMergeOriginalNeighbors);
+				this.removeOriginalNeighbours(primaryMergeOriginalNeighbors, secondaryMerge);
 				primaryMergeOriginalNeighbors.remove(secondaryMerge);
-				this.NODES[secondaryMerge].addFakeEdges(primaryMergeOriginalNeighbors);
+				this.editableNode(secondaryMerge).addFakeEdges(primaryMergeOriginalNeighbors);
 				for (int primaryMergeNeighbor : primaryMergeOriginalNeighbors) {
-					this.NODES[primaryMergeNeighbor].addFakeEdge(secondaryMerge);
+					this.editableNode(primaryMergeNeighbor).addFakeEdge(secondaryMerge);
 				}
 			}
 		}
 
 		// once all the fake edges have been calculated, absorbs the secondary node(s) into the primary node
-		this.NODES[primary].absorb(secondaryMerges);
+		this.editableNode(primary).absorb(secondaryMerges);
+	}
 
-		Set<Integer> newPrimary = new HashSet<Integer>();
+	/**
+	 * Logs the node at the index, about to be replaced, in the journal.
+	 *
+	 * @param index index of the node
+	 */
+	private void logNode(int index) {
+		this.JOURNAL.push(index);
+		this.JOURNAL.push(this.NODE_OWNER[index]);
+		this.JOURNAL.pushObject(this.NODES[index]);
+		this.JOURNAL.push(MergeJournal.NODE);
+	}
 
-		// removes edges to each other, since the nodes are now the same supernode
-		if (primaryCurrentNeighbors.contains(secondary)) {
-			primaryCurrentNeighbors.remove(primaryCurrentNeighbors.indexOf(secondary));
-		}
-		if (secondaryCurrentNeighbors.contains(primary)) {
-			secondaryCurrentNeighbors.remove(secondaryCurrentNeighbors.indexOf(primary));
+	/**
+	 * Logs the row of a node, about to be replaced, in the journal.
+	 *
+	 * @param index index of the (super)node
+	 */
+	private void logRow(int index) {
+		this.JOURNAL.push(index);
+		this.JOURNAL.push(this.ROW_OWNER[index]);
+		this.JOURNAL.pushObject(this.MATRIX.get(index));
+		this.JOURNAL.push(MergeJournal.ROW);
+	}
+
+	/**
+	 * Starts logging the changes merges make to this graph, if it is not already, and returns the position of the
+	 * log that rollbackTo can undo the merges back to. So, rather than copying the original graph for every
+	 * chromosome, a single graph can be merged, rolled back to a mark and merged again.
+	 * <br/>
+	 * Rows of the adjacency list and nodes are logged the way they are shared with copies: taking a mark gives up the
+	 * ownership of all of them, so the first merge to change a row or node after the mark copies it, logging the one
+	 * it replaces, and later changes are made in place on the copy. Rolling back puts the logged rows and nodes back,
+	 * however many edges and fake edges were changed on them. The supernodes and superedges are logged change by
+	 * change.
+	 * <br/>
+	 * Copies of this graph do not inherit the log. Logging makes finding supernodes slightly slower, see DisjointSet,
+	 * so it should be stopped with endJournal once no more rollbacks are needed.
+	 *
+	 * @return the mark of the current state of this graph
+	 */
+	public int mark() {
+		if (this.JOURNAL == null) {
+			this.JOURNAL = new MergeJournal();
+			this.CLUSTERS.setJournal(this.JOURNAL);
+			if (this.SUPEREDGES != null) {
+				this.SUPEREDGES.setJournal(this.JOURNAL);
+			}
 		}
+		// rows and nodes changed from now on are copied first, see above
+		this.TOKEN = TOKENS.incrementAndGet();
+		this.OWNER = false;
+		return this.JOURNAL.size();
+	}
 
-		// combine neighbors
-		newPrimary.addAll(secondaryCurrentNeighbors);
-		newPrimary.addAll(primaryCurrentNeighbors);
+	/**
+	 * Undoes every merge made since the mark was taken, leaving this graph as it was then. Marks taken after it are
+	 * no longer valid; marks taken before it still are.
+	 *
+	 * @param mark a mark returned by mark since logging was last started
+	 */
+	public void rollbackTo(int mark) {
+		if (this.JOURNAL == null || mark > this.JOURNAL.size()) {
+			throw new IllegalStateException("No such mark: " + mark);
+		}
+		MergeJournal journal = this.JOURNAL;
+		while (journal.size() > mark) {
+			int kind = journal.pop();
+			switch (kind) {
+				case MergeJournal.MERGE:
+					this.SIZE++;
+					break;
+				case MergeJournal.ROW: {
+					@SuppressWarnings("unchecked")
+					ArrayList<Integer> row = (ArrayList<Integer>) journal.popObject();
+					int owner = journal.pop();
+					int index = journal.pop();
+					this.MATRIX.set(index, row);
+					this.ROW_OWNER[index] = owner;
+					break;
+				}
+				case MergeJournal.NODE: {
+					Node node = (Node) journal.popObject();
+					int owner = journal.pop();
+					int index = journal.pop();
+					this.NODES[index] = node;
+					this.NODE_OWNER[index] = owner;
+					break;
+				}
+				case MergeJournal.UNION:
+					this.CLUSTERS.undo(journal);
+					break;
+				default:
+					this.SUPEREDGES.undo(kind, journal);
+					break;
+			}
+		}
+	}
 
-		// set new neighbor list to A+B-{to, from}
-		this.MATRIX.set(primary, new ArrayList<>(newPrimary));
+	/**
+	 * Stops logging the changes merges make to this graph, forgetting every mark.
+	 */
+	public void endJournal() {
+		this.JOURNAL = null;
+		this.CLUSTERS.setJournal(null);
+		if (this.SUPEREDGES != null) {
+			this.SUPEREDGES.setJournal(null);
+		}
+	}
 
-		// updates neighbors' neighbors to include primary (to)
-		for (int neighbor : newPrimary) {
-			// remove if secondary exists
-			if (this.MATRIX.get(neighbor).contains(secondary)) {
-				this.MATRIX.get(neighbor).remove(
-						this.MATRIX.get(neighbor).indexOf(secondary)
-				);
-			}
-			// add if primary doesn't exist
-			if (!this.MATRIX.get(neighbor).contains(primary)) {
-				this.MATRIX.get(neighbor).add(primary);
-			}
+	/**
+	 * @param node index of the node
+	 * @return a new set holding the neighbours of the node in the original graph
+	 */
+	private HashSet<Integer> originalNeighbours(int node) {
+		HashSet<Integer> neighbours = new HashSet<>();
+		CSRGraph original = this.original();
+		for (int k = original.getStart(node); k < original.getEnd(node); k++) {
+			neighbours.add(original.getTarget(k));
 		}
-		// updates size
-		this.SIZE--;
+		return neighbours;
+	}
+
+	/**
+	 * Removes every node adjacent to the given node in the original graph from the set.
+	 *
+	 * @param nodes the set to remove from
+	 * @param node index of the node whose original neighbours are removed
+	 */
+	private void removeOriginalNeighbours(Set<Integer> nodes, int node) {
+		CSRGraph original = this.original();
+		nodes.removeIf(other -> original.hasEdge(node, other));
 	}
 
 	public int totalFakeLinks() {
+		if (this.ENGINE == MergeEngine.SUPEREDGES) {
+			return (int) this.SUPEREDGES.getFakeLinks();
+		}
+		if (this.ENGINE == MergeEngine.PARTITION) {
+			return (int) PartitionFitness.fakeLinks(this.original(), this.CLUSTERS);
+		}
 		int total = 0;
 		for (Node node : this.NODES) {
-			total += node.getFakeEdges().size();
+			// nodes that were never created have no fake edges
+			if (node != null) {
+				total += node.getFakeEdgeCount();
+			}
 		}
 		return total / 2;
 	}
 
 	public int printFakeLinks() {
 		int total = 0;
-		for (Node node : this.NODES) {
+		for (int i = 0; i < this.MAX_SIZE; i++) {
+			Node node = this.node(i);
 			total += node.getFakeEdges().size();
 			System.out.println(node.ID + ": " + node.getFakeEdges());
 		}
@@ -318,8 +814,8 @@ public class LinkedGraph implements Graph {
 		System.err.println("method 'fakeLinks' disabled.");
 		return -1;
 		/*
-		int aFrom = this.NODES[from].getId();
-		int aTo = this.NODES[to].getId();
+		int aFrom = this.CLUSTERS.getId(from);
+		int aTo = this.CLUSTERS.getId(to);
 		if (aFrom == aTo) {
 			return -1;
 		}
@@ -330,13 +826,13 @@ public class LinkedGraph implements Graph {
 		int mergedCount = 0;
 		List<Integer> mergedFrom = this.NODES[aFrom].getMergeNodes();
 		for (int node : mergedFrom) {
-			if (!this.ORIGINAL_MATRIX.get(aTo).contains(node)) {
+			if (!this.ORIGINAL.hasEdge(aTo, node)) {
 				mergedCount++;
 			}
 		}
 		List<Integer> mergedTo = this.NODES[aTo].getMergeNodes();
 		for (int node : mergedTo) {
-			if (!this.ORIGINAL_MATRIX.get(aFrom).contains(node)) {
+			if (!this.ORIGINAL.hasEdge(aFrom, node)) {
 				mergedCount++;
 			}
 		}
@@ -367,22 +863,67 @@ public class LinkedGraph implements Graph {
 	}
 
 	public LinkedGraph deepCopy() {
-		// create default object
-		LinkedGraph other = LinkedGraph.load(this.MATRIX);
+		// create default object, sharing the immutable original graph and (until either graph changes them) the rows
+		// of the adjacency list, rather than copying every list
+		LinkedGraph other = new LinkedGraph(this.MAX_SIZE);
+		other.MATRIX.addAll(this.MATRIX);
+		other.ORIGINAL = this.original();
+		other.ORIGINAL_DEGREE = this.ORIGINAL_DEGREE;
+		// from now on neither graph owns the shared rows and nodes; a graph that owns none, such as the original graph
+		// copied for every evaluation, is only read, so it can be copied by several threads at once
+		if (this.OWNER) {
+			this.TOKEN = TOKENS.incrementAndGet();
+			this.OWNER = false;
+		}
 		// update size with current size
 		other.SIZE = this.SIZE;
-		// update reference of each node
-		for (int i = 0; i < this.MAX_SIZE; i++) {
-			int index = this.NODES[i].getId();
-			other.NODES[i].setReference(other.NODES[index]);
+		// update the supernode of each node
+		other.CLUSTERS.copyFrom(this.CLUSTERS);
+		other.NEIGHBOURHOODS = this.NEIGHBOURHOODS;
+		other.KHOP_INDICES = this.KHOP_INDICES;
+		other.ENGINE = this.ENGINE;
+		other.SAMPLING = this.SAMPLING;
+		other.ADJACENCY = this.ADJACENCY;
+		if (this.SUPEREDGES != null) {
+			other.SUPEREDGES = this.SUPEREDGES.copy(other.CLUSTERS);
 		}
 		return other;
 	}
 
+	/**
+	 * Copies this graph together with the merges made on it. deepCopy is only meant for graphs that have not been
+	 * merged yet, since it leaves out the fake edges and merged nodes held by the nodes; this copy carries them over
+	 * as well, so that merging can carry on from the copy exactly as it would have from this graph. Like the rows of
+	 * the adjacency list, the nodes are shared by both graphs until either of them changes a node.
+	 *
+	 * @return a copy of this graph in its current state
+	 */
+	public LinkedGraph checkpoint() {
+		// deepCopy also takes the ownership of the shared nodes away from this graph
+		LinkedGraph other = this.deepCopy();
+		System.arraycopy(this.NODES, 0, other.NODES, 0, this.MAX_SIZE);
+		return other;
+	}
+
+	/**
+	 * Copies this graph for merges that only need to keep track of the supernodes, such as when evaluating a
+	 * chromosome that never looks at the adjacency of the compressed graph. The adjacency list of the copy stays as
+	 * it is in this graph however many merges are made, so bfs, distance and the adjacency getters must not be relied
+	 * on once the copy has been merged; the supernodes, sameCluster and totalFakeLinks stay correct.
+	 *
+	 * @return a copy of this graph whose merges leave the adjacency list untouched
+	 */
+	public LinkedGraph clusterCopy() {
+		LinkedGraph other = this.deepCopy();
+		other.ADJACENCY = false;
+		return other;
+	}
+
 	public void print() {
+		List<List<Integer>> members = this.clusterMembers();
 		for (int i = 0; i < this.MAX_SIZE; i++) {
 			// only print out nodes that haven't been merged into an other node
-			if (this.NODES[i].getId() == i) {
+			if (this.CLUSTERS.getId(i) == i) {
 				ArrayList<String> neighbors = new ArrayList<String>();
 				// adding to arraylist to make use of String.join
 				for (Integer iNeighbor : this.MATRIX.get(i)) {
@@ -390,10 +931,12 @@ public class LinkedGraph implements Graph {
 				}
 				String vertice = "{(" + i;
 				if (this.SHOW_MEMORY) {
-					vertice += "," + Integer.toHexString(this.NODES[i].hashCode());
+					vertice += "," + Integer.toHexString(this.node(i).hashCode());
 				}
-				if (this.NODES[i].getMergeNodes().size() > 0) {
-					vertice += ": " + this.NODES[i].getMergeNodes();
+				if (members.get(i).size() > 1) {
+					List<Integer> merged = new ArrayList<>(members.get(i));
+					merged.remove(Integer.valueOf(i));
+					vertice += ": " + merged;
 				}
 				vertice += ") -> " + String.join(",", neighbors) + "}";
 				System.out.println(vertice);
@@ -404,20 +947,18 @@ public class LinkedGraph implements Graph {
 	public String toString() {
 		// addings each vertice to arraylist to make use of String.join
 		ArrayList<String> returnValue = new ArrayList<String>();
+		List<List<Integer>> members = this.clusterMembers();
 		for (int i = 0; i < this.MAX_SIZE; i++) {
 			// only print out nodes that haven't been merged into an other node
-			if (this.NODES[i].getId() == i) {
+			if (this.CLUSTERS.getId(i) == i) {
 				ArrayList<String> neighbors = new ArrayList<String>();
 				// adding to arraylist to make use of String.join
 				for (Integer iNeighbor : this.MATRIX.get(i)) {
 					neighbors.add(String.valueOf(iNeighbor));
 				}
-				ArrayList<Integer> cluster = new ArrayList<>(this.NODES[i].getMergeNodes());
-				cluster.add(i);
-				Collections.sort(cluster);
-				String vertice = "{" + cluster;
+				String vertice = "{" + members.get(i);
 				if (this.SHOW_MEMORY) {
-					vertice += ":" + Integer.toHexString(this.NODES[i].hashCode());
+					vertice += ":" + Integer.toHexString(this.node(i).hashCode());
 				}
 				vertice += " -> " + String.join(",", neighbors) + "}";
 				returnValue.add(vertice);
@@ -426,64 +967,185 @@ public class LinkedGraph implements Graph {
 		return "{" + String.join(",", returnValue) + "}";
 	}
 
+	/**
+	 * @return the nodes held in each supernode in ascending order, indexed by the id of the supernode
+	 */
+	private List<List<Integer>> clusterMembers() {
+		List<List<Integer>> members = new ArrayList<>(this.MAX_SIZE);
+		for (int i = 0; i < this.MAX_SIZE; i++) {
+			members.add(new ArrayList<Integer>());
+		}
+		for (int i = 0; i < this.MAX_SIZE; i++) {
+			members.get(this.CLUSTERS.getId(i)).add(i);
+		}
+		return members;
+	}
+
 	public String toGraphViz() {
 		// need particular format for this
 		return null;
 	}
 
 	public List<Integer> bfs(int root, int depth) {
+		int[] buffer = this.neighbourBuffer();
+		int count = this.bfs(root, depth, buffer);
+		List<Integer> neighbours = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			neighbours.add(buffer[i]);
+		}
+		return neighbours;
+	}
 
-		// if the graph has not changed size, save the neighbourhoods for given (root, depth) and pass them back
-		if (this.CACHE && this.SIZE == this.MAX_SIZE) {
-			// check if the root,depth combo exists in the ORIGINAL_NEIGHBOURHOODS already
-			String key = String.valueOf(root) +","+String.valueOf(depth);
-			List<Integer> neighbours = ORIGINAL_NEIGHBOURHOODS.get(key);
-			if (neighbours != null) {
-				return neighbours;
+	/**
+	 * Same as bfs(root, depth), writing the neighbourhood into a buffer rather than allocating a list for it. The
+	 * neighbourhood is written in the order the original search of this class returned it in, that of a HashSet of
+	 * the supernodes reached (see BFSKernel.toLegacyOrder).
+	 *
+	 * @param root the root node of the search
+	 * @param depth the maximum number of edges away from the root to search
+	 * @param out the buffer to write into, with room for at least getCurrentSize() - 1 nodes
+	 * @return the number of nodes written into the buffer
+	 */
+	public int bfs(int root, int depth, int[] out) {
+		KHopIndex index = this.khopIndex(depth);
+		if (index != null && !index.isSortedByDegree() && this.isUnmerged(index, root)) {
+			// for the same reason as in cachedBfs, the neighbourhood is still the one in the index
+			int count = index.getCount(root);
+			for (int i = 0; i < count; i++) {
+				out[i] = index.get(index.getStart(root) + i);
+			}
+			return count;
+		}
+		if (this.NEIGHBOURHOODS != null) {
+			int count = this.cachedBfs(root, depth, out);
+			if (count >= 0) {
+				return count;
 			}
 		}
+		BFSKernel kernel = KERNELS.get();
+		kernel.search(this.MATRIX, this.CLUSTERS, root, depth);
+		return kernel.toLegacyOrder(out);
+	}
 
-		// if the graph has changed or we haven't computed this value yet, compute it.
-		int rootValue = this.NODES[root].getId();
-		Set<Integer> explored = new HashSet<>();
-		Queue<WrappedNode> toExplore = new LinkedList<>();
-		// initialize root as what needs to be explored
-		explored.add(rootValue);
-		toExplore.add(new WrappedNode(rootValue, 0));
-		// explore while there are items to explore
-		while (!toExplore.isEmpty()) {
-			WrappedNode at = toExplore.remove();
-			int atIndex = this.NODES[at.index].getId();
-			int atDistance = at.distance;
-			// if we need are not at max depth, add the neighbours of this node to explore
-			if (atDistance < depth) {
-				List<Integer> neighbors = this.MATRIX.get(atIndex);
-				// explore neighboring nodes
-				for (int index : neighbors) {
-					int iValue = this.NODES[index].getId();
-					//if not previously visited, queue up the item
-					if (!explored.contains(iValue)) {
-						toExplore.add(new WrappedNode(iValue, atDistance + 1));
-						explored.add(iValue);
-					}
-				}
+	/**
+	 * Passes every (super)node within depth edges of the root, other than the root itself, to the action, in the
+	 * order the search reaches them. Allocates nothing, but unlike bfs(root, depth) the order is that of the search.
+	 *
+	 * @param root the root node of the search
+	 * @param depth the maximum number of edges away from the root to search
+	 * @param action the action to pass each node to
+	 */
+	public void bfs(int root, int depth, IntConsumer action) {
+		BFSKernel kernel = KERNELS.get();
+		int count = -1;
+		if (this.NEIGHBOURHOODS != null) {
+			// the order does not matter here, so the nodes at the full depth may be in any supernode
+			int[] neighbourhood = this.originalNeighbourhood(root, depth);
+			if (this.areSingletons(neighbourhood, 1, neighbourhood[0])) {
+				count = kernel.load(neighbourhood, 1, neighbourhood[0], neighbourhood.length, this.CLUSTERS);
 			}
 		}
-		List<Integer> returnValue = new ArrayList<>(explored);
-		returnValue.remove(returnValue.indexOf(rootValue));
+		if (count < 0) {
+			count = kernel.search(this.MATRIX, this.CLUSTERS, root, depth);
+		}
+		for (int i = 1; i < count; i++) {
+			action.accept(kernel.get(i));
+		}
+	}
 
-		// if the graph hasn't changed and we made it here, save the value before we return it!
-		if (this.CACHE && this.SIZE == this.MAX_SIZE) {
-			String key = String.valueOf(root) +","+String.valueOf(depth);
-			ORIGINAL_NEIGHBOURHOODS.put(key, returnValue);
+	/**
+	 * Answers bfs(root, depth, out) from the cached neighbourhood of the root in the original graph, if it is still
+	 * exact for this graph.
+	 * <br/>
+	 * Merges only bring nodes closer together, and only change the adjacency of the supernodes they involve and of
+	 * their neighbours. So if no node of the original neighbourhood has been merged, no adjacency list the search
+	 * looks at has changed, and the search reaches exactly the same nodes in exactly the same order as it did in the
+	 * original graph.
+	 * <br/>
+	 * If only nodes at the full depth have been merged, the search still follows the same adjacency lists, reaching
+	 * the supernodes of those nodes instead, unless a merge has reordered the lists (see BFSKernel.loadInOrder). The
+	 * cached nodes are then mapped to their supernodes, each supernode being kept where it is first reached. If a node
+	 * nearer the root has been merged, the cached neighbourhood is not used.
+	 *
+	 * @param root the root node of the search
+	 * @param depth the maximum number of edges away from the root to search
+	 * @param out the buffer to write into, with room for at least getCurrentSize() - 1 nodes
+	 * @return the number of nodes written into the buffer, or -1 if the cached neighbourhood can not be used
+	 */
+	private int cachedBfs(int root, int depth, int[] out) {
+		int[] neighbourhood = this.originalNeighbourhood(root, depth);
+		if (!this.areSingletons(neighbourhood, 1, neighbourhood[0])) {
+			return -1;
+		}
+		BFSKernel kernel = KERNELS.get();
+		if (this.areSingletons(neighbourhood, neighbourhood[0], neighbourhood.length)) {
+			return kernel.toLegacyOrder(neighbourhood, 1, neighbourhood.length, out);
+		}
+		if (kernel.loadInOrder(neighbourhood, 1, neighbourhood[0], neighbourhood.length, this.CLUSTERS) < 0) {
+			return -1;
 		}
+		return kernel.toLegacyOrder(out);
+	}
 
-		return returnValue;
+	/**
+	 * Returns the neighbourhood of the root in the original graph from the cache, searching and caching it first if
+	 * needed. See NEIGHBOURHOODS for its layout.
+	 */
+	private int[] originalNeighbourhood(int root, int depth) {
+		int[] neighbourhood = this.NEIGHBOURHOODS.get(root, depth);
+		if (neighbourhood == null) {
+			BFSKernel kernel = KERNELS.get();
+			int count = kernel.searchOriginal(this.original(), root, depth);
+			int frontier = count;
+			while (frontier > 1 && kernel.getDepth(frontier - 1) == depth) {
+				frontier--;
+			}
+			neighbourhood = new int[count + 1];
+			neighbourhood[0] = frontier + 1;
+			for (int i = 0; i < count; i++) {
+				neighbourhood[i + 1] = kernel.get(i);
+			}
+			this.NEIGHBOURHOODS.put(root, depth, neighbourhood);
+		}
+		return neighbourhood;
+	}
+
+	/**
+	 * @return True if neither the root nor any node of its neighbourhood in the index has been merged, False otherwise
+	 */
+	private boolean isUnmerged(KHopIndex index, int root) {
+		if (this.SIZE == this.MAX_SIZE) {
+			return true;
+		}
+		if (this.CLUSTERS.getClusterSize(root) != 1) {
+			return false;
+		}
+		for (int k = index.getStart(root); k < index.getEnd(root); k++) {
+			if (this.CLUSTERS.getClusterSize(index.get(k)) != 1) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return True if none of nodes[start] .. nodes[end - 1] has been merged, False otherwise
+	 */
+	private boolean areSingletons(int[] nodes, int start, int end) {
+		if (this.SIZE == this.MAX_SIZE) {
+			return true;
+		}
+		for (int i = start; i < end; i++) {
+			if (this.CLUSTERS.getClusterSize(nodes[i]) != 1) {
+				return false;
+			}
+		}
+		return true;
 	}
 
 	public int distance(int from, int to) {
-		int aFrom = this.NODES[from].getId();
-		int aTo = this.NODES[to].getId();
+		int aFrom = this.CLUSTERS.getId(from);
+		int aTo = this.CLUSTERS.getId(to);
 
 		if (aFrom == aTo) {
 			return 0;
@@ -497,14 +1159,14 @@ public class LinkedGraph implements Graph {
 		toExplore.add(new WrappedNode(aFrom, 0));
 		while (!toExplore.isEmpty()) {
 			WrappedNode current = toExplore.remove();
-			int currentIndex = this.NODES[current.index].getId();
+			int currentIndex = this.CLUSTERS.getId(current.index);
 			int currentDistance = current.distance;
 			// if we're where we want to be, return the distance
 			List<Integer> neigh = this.MATRIX.get(currentIndex);
 			//System.out.println("Found "+neigh.size()+" neighbors for "+currentIndex+" current distance "+currentDistance+".");
 			// explore neighboring nodes
 			for (int index : neigh) {
-				int iValue = this.NODES[index].getId();
+				int iValue = this.CLUSTERS.getId(index);
 				if (iValue == aTo && (current.distance + 1) < shortest) {
 					shortest = current.distance + 1;
 				}
@@ -533,7 +1195,7 @@ public class LinkedGraph implements Graph {
 	 */
 	public List<Integer> randomAddBFS(int root, int depth, Random r){
 		// if the graph has changed or we haven't computed this value yet, compute it.
-		int rootValue = this.NODES[root].getId();
+		int rootValue = this.CLUSTERS.getId(root);
 		Set<Integer> explored = new HashSet<>();
 		Queue<WrappedNode> toExplore = new LinkedList<>();
 		// initialize root as what needs to be explored
@@ -542,7 +1204,7 @@ public class LinkedGraph implements Graph {
 		// explore while there are items to explore
 		while (!toExplore.isEmpty()) {
 			WrappedNode at = toExplore.remove();
-			int atIndex = this.NODES[at.index].getId();
+			int atIndex = this.CLUSTERS.getId(at.index);
 			int atDistance = at.distance;
 			// if we need are not at max depth, add the neighbours of this node to explore
 			if (atDistance < depth) {
@@ -554,13 +1216,13 @@ public class LinkedGraph implements Graph {
 				// explore neighboring nodes
 				for (int i = 0; i < neighbors.size(); i++) {
 					if (bitMap.charAt(i) == '1') {
-						int iValue = this.NODES[neighbors.get(i)].getId();
+						int iValue = this.CLUSTERS.getId(neighbors.get(i));
 						// if it's a self-loop, pick either the one before or the one after
 						if (iValue == rootValue) {
 							if (i-1 >= 0) {
-								iValue = this.NODES[neighbors.get(i-1)].getId();
+								iValue = this.CLUSTERS.getId(neighbors.get(i-1));
 							} else if (i+1 < neighbors.size()) {
-								iValue = this.NODES[neighbors.get(i+1)].getId();
+								iValue = this.CLUSTERS.getId(neighbors.get(i+1));
 							}
 						}
 						if (!explored.contains(iValue)) {
@@ -577,6 +1239,79 @@ public class LinkedGraph implements Graph {
 		return returnValue;
 	}
 
+	/**
+	 * Same as randomAddBFS(root, depth, r), writing the neighbourhood into a buffer rather than allocating a list for
+	 * it. Draws the same numbers from r, and writes the neighbourhood in the same order.
+	 *
+	 * @param root the root node of the search
+	 * @param depth the maximum number of edges away from the root to search
+	 * @param r the Random object to be used for the random inclusion
+	 * @param out the buffer to write into, with room for at least getCurrentSize() - 1 nodes
+	 * @return the number of nodes written into the buffer
+	 */
+	public int randomAddBFS(int root, int depth, Random r, int[] out) {
+		BFSKernel kernel = KERNELS.get();
+		kernel.randomSearch(this.MATRIX, this.CLUSTERS, root, depth, r);
+		return kernel.toLegacyOrder(out);
+	}
+
+	/**
+	 * Picks a random (super)node within depth edges of the root, other than the root itself, in the way set by
+	 * setNeighbourSampling.
+	 * <br/>
+	 * With EXACT, every node of the neighbourhood is equally likely, and the pick is the same as
+	 * bfs(root, depth).get(r.nextInt(size)) for the same Random object.
+	 * <br/>
+	 * With RANDOM_WALK, a walk length is picked uniformly between 1 and depth, and the walk takes that many steps.
+	 * Each step proposes a uniformly random entry of the current supernode's adjacency list, and moves there with
+	 * probability min(1, degree(current) / degree(proposed)), otherwise stays put (Metropolis-Hastings, which keeps
+	 * the walk from being drawn to hubs: on a connected graph its stationary distribution is uniform). The node the
+	 * walk ends on is always within depth edges of the root, and every node within depth edges has a chance of being
+	 * picked, but nodes closer to the root are more likely than with EXACT. A walk that ends back on the root is
+	 * retried; after WALK_ATTEMPTS of those the node is picked exactly instead.
+	 *
+	 * @param root the root node
+	 * @param depth the maximum number of edges between the root and the picked node
+	 * @param r the Random object to pick with
+	 * @return the picked node, or -1 if there are no nodes within depth edges of the root
+	 */
+	public int sampleNeighbour(int root, int depth, Random r) {
+		if (this.SAMPLING == NeighbourSampling.RANDOM_WALK && depth > 0) {
+			int rootValue = this.CLUSTERS.getId(root);
+			if (this.MATRIX.get(rootValue).isEmpty()) {
+				return -1;
+			}
+			for (int attempt = 0; attempt < WALK_ATTEMPTS; attempt++) {
+				int length = 1 + r.nextInt(depth);
+				int at = rootValue;
+				for (int step = 0; step < length; step++) {
+					List<Integer> neighbours = this.MATRIX.get(at);
+					if (neighbours.isEmpty()) {
+						break;
+					}
+					int next = this.CLUSTERS.getId(neighbours.get(r.nextInt(neighbours.size())));
+					// Metropolis-Hastings: only move to a node of higher degree with probability degree(at) / degree(next)
+					int nextDegree = this.MATRIX.get(next).size();
+					if (nextDegree <= neighbours.size() || r.nextInt(nextDegree) < neighbours.size()) {
+						at = next;
+					}
+				}
+				if (at != rootValue) {
+					return at;
+				}
+			}
+		}
+		KHopIndex index = this.getKHopIndex(depth);
+		// an index sorted by degree holds the neighbourhood, but not in the order bfs returns it in
+		if (index != null && !index.isSortedByDegree()) {
+			int count = index.getCount(root);
+			return count == 0 ? -1 : index.get(index.getStart(root) + r.nextInt(count));
+		}
+		int[] neighbours = this.neighbourBuffer();
+		int count = this.bfs(root, depth, neighbours);
+		return count == 0 ? -1 : neighbours[r.nextInt(count)];
+	}
+
 	/**
 	 * Helper method for the RandomAdd method of neighbourhood selection. Creates a random binary string to determine
 	 * neighbour inclusion. This string is guaranteed to be non-zero / contain at least one '1'.
@@ -599,6 +1334,21 @@ public class LinkedGraph implements Graph {
 		return sNum;
 	}
 
+	/**
+	 * Returns the buffer of this thread for a neighbourhood of this graph, growing it first if it is too small. The
+	 * buffer is only good until the next call from the same thread.
+	 *
+	 * @return the buffer, with room for every node of this graph
+	 */
+	private int[] neighbourBuffer() {
+		int[] buffer = SAMPLES.get();
+		if (buffer.length < this.MAX_SIZE) {
+			buffer = new int[this.MAX_SIZE];
+			SAMPLES.set(buffer);
+		}
+		return buffer;
+	}
+
 	// add a method to get adjacency info directly for methods which avoid BFS
 	public List<Integer> getAdjacentNodes(int node){
 //		// get adjacency info for the given node
@@ -607,7 +1357,7 @@ public class LinkedGraph implements Graph {
 		// return a reference to the actual adjacency info
 		// DO NOT TOUCH THIS
 		// does this feel very insecure? yes. are we just looking to see if avoiding copying will speed stuff up? yes.
-		return this.MATRIX.get(this.NODES[node].getId());
+		return this.MATRIX.get(this.CLUSTERS.getId(node));
 	}
 
 	/**
@@ -616,6 +1366,7 @@ public class LinkedGraph implements Graph {
 	 * @return
 	 */
 	public int getOriginalDegree(int node){
+		this.original();
 		return this.ORIGINAL_DEGREE[node];
 	}
 
@@ -626,7 +1377,7 @@ public class LinkedGraph implements Graph {
 	 * @return
 	 */
 	public int getCurrentDegree(int node){
-		int nodeID = this.NODES[node].getId();
+		int nodeID = this.CLUSTERS.getId(node);
 		return this.MATRIX.get(nodeID).size();
 	}
 
@@ -0,0 +1,82 @@
+package linkedgraph;
+
+import java.util.Arrays;
+
+/**
+ * Log of the changes merges make to a LinkedGraph and the structures it holds, so that they can be undone, see
+ * LinkedGraph.mark and LinkedGraph.rollbackTo.
+ * <br/>
+ * The log is a stack of ints, with a stack of objects alongside it for the rows, nodes and maps that a change
+ * replaced. Each record pushes its arguments first and its kind last, so that popping a record gives its kind before
+ * its arguments; the structure that wrote the record pops the arguments back off in reverse order when undoing it.
+ * The position of a mark is the number of ints on the stack.
+ */
+class MergeJournal {
+
+	/**
+	 * A merge was made: the current size of the graph went down by one.
+	 */
+	static final int MERGE = 1;
+	/**
+	 * A row of the adjacency list was replaced, by a copy or a merged row: index, owner of the old row; the old row.
+	 */
+	static final int ROW = 2;
+	/**
+	 * A node was replaced by a copy, or created: index, owner of the old node; the old node, null if there was none.
+	 */
+	static final int NODE = 3;
+	/**
+	 * Two sets of a DisjointSet were joined: the entries of both roots as they were, see DisjointSet.undo.
+	 */
+	static final int UNION = 4;
+	/**
+	 * Superedge weights were added to a map, see SuperedgeTable.undo.
+	 */
+	static final int SUPEREDGE_WEIGHTS = 5;
+	/**
+	 * The superedges and internal edges of two supernodes were replaced, see SuperedgeTable.undo.
+	 */
+	static final int SUPEREDGE_ROOTS = 6;
+
+	private int[] INTS;
+	private int INT_COUNT;
+	private Object[] OBJECTS;
+	private int OBJECT_COUNT;
+
+	MergeJournal() {
+		this.INTS = new int[256];
+		this.OBJECTS = new Object[64];
+	}
+
+	/**
+	 * @return the number of ints in the log, which is the position of a mark
+	 */
+	int size() {
+		return this.INT_COUNT;
+	}
+
+	void push(int value) {
+		if (this.INT_COUNT == this.INTS.length) {
+			this.INTS = Arrays.copyOf(this.INTS, this.INTS.length * 2);
+		}
+		this.INTS[this.INT_COUNT++] = value;
+	}
+
+	int pop() {
+		return this.INTS[--this.INT_COUNT];
+	}
+
+	void pushObject(Object value) {
+		if (this.OBJECT_COUNT == this.OBJECTS.length) {
+			this.OBJECTS = Arrays.copyOf(this.OBJECTS, this.OBJECTS.length * 2);
+		}
+		this.OBJECTS[this.OBJECT_COUNT++] = value;
+	}
+
+	Object popObject() {
+		Object value = this.OBJECTS[--this.OBJECT_COUNT];
+		// let go of the replaced row, node or map
+		this.OBJECTS[this.OBJECT_COUNT] = null;
+		return value;
+	}
+}
@@ -0,0 +1,241 @@
+package linkedgraph;
+
+import java.util.Arrays;
+
+/**
+ * Bounded cache of neighbourhoods, keyed by (root, depth) packed into a single long.
+ * <br/>
+ * Entries are found through an open-addressing table of longs, so no key objects are created. The cache holds at
+ * most its budget of bytes (as estimated by the size of the cached arrays plus a fixed overhead per entry); when a
+ * new entry does not fit, entries are evicted with the CLOCK algorithm: every lookup marks its entry as referenced,
+ * and the clock hand sweeps over the entries clearing those marks, evicting the first entry that has not been
+ * referenced since the last sweep. This approximates evicting the least recently used entry without reordering
+ * anything on a hit.
+ * <br/>
+ * The cache is shared by a graph and all of its copies, possibly across threads, so every method is synchronized.
+ * The cached arrays must not be changed once they have been put into the cache.
+ */
+public class NeighbourhoodCache {
+
+	/**
+	 * Default budget, in bytes.
+	 */
+	public static final long DEFAULT_BUDGET = 64L * 1024 * 1024;
+	/**
+	 * Estimate of the bytes used by an entry besides its int values: the array header, the key, the reference to
+	 * the array and its slots in the tables.
+	 */
+	private static final int ENTRY_OVERHEAD = 48;
+
+	private final long BUDGET;
+	private long USED;
+	/**
+	 * Hash table of entry indices, offset by one so that 0 marks an empty slot. Linear probing.
+	 */
+	private int[] INDEX;
+	private long[] KEYS;
+	private int[][] VALUES;
+	private boolean[] REFERENCED;
+	private int COUNT;
+	private int HAND;
+
+	private long HITS;
+	private long MISSES;
+	private long EVICTIONS;
+
+	/**
+	 * @param budget the maximum number of bytes the cached neighbourhoods may take up
+	 */
+	public NeighbourhoodCache(long budget) {
+		this.BUDGET = budget;
+		this.INDEX = new int[64];
+		this.KEYS = new long[16];
+		this.VALUES = new int[16][];
+		this.REFERENCED = new boolean[16];
+	}
+
+	/**
+	 * @param root the root node of the neighbourhood
+	 * @param depth the depth of the neighbourhood
+	 * @return the key of the neighbourhood
+	 */
+	public static long key(int root, int depth) {
+		return ((long) root << 32) | (depth & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * @param root the root node of the neighbourhood
+	 * @param depth the depth of the neighbourhood
+	 * @return the cached neighbourhood, null if it is not in the cache
+	 */
+	public synchronized int[] get(int root, int depth) {
+		int slot = this.find(key(root, depth));
+		if (this.INDEX[slot] == 0) {
+			this.MISSES++;
+			return null;
+		}
+		int entry = this.INDEX[slot] - 1;
+		this.REFERENCED[entry] = true;
+		this.HITS++;
+		return this.VALUES[entry];
+	}
+
+	/**
+	 * Caches a neighbourhood, evicting other neighbourhoods if needed to stay within the budget. Neighbourhoods that
+	 * are larger than the whole budget are not cached.
+	 *
+	 * @param root the root node of the neighbourhood
+	 * @param depth the depth of the neighbourhood
+	 * @param neighbourhood the neighbourhood, which must not be changed afterwards
+	 */
+	public synchronized void put(int root, int depth, int[] neighbourhood) {
+		long cost = cost(neighbourhood);
+		if (cost > this.BUDGET) {
+			return;
+		}
+		long key = key(root, depth);
+		int slot = this.find(key);
+		if (this.INDEX[slot] != 0) {
+			// already cached, e.g. by another thread
+			return;
+		}
+		while (this.USED + cost > this.BUDGET) {
+			this.evict();
+		}
+		if (this.COUNT == this.KEYS.length) {
+			this.growEntries();
+		}
+		int entry = this.COUNT++;
+		this.KEYS[entry] = key;
+		this.VALUES[entry] = neighbourhood;
+		this.REFERENCED[entry] = false;
+		this.USED += cost;
+		if (this.COUNT * 2 > this.INDEX.length) {
+			this.rehash(this.INDEX.length * 2);
+		} else {
+			this.INDEX[this.find(key)] = entry + 1;
+		}
+	}
+
+	/**
+	 * @return the maximum number of bytes the cached neighbourhoods may take up
+	 */
+	public long getBudget() {
+		return this.BUDGET;
+	}
+
+	/**
+	 * @return the number of lookups that found their neighbourhood
+	 */
+	public synchronized long getHits() {
+		return this.HITS;
+	}
+
+	/**
+	 * @return the number of lookups that did not find their neighbourhood
+	 */
+	public synchronized long getMisses() {
+		return this.MISSES;
+	}
+
+	/**
+	 * @return the number of neighbourhoods evicted to stay within the budget
+	 */
+	public synchronized long getEvictions() {
+		return this.EVICTIONS;
+	}
+
+	/**
+	 * @return the estimated number of bytes used by the cached neighbourhoods
+	 */
+	public synchronized long getMemoryFootprint() {
+		return this.USED;
+	}
+
+	/**
+	 * @return the number of cached neighbourhoods
+	 */
+	public synchronized int size() {
+		return this.COUNT;
+	}
+
+	private static long cost(int[] neighbourhood) {
+		return ENTRY_OVERHEAD + (long) neighbourhood.length * Integer.BYTES;
+	}
+
+	/**
+	 * Evicts one entry, chosen by the clock hand. The last entry is moved into the freed position so that the
+	 * entries stay packed.
+	 */
+	private void evict() {
+		if (this.HAND >= this.COUNT) {
+			this.HAND = 0;
+		}
+		while (this.REFERENCED[this.HAND]) {
+			this.REFERENCED[this.HAND] = false;
+			this.HAND = (this.HAND + 1) % this.COUNT;
+		}
+		int victim = this.HAND;
+		this.USED -= cost(this.VALUES[victim]);
+		this.EVICTIONS++;
+		this.remove(this.find(this.KEYS[victim]));
+		int last = --this.COUNT;
+		if (victim != last) {
+			this.KEYS[victim] = this.KEYS[last];
+			this.VALUES[victim] = this.VALUES[last];
+			this.REFERENCED[victim] = this.REFERENCED[last];
+			this.INDEX[this.find(this.KEYS[victim])] = victim + 1;
+		}
+		this.VALUES[last] = null;
+	}
+
+	/**
+	 * @return the slot holding the key, or the empty slot where it would be inserted
+	 */
+	private int find(long key) {
+		int mask = this.INDEX.length - 1;
+		int slot = hash(key) & mask;
+		while (this.INDEX[slot] != 0 && this.KEYS[this.INDEX[slot] - 1] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	/**
+	 * Empties a slot of the hash table, shifting back the entries after it so that no probe sequence is broken.
+	 */
+	private void remove(int slot) {
+		int mask = this.INDEX.length - 1;
+		int hole = slot;
+		int next = (hole + 1) & mask;
+		while (this.INDEX[next] != 0) {
+			int home = hash(this.KEYS[this.INDEX[next] - 1]) & mask;
+			// move the entry into the hole unless its home lies cyclically in (hole, next]
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				this.INDEX[hole] = this.INDEX[next];
+				hole = next;
+			}
+			next = (next + 1) & mask;
+		}
+		this.INDEX[hole] = 0;
+	}
+
+	private void growEntries() {
+		int capacity = this.KEYS.length * 2;
+		this.KEYS = Arrays.copyOf(this.KEYS, capacity);
+		this.VALUES = Arrays.copyOf(this.VALUES, capacity);
+		this.REFERENCED = Arrays.copyOf(this.REFERENCED, capacity);
+	}
+
+	private void rehash(int capacity) {
+		this.INDEX = new int[capacity];
+		for (int entry = 0; entry < this.COUNT; entry++) {
+			this.INDEX[this.find(this.KEYS[entry])] = entry + 1;
+		}
+	}
+
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
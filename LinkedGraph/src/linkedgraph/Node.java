@@ -6,29 +6,29 @@ import java.util.LinkedList;
 import java.util.Set;
 
 /**
- * Node class that holds a reference to it's actual value
+ * A vertex of a LinkedGraph, holding the nodes merged into it and its fake edges. Which supernode a node belongs to is
+ * tracked by the DisjointSet of the graph.
  *
  * @author ar14rk
  */
 public class Node {
 
-	private Node REFERENCE;
 	public final int ID;
 	private Set<Integer> FAKE_EDGES;
 	private Set<Integer> MERGED_NODES;
 
 	/**
+	 * The sets of merged nodes and fake edges are only created once they are needed, since most nodes of a copied
+	 * graph never take part in a merge.
+	 *
 	 * @param id the index of value of the node
 	 */
 	public Node(int id) {
 		this.ID = id;
-		this.REFERENCE = this;
-		this.MERGED_NODES = new HashSet<>();
-		this.FAKE_EDGES = new HashSet<>();
 	}
 
 	/**
-	 * This method will only copy the object's value, not the reference.
+	 * This method will only copy the object's value, not the merged nodes or fake edges.
 	 *
 	 * @param other the node object to copy
 	 */
@@ -36,84 +36,92 @@ public class Node {
 		this(other.ID);
 	}
 
+	/**
+	 * Copies this node together with the nodes merged into it and its fake edges, which the copy constructor leaves
+	 * out.
+	 *
+	 * @return a copy of this node
+	 */
+	public Node copy() {
+		Node other = new Node(this.ID);
+		if (this.MERGED_NODES != null) {
+			other.MERGED_NODES = new HashSet<>(this.MERGED_NODES);
+		}
+		if (this.FAKE_EDGES != null) {
+			other.FAKE_EDGES = new HashSet<>(this.FAKE_EDGES);
+		}
+		return other;
+	}
+
 	public void absorb(int node) {
+		if (this.MERGED_NODES == null) {
+			this.MERGED_NODES = new HashSet<>();
+		}
 		this.MERGED_NODES.add(node);
 	}
 
 	public void absorb(Set<Integer> nodes) {
+		if (this.MERGED_NODES == null) {
+			this.MERGED_NODES = new HashSet<>();
+		}
 		this.MERGED_NODES.addAll(nodes);
 	}
 
 	public Set<Integer> getMergeNodes() {
+		if (this.MERGED_NODES == null) {
+			return new HashSet<>();
+		}
 		return new HashSet<>(this.MERGED_NODES);
 	}
 
 	public void addFakeEdge(int node) {
+		if (this.FAKE_EDGES == null) {
+			this.FAKE_EDGES = new HashSet<>();
+		}
 		this.FAKE_EDGES.add(node);
 	}
 
 	public void addFakeEdges(Set<Integer> nodes) {
+		if (this.FAKE_EDGES == null) {
+			this.FAKE_EDGES = new HashSet<>();
+		}
 		this.FAKE_EDGES.addAll(nodes);
 	}
 
 	public Set<Integer> getFakeEdges() {
+		if (this.FAKE_EDGES == null) {
+			return new HashSet<>();
+		}
 		return new HashSet<>(this.FAKE_EDGES);
 	}
 
 	/**
-	 * Sets node reference to itself
-	 */
-	public void cleanReference() {
-		this.setReference(this);
-	}
-
-	/**
-	 * This method hops through all the references and returns the very latest
-	 * reference in the list
+	 * Adds the fake edges of this node to the given set, without copying them first.
 	 *
-	 * @return
+	 * @param nodes the set to add the fake edges to
 	 */
-	public Node getReference() {
-		// This method is used primarily to avoid loops
-		if (this.REFERENCE == this) {
-			return this;
+	public void collectFakeEdges(Set<Integer> nodes) {
+		if (this.FAKE_EDGES != null) {
+			nodes.addAll(this.FAKE_EDGES);
 		}
-		return this.REFERENCE.getReference();
 	}
 
 	/**
-	 * This sets this node's reference to be last reference in the list of
-	 * references
-	 *
-	 * @param other
+	 * @return the number of fake edges of this node, without copying them
 	 */
-	public void setReference(Node other) {
-		this.REFERENCE = other.getReference();
+	public int getFakeEdgeCount() {
+		return this.FAKE_EDGES == null ? 0 : this.FAKE_EDGES.size();
 	}
 
 	/**
-	 * Returns the value of the end of the list of references
-	 * i.e. If the node has been absorbed by another node, it will return
-	 * the id of the node into which it has been absorbed
-	 * @return
+	 * @return the index of this node
 	 */
 	public int getId() {
-		if (this.REFERENCE == this) {
-			return this.ID;
-		}
-		return this.REFERENCE.getId();
+		return this.ID;
 	}
 
 	@Override
 	public String toString() {
-		if (this.REFERENCE == this) {
-			return "(" + this.ID + ":" + Integer.toHexString(this.hashCode()) + ")";
-		} else {
-			return "("
-					+ this.ID + ":"
-					+ Integer.toHexString(this.hashCode()) + "->"
-					+ this.REFERENCE.toString()
-					+ ")";
-		}
+		return "(" + this.ID + ":" + Integer.toHexString(this.hashCode()) + ")";
 	}
 }
@@ -0,0 +1,299 @@
+package linkedgraph;
+
+import java.util.Arrays;
+
+/**
+ * Merge engine that keeps, for every supernode, the number of original edges inside it and the number of original
+ * edges to each adjacent supernode (the superedge weights), instead of materialising fake edges node by node.
+ * <br/>
+ * Superedges are held in one IntIntMap per supernode, stored at the root of the supernode in the shared DisjointSet.
+ * A merge moves the entries of the smaller map into the larger one, so it costs O(superedges of the smaller
+ * supernode). The keys of the maps are not rewritten when the supernode they point at is merged away; instead they
+ * are resolved through the DisjointSet whenever they are read, which is what keeps neighbouring supernodes out of the
+ * merge. A supernode that has never taken part in a merge has no map yet, its superedges being its row in the
+ * original graph.
+ * <br/>
+ * The number of fake links follows from the supernode sizes and adjacency alone: every pair of nodes within a
+ * supernode and every pair of nodes across adjacent supernodes is linked once decompressed, and all but the original
+ * edges are fake.
+ * <br/>
+ * The table only stands in for the fake edges: the adjacency list of a LinkedGraph, which searches of the merged graph
+ * run over, is still rebuilt on every merge, see LinkedGraph.MergeEngine.
+ * <br/>
+ * While a journal is set, merges are logged so that they can be undone, see undo.
+ */
+public class SuperedgeTable {
+
+	private final CSRGraph ORIGINAL;
+	private final DisjointSet CLUSTERS;
+	/**
+	 * Superedge weights of each supernode, indexed by the root of the supernode. null until the supernode is merged.
+	 */
+	private final IntIntMap[] SUPEREDGES;
+	/**
+	 * Number of original edges within each supernode, indexed by the root of the supernode.
+	 */
+	private final int[] INTERNAL;
+	/**
+	 * Number of edges in the original graph, not counting self-loops.
+	 */
+	private final int EDGES;
+	// scratch space for counting adjacent supernodes in getFakeLinks
+	private int[] SEEN;
+	private MergeJournal JOURNAL;
+
+	/**
+	 * @param original the original graph
+	 * @param clusters the supernodes of the graph, which merge will update
+	 */
+	public SuperedgeTable(CSRGraph original, DisjointSet clusters) {
+		this.ORIGINAL = original;
+		this.CLUSTERS = clusters;
+		this.SUPEREDGES = new IntIntMap[original.getSize()];
+		this.INTERNAL = new int[original.getSize()];
+		int loops = 0;
+		for (int i = 0; i < original.getSize(); i++) {
+			if (original.hasEdge(i, i)) {
+				loops++;
+			}
+		}
+		this.EDGES = (original.getEntryCount() - loops) / 2;
+	}
+
+	private SuperedgeTable(SuperedgeTable other, DisjointSet clusters) {
+		this.ORIGINAL = other.ORIGINAL;
+		this.CLUSTERS = clusters;
+		this.SUPEREDGES = new IntIntMap[other.SUPEREDGES.length];
+		for (int i = 0; i < this.SUPEREDGES.length; i++) {
+			if (other.SUPEREDGES[i] != null) {
+				this.SUPEREDGES[i] = other.SUPEREDGES[i].copy();
+			}
+		}
+		this.INTERNAL = other.INTERNAL.clone();
+		this.EDGES = other.EDGES;
+	}
+
+	/**
+	 * Merges the supernode holding 'secondary' into the supernode holding 'primary', updating the DisjointSet as
+	 * well as the superedges. Nothing happens if they already are the same supernode.
+	 *
+	 * @param secondary index of a node in the supernode being absorbed
+	 * @param primary index of a node in the supernode absorbing it
+	 */
+	public void merge(int secondary, int primary) {
+		int secondaryRoot = this.CLUSTERS.find(secondary);
+		int primaryRoot = this.CLUSTERS.find(primary);
+		if (secondaryRoot == primaryRoot) {
+			return;
+		}
+		// the maps of both supernodes as they were, before superedges builds them
+		IntIntMap oldSecondaryEdges = this.SUPEREDGES[secondaryRoot];
+		IntIntMap oldPrimaryEdges = this.SUPEREDGES[primaryRoot];
+		IntIntMap secondaryEdges = this.superedges(secondaryRoot);
+		IntIntMap primaryEdges = this.superedges(primaryRoot);
+		// move the smaller map into the larger one
+		int smallRoot = secondaryRoot;
+		int largeRoot = primaryRoot;
+		IntIntMap small = secondaryEdges;
+		IntIntMap large = primaryEdges;
+		if (small.size() > large.size()) {
+			smallRoot = primaryRoot;
+			largeRoot = secondaryRoot;
+			small = primaryEdges;
+			large = secondaryEdges;
+		}
+		int between = 0;
+		int added = 0;
+		for (int slot = 0; slot < small.capacity(); slot++) {
+			int key = small.keyAt(slot);
+			if (key == IntIntMap.EMPTY) {
+				continue;
+			}
+			int neighbour = this.CLUSTERS.find(key);
+			if (neighbour == largeRoot) {
+				// edges between the two supernodes become internal edges
+				between += small.valueAt(slot);
+			} else if (neighbour != smallRoot) {
+				boolean inserted = large.add(neighbour, small.valueAt(slot));
+				if (this.JOURNAL != null) {
+					this.JOURNAL.push(neighbour);
+					this.JOURNAL.push(small.valueAt(slot));
+					this.JOURNAL.push(inserted ? 1 : 0);
+					added++;
+				}
+			}
+		}
+		if (this.JOURNAL != null) {
+			this.JOURNAL.push(added);
+			this.JOURNAL.pushObject(large);
+			this.JOURNAL.push(MergeJournal.SUPEREDGE_WEIGHTS);
+		}
+		int internal = this.INTERNAL[secondaryRoot] + this.INTERNAL[primaryRoot] + between;
+		this.SUPEREDGES[secondaryRoot] = null;
+		this.SUPEREDGES[primaryRoot] = null;
+		this.CLUSTERS.union(secondary, primary);
+		int root = this.CLUSTERS.find(primary);
+		if (this.JOURNAL != null) {
+			this.JOURNAL.push(secondaryRoot);
+			this.JOURNAL.push(primaryRoot);
+			this.JOURNAL.push(this.INTERNAL[root]);
+			this.JOURNAL.pushObject(oldSecondaryEdges);
+			this.JOURNAL.pushObject(oldPrimaryEdges);
+			this.JOURNAL.push(MergeJournal.SUPEREDGE_ROOTS);
+		}
+		this.SUPEREDGES[root] = large;
+		this.INTERNAL[root] = internal;
+	}
+
+	/**
+	 * @param node index of a node
+	 * @return the number of original edges within the supernode holding the node
+	 */
+	public int getInternalEdges(int node) {
+		return this.INTERNAL[this.CLUSTERS.find(node)];
+	}
+
+	/**
+	 * @param from index of a node in the first supernode
+	 * @param to index of a node in the second supernode
+	 * @return the number of original edges between the two supernodes, 0 if they are the same supernode
+	 */
+	public int getSuperedgeWeight(int from, int to) {
+		int fromRoot = this.CLUSTERS.find(from);
+		int toRoot = this.CLUSTERS.find(to);
+		if (fromRoot == toRoot) {
+			return 0;
+		}
+		IntIntMap edges = this.superedges(fromRoot);
+		int weight = 0;
+		for (int slot = 0; slot < edges.capacity(); slot++) {
+			int key = edges.keyAt(slot);
+			if (key != IntIntMap.EMPTY && this.CLUSTERS.find(key) == toRoot) {
+				weight += edges.valueAt(slot);
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Counts the fake links of the current partition: all node pairs within a supernode or across adjacent
+	 * supernodes, less the original edges. Runs in time linear in the number of superedges.
+	 *
+	 * @return the number of fake links introduced by the merges so far
+	 */
+	public long getFakeLinks() {
+		int size = this.SUPEREDGES.length;
+		if (this.SEEN == null) {
+			this.SEEN = new int[size];
+		}
+		Arrays.fill(this.SEEN, -1);
+		long pairs = 0;
+		long crossPairs = 0;
+		for (int root = 0; root < size; root++) {
+			if (this.CLUSTERS.find(root) != root) {
+				continue;
+			}
+			long members = this.CLUSTERS.getClusterSize(root);
+			pairs += members * (members - 1) / 2;
+			IntIntMap edges = this.SUPEREDGES[root];
+			if (edges == null) {
+				for (int k = this.ORIGINAL.getStart(root); k < this.ORIGINAL.getEnd(root); k++) {
+					crossPairs += this.countPair(root, members, this.ORIGINAL.getTarget(k));
+				}
+			} else {
+				for (int slot = 0; slot < edges.capacity(); slot++) {
+					int key = edges.keyAt(slot);
+					if (key != IntIntMap.EMPTY) {
+						crossPairs += this.countPair(root, members, key);
+					}
+				}
+			}
+		}
+		// every adjacent pair of supernodes was counted from both ends
+		return pairs + crossPairs / 2 - this.EDGES;
+	}
+
+	/**
+	 * Returns the number of node pairs between the supernode at root and the supernode holding the neighbour, the
+	 * first time that supernode is seen from root, 0 otherwise.
+	 */
+	private long countPair(int root, long members, int neighbour) {
+		int neighbourRoot = this.CLUSTERS.find(neighbour);
+		if (neighbourRoot == root || this.SEEN[neighbourRoot] == root) {
+			return 0;
+		}
+		this.SEEN[neighbourRoot] = root;
+		return members * this.CLUSTERS.getClusterSize(neighbourRoot);
+	}
+
+	/**
+	 * Sets the journal to log merges to, null to stop logging them. The DisjointSet logs its own unions.
+	 *
+	 * @param journal the journal
+	 */
+	void setJournal(MergeJournal journal) {
+		this.JOURNAL = journal;
+	}
+
+	/**
+	 * Undoes the record on top of the journal, whose kind has already been popped.
+	 * <br/>
+	 * A merge logs the weights it added to the map it kept (SUPEREDGE_WEIGHTS), then the DisjointSet logs its union,
+	 * then the merge logs the maps and internal edges of both supernodes as they were (SUPEREDGE_ROOTS); they are
+	 * undone in the opposite order.
+	 *
+	 * @param kind the kind of the record
+	 * @param journal the journal
+	 */
+	void undo(int kind, MergeJournal journal) {
+		if (kind == MergeJournal.SUPEREDGE_ROOTS) {
+			IntIntMap primaryEdges = (IntIntMap) journal.popObject();
+			IntIntMap secondaryEdges = (IntIntMap) journal.popObject();
+			int internal = journal.pop();
+			int primaryRoot = journal.pop();
+			int secondaryRoot = journal.pop();
+			// the union has not been undone yet, so the root is still that of the merged supernode
+			this.INTERNAL[this.CLUSTERS.find(primaryRoot)] = internal;
+			this.SUPEREDGES[secondaryRoot] = secondaryEdges;
+			this.SUPEREDGES[primaryRoot] = primaryEdges;
+		} else {
+			IntIntMap edges = (IntIntMap) journal.popObject();
+			for (int added = journal.pop(); added > 0; added--) {
+				boolean inserted = journal.pop() == 1;
+				int amount = journal.pop();
+				int neighbour = journal.pop();
+				if (inserted) {
+					edges.remove(neighbour);
+				} else {
+					edges.add(neighbour, -amount);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param clusters the supernodes of the copied graph, holding the same supernodes as this table's
+	 * @return a copy of this table
+	 */
+	public SuperedgeTable copy(DisjointSet clusters) {
+		return new SuperedgeTable(this, clusters);
+	}
+
+	/**
+	 * Returns the superedges of the supernode at root, building them from the original graph if it has not been
+	 * merged before.
+	 */
+	private IntIntMap superedges(int root) {
+		if (this.SUPEREDGES[root] == null) {
+			IntIntMap edges = new IntIntMap(this.ORIGINAL.getDegree(root));
+			for (int k = this.ORIGINAL.getStart(root); k < this.ORIGINAL.getEnd(root); k++) {
+				int neighbour = this.ORIGINAL.getTarget(k);
+				if (neighbour != root) {
+					edges.add(this.CLUSTERS.find(neighbour), 1);
+				}
+			}
+			this.SUPEREDGES[root] = edges;
+		}
+		return this.SUPEREDGES[root];
+	}
+}
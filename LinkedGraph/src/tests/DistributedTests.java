@@ -0,0 +1,137 @@
+package tests;
+
+import ga.GAImplementation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Checks that a GA evaluated by worker processes gives the same results as the same GA evaluated in parallel in a
+ * single process, including when one of the workers is killed partway through the run, or when the workers take
+ * longer to answer than they are allowed to.
+ */
+public class DistributedTests {
+
+	private static final long SEED = 12345L;
+	private static final String CONFIGURATION = "source ecoli.txt\n"
+			+ "generations 8\n"
+			+ "population 30\n"
+			+ "tournament 5\n"
+			+ "runs 2\n"
+			+ "elites 1\n"
+			+ "compression 0.25\n"
+			+ "mutation 0.1\n"
+			+ "crossover 0.9\n"
+			+ "maxDistance 3\n"
+			+ "type BFS\n";
+
+	public static void main(String... args) throws IOException {
+		Path directory = Files.createTempDirectory("distributed");
+		try {
+			List<String> single = run(directory, "single", "parallelEvaluation true\n", false);
+			List<String> distributed = run(directory, "distributed", "workers 2\nworkerBatchSize 4\n", false);
+			List<String> failed = run(directory, "failed", "workers 2\nworkerBatchSize 4\n", true);
+			if (single.isEmpty()) {
+				System.out.println("Distributed test FAILED! (no results)");
+			}
+			if (!single.equals(distributed)) {
+				System.out.println("Distributed test FAILED! (results differ from a single process)");
+			}
+			if (!single.equals(failed)) {
+				System.out.println("Distributed test FAILED! (results differ after a worker was killed)");
+			}
+
+			// no worker answers a batch within a millisecond, so each is dropped and stopped at its first batch, and
+			// the coordinator evaluates the rest itself; without a timeout, the workers would only stop at the end
+			AtomicInteger rowsWhenDropped = new AtomicInteger(-1);
+			Thread watcher = new Thread(() -> {
+				try {
+					while (ProcessHandle.current().children().count() < 2) {
+						Thread.sleep(10);
+					}
+					while (ProcessHandle.current().children().count() > 0) {
+						Thread.sleep(10);
+					}
+					File[] results = directory.toFile().listFiles((dir, file) -> file.startsWith("timedOut_"));
+					rowsWhenDropped.set(results == null || results.length != 1 ? 0
+							: Files.readAllLines(results[0].toPath()).size() - 2);
+				} catch (InterruptedException | IOException e) {
+					// the run finished first
+				}
+			});
+			watcher.start();
+			List<String> timedOut = run(directory, "timedOut", "workers 2\nworkerBatchSize 4\nworkerTimeout 1\n", false);
+			watcher.interrupt();
+			// rows are written a generation at a time, so by the end of the first run they are all there
+			if (rowsWhenDropped.get() < 0 || rowsWhenDropped.get() > 8) {
+				System.out.println("Distributed test FAILED! (workers not dropped when they timed out)");
+			}
+			if (!single.equals(timedOut)) {
+				System.out.println("Distributed test FAILED! (results differ after the workers timed out)");
+			}
+		} finally {
+			for (File file : directory.toFile().listFiles()) {
+				file.delete();
+			}
+			directory.toFile().delete();
+		}
+	}
+
+	/**
+	 * Runs the GA with the test configuration and the given parameters, returning the lines of its results.
+	 *
+	 * @param directory the directory to write the configuration and the results to
+	 * @param name the name of the configuration and the prefix of the results
+	 * @param parameters the parameters to add to the test configuration
+	 * @param killWorker whether to kill one of the workers once the run is under way
+	 * @return the lines of the results, without the time each generation took
+	 */
+	private static List<String> run(Path directory, String name, String parameters, boolean killWorker)
+			throws IOException {
+		// the GA reads and writes relative to its input and output directories
+		Path in = Paths.get("data/in").toAbsolutePath();
+		Path out = Paths.get("data/out").toAbsolutePath();
+		Path configuration = directory.resolve(name + ".dat");
+		Files.write(configuration, (CONFIGURATION + parameters + "outPrefix "
+				+ out.relativize(directory.resolve(name)) + "\n").getBytes(StandardCharsets.UTF_8));
+
+		Thread killer = new Thread(() -> {
+			try {
+				while (ProcessHandle.current().children().count() < 2) {
+					Thread.sleep(10);
+				}
+				// let the workers connect and take some batches first
+				Thread.sleep(2000);
+				ProcessHandle.current().children().findFirst().ifPresent(ProcessHandle::destroyForcibly);
+			} catch (InterruptedException e) {
+				// the run finished first
+			}
+		});
+		if (killWorker) {
+			killer.start();
+		}
+		new GAImplementation(SEED, in.relativize(configuration).toString(), false).run();
+		killer.interrupt();
+
+		File[] results = directory.toFile().listFiles((dir, file) -> file.startsWith(name + "_")
+				&& file.endsWith(".csv"));
+		if (results == null || results.length != 1) {
+			return Arrays.asList();
+		}
+		List<String> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(results[0].toPath())) {
+			// the third column is the time, which is the only one allowed to differ
+			String[] columns = line.split(",", 4);
+			lines.add(columns.length == 4 ? columns[0] + "," + columns[1] + "," + columns[3] : line);
+		}
+		return lines;
+	}
+}
@@ -5,9 +5,22 @@
  */
 package tests;
 
+import ga.Chromosome;
 import ga.GAImplementation;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 /**
+ * Checks that every way of evaluating a chromosome gives the same fitness and repairs as a full evaluation, for every
+ * type of chromosome. With the argument "run", runs the GA of ecoli1.dat instead.
  *
  * @author aromualdo
  */
@@ -28,8 +41,98 @@ public class GATests extends Thread {
 		}
 	}
 
-	public static void main(String... args) {
-		GAImplementation test = new GAImplementation(System.nanoTime(),"ecoli1.dat", true);
-		test.run();
+	private static final long SEED = 12345L;
+	private static final String CONFIGURATION = "source ecoli.txt\n"
+			+ "generations 5\n"
+			+ "population 20\n"
+			+ "tournament 5\n"
+			+ "runs 1\n"
+			+ "elites 1\n"
+			+ "compression 0.1\n"
+			+ "mutation 0.1\n"
+			+ "crossover 0.9\n"
+			+ "maxDistance 3\n"
+			+ "degreeSelectRate 0.7\n";
+	private static final String[] TYPES = new String[]{"BFS", "RANDOMADD", "FIXED", "UNRESTRICTED", "DEGREE", "DEGREE2"};
+	// the ways of evaluating that must not change the results, by name
+	private static final String[][] EVALUATIONS = new String[][]{
+		{"prefix", "prefixCheckpoints true\ncheckpointInterval 8\n"},
+		{"delta", "deltaEvaluation true\ndeltaInterval 8\n"},
+		{"rollback", "rollbackEvaluation true\n"},
+		{"prefixRollback", "prefixCheckpoints true\ncheckpointInterval 8\nrollbackEvaluation true\n"}
+	};
+
+	public static void main(String... args) throws IOException {
+		if (args.length > 0 && args[0].equals("run")) {
+			GAImplementation test = new GAImplementation(System.nanoTime(),"ecoli1.dat", true);
+			test.run();
+			return;
+		}
+		Path directory = Files.createTempDirectory("evaluations");
+		try {
+			for (String type : TYPES) {
+				List<String> full = run(directory, type, "type " + type + "\n");
+				if (full.isEmpty()) {
+					System.out.println("Evaluation test FAILED! (" + type + ", no results)");
+				}
+				for (String[] evaluation : EVALUATIONS) {
+					List<String> results = run(directory, type + evaluation[0], "type " + type + "\n" + evaluation[1]);
+					if (!full.equals(results)) {
+						System.out.println("Evaluation test FAILED! (" + type + ", " + evaluation[0]
+								+ " evaluation differs from full evaluation)");
+					}
+				}
+			}
+		} finally {
+			for (File file : directory.toFile().listFiles()) {
+				file.delete();
+			}
+			directory.toFile().delete();
+		}
+	}
+
+	/**
+	 * Runs the GA with the test configuration and the given parameters, returning the lines of its results. Some of
+	 * the chromosomes are given a duplicate gene before they are evaluated, early on or further in, since the
+	 * evaluations can only skip the genes before the first duplicate.
+	 *
+	 * @param directory the directory to write the configuration and the results to
+	 * @param name the name of the configuration and the prefix of the results
+	 * @param parameters the parameters to add to the test configuration
+	 * @return the lines of the results, without the time each generation took
+	 */
+	private static List<String> run(Path directory, String name, String parameters) throws IOException {
+		// the GA reads and writes relative to its input and output directories
+		Path in = Paths.get("data/in").toAbsolutePath();
+		Path out = Paths.get("data/out").toAbsolutePath();
+		Path configuration = directory.resolve(name + ".dat");
+		Files.write(configuration, (CONFIGURATION + parameters + "outPrefix "
+				+ out.relativize(directory.resolve(name)) + "\n").getBytes(StandardCharsets.UTF_8));
+
+		new GAImplementation(SEED, in.relativize(configuration).toString(), false) {
+			private int evaluations;
+
+			@Override
+			public int evaluate(Chromosome chromosome) {
+				if (this.evaluations++ % 3 != 0) {
+					int copied = this.evaluations % 3 == 2 ? 1 : 40;
+					chromosome.setGene(copied + 1, chromosome.getRoot(copied), chromosome.getOffset(copied));
+				}
+				return super.evaluate(chromosome);
+			}
+		}.run();
+
+		File[] results = directory.toFile().listFiles((dir, file) -> file.startsWith(name + "_")
+				&& file.endsWith(".csv"));
+		if (results == null || results.length != 1) {
+			return Arrays.asList();
+		}
+		List<String> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(results[0].toPath())) {
+			// the third column is the time, which is the only one allowed to differ
+			String[] columns = line.split(",", 4);
+			lines.add(columns.length == 4 ? columns[0] + "," + columns[1] + "," + columns[3] : line);
+		}
+		return lines;
 	}
 }
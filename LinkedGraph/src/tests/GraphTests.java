@@ -8,6 +8,17 @@ package tests;
 import ga.GAImplementation;
 import linkedgraph.*;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
 /**
  *
  * @author aromualdo
@@ -94,27 +105,30 @@ public class GraphTests {
             {"test/test6.txt", "9", "[(0,3),(2,3),(0,1),(1,1),(4,1)]"},
             {"test/test6.txt", "9", "[(0,3),(2,3),(0,1),(1,1),(5,5)]"}
         };
-        for (int i = 0; i < fakeEdgeTests.length; i++) {
-            LinkedGraph graph = LinkedGraph.load(fakeEdgeTests[i][0]);
-            int expectedFakeLinks = Integer.valueOf(fakeEdgeTests[i][1]);
-            String chromosome = fakeEdgeTests[i][2];
-            LinkedGraph result = GAImplementation.buildChromosome(graph, chromosome);
+        for (LinkedGraph.MergeEngine engine : LinkedGraph.MergeEngine.values()) {
+            for (int i = 0; i < fakeEdgeTests.length; i++) {
+                LinkedGraph graph = LinkedGraph.load(fakeEdgeTests[i][0]);
+                graph.setMergeEngine(engine);
+                int expectedFakeLinks = Integer.valueOf(fakeEdgeTests[i][1]);
+                String chromosome = fakeEdgeTests[i][2];
+                LinkedGraph result = GAImplementation.buildChromosome(graph, chromosome);
 
-            int actualFakeLinks = result.totalFakeLinks();
+                int actualFakeLinks = result.totalFakeLinks();
 
-            if (actualFakeLinks == expectedFakeLinks) {
-                //System.out.println("Test "+i+" Passed!");
-            } else {
-                System.out.println("Test " + i + " FAILED!");
-                System.out.println("GRAPH ~~~~~~~~~~~~~~~~~~~");
-                result.print();
-                System.out.println("FAKE LINKS ~~~~~~~~~~~~~~");
-                result.printFakeLinks();
-                System.out.println("~~~~~~~~~~~");
-                System.out.println("Chromosome: " + chromosome);
-                System.out.println("Expected: " + expectedFakeLinks);
-                System.out.println("Actual: " + actualFakeLinks);
-                System.out.println("~~~~~~~~~~~~~~~~~~~~~~~~~");
+                if (actualFakeLinks == expectedFakeLinks) {
+                    //System.out.println("Test "+i+" Passed!");
+                } else {
+                    System.out.println("Test " + i + " FAILED! (" + engine + ")");
+                    System.out.println("GRAPH ~~~~~~~~~~~~~~~~~~~");
+                    result.print();
+                    System.out.println("FAKE LINKS ~~~~~~~~~~~~~~");
+                    result.printFakeLinks();
+                    System.out.println("~~~~~~~~~~~");
+                    System.out.println("Chromosome: " + chromosome);
+                    System.out.println("Expected: " + expectedFakeLinks);
+                    System.out.println("Actual: " + actualFakeLinks);
+                    System.out.println("~~~~~~~~~~~~~~~~~~~~~~~~~");
+                }
             }
         }
 
@@ -146,5 +160,337 @@ public class GraphTests {
             }
         }
 
+        // the buffer versions of the searches, and the cached searches, must return the same neighbourhoods in the
+        // same order
+        String[][] bfsTests = new String[][]{
+            {"test/test4.txt", "[(0,1)]"},
+            {"test/test6.txt", "[(0,3),(2,3)]"},
+            {"ecoli.txt", "[(3,2)]"},
+            {"ecoli.txt", "[(0,1),(5,1),(9,2),(20,3),(40,1)]"}
+        };
+        for (int testIndex = 0; testIndex < bfsTests.length; testIndex++) {
+            LinkedGraph graph = GAImplementation.buildChromosome(LinkedGraph.load(bfsTests[testIndex][0]), bfsTests[testIndex][1]);
+            LinkedGraph cachedGraph = LinkedGraph.load(bfsTests[testIndex][0]);
+            // small enough to evict
+            cachedGraph.setCacheBudget(1 << 16);
+            cachedGraph = GAImplementation.buildChromosome(cachedGraph, bfsTests[testIndex][1]);
+            LinkedGraph indexedGraph = LinkedGraph.load(bfsTests[testIndex][0]);
+            for (int depth = 1; depth <= 4; depth++) {
+                indexedGraph.setKHopIndex(KHopIndex.build(indexedGraph.getOriginal(), depth, false));
+            }
+            indexedGraph = GAImplementation.buildChromosome(indexedGraph, bfsTests[testIndex][1]);
+            int[] buffer = new int[graph.getSize()];
+            for (int root = 0; root < graph.getSize(); root += 7) {
+                for (int depth = 1; depth <= 4; depth++) {
+                    String expected = referenceBfs(graph, root, depth).toString();
+                    String actual = graph.bfs(root, depth).toString();
+                    if (!expected.equals(actual)) {
+                        System.out.println("List BFS test " + testIndex + " FAILED! (root " + root + ", depth " + depth + ")");
+                        System.out.println("Expected: " + expected);
+                        System.out.println("Actual: " + actual);
+                    }
+                    actual = toString(buffer, graph.bfs(root, depth, buffer));
+                    if (!expected.equals(actual)) {
+                        System.out.println("BFS test " + testIndex + " FAILED! (root " + root + ", depth " + depth + ")");
+                        System.out.println("Expected: " + expected);
+                        System.out.println("Actual: " + actual);
+                    }
+                    actual = toString(buffer, cachedGraph.bfs(root, depth, buffer));
+                    if (!expected.equals(actual)) {
+                        System.out.println("Cached BFS test " + testIndex + " FAILED! (root " + root + ", depth " + depth + ")");
+                        System.out.println("Expected: " + expected);
+                        System.out.println("Actual: " + actual);
+                    }
+                    actual = toString(buffer, indexedGraph.bfs(root, depth, buffer));
+                    if (!expected.equals(actual)) {
+                        System.out.println("Indexed BFS test " + testIndex + " FAILED! (root " + root + ", depth " + depth + ")");
+                        System.out.println("Expected: " + expected);
+                        System.out.println("Actual: " + actual);
+                    }
+                    expected = graph.randomAddBFS(root, depth, new Random(root)).toString();
+                    actual = toString(buffer, graph.randomAddBFS(root, depth, new Random(root), buffer));
+                    if (!expected.equals(actual)) {
+                        System.out.println("Random BFS test " + testIndex + " FAILED! (root " + root + ", depth " + depth + ")");
+                        System.out.println("Expected: " + expected);
+                        System.out.println("Actual: " + actual);
+                    }
+                }
+            }
+        }
+
+        // cached searches of graphs merged anywhere, including at the edge of the cached neighbourhoods, must return
+        // what searching the merged graph does
+        String[] mergedBfsTests = new String[]{"test/test6.txt", "ecoli.txt"};
+        int[] mergeCounts = new int[]{1, 5, 20, 100};
+        for (int testIndex = 0; testIndex < mergedBfsTests.length; testIndex++) {
+            for (int merges : mergeCounts) {
+                LinkedGraph graph = LinkedGraph.load(mergedBfsTests[testIndex]);
+                LinkedGraph cachedGraph = LinkedGraph.load(mergedBfsTests[testIndex]);
+                cachedGraph.setCacheBudget(1 << 20);
+                mergeRandomly(graph, new Random(merges), Math.min(merges, graph.getSize() / 2));
+                mergeRandomly(cachedGraph, new Random(merges), Math.min(merges, cachedGraph.getSize() / 2));
+                int[] buffer = new int[graph.getSize()];
+                for (int root = 0; root < graph.getSize(); root += 3) {
+                    for (int depth = 1; depth <= 4; depth++) {
+                        String expected = referenceBfs(graph, root, depth).toString();
+                        String actual = toString(buffer, cachedGraph.bfs(root, depth, buffer));
+                        if (!expected.equals(actual)) {
+                            System.out.println("Merged cached BFS test " + testIndex + " FAILED! (" + merges
+                                    + " merges, root " + root + ", depth " + depth + ")");
+                            System.out.println("Expected: " + expected);
+                            System.out.println("Actual: " + actual);
+                        }
+                    }
+                }
+            }
+        }
+
+        // exact sampling must pick what picking from the search does, walks must stay within the neighbourhood
+        for (int testIndex = 0; testIndex < bfsTests.length; testIndex++) {
+            LinkedGraph graph = GAImplementation.buildChromosome(LinkedGraph.load(bfsTests[testIndex][0]), bfsTests[testIndex][1]);
+            for (int root = 0; root < graph.getSize(); root += 7) {
+                for (int depth = 1; depth <= 4; depth++) {
+                    List<Integer> neighbourhood = graph.bfs(root, depth);
+                    graph.setNeighbourSampling(LinkedGraph.NeighbourSampling.EXACT);
+                    int expected = neighbourhood.isEmpty() ? -1
+                            : neighbourhood.get(new Random(root).nextInt(neighbourhood.size()));
+                    int actual = graph.sampleNeighbour(root, depth, new Random(root));
+                    if (expected != actual) {
+                        System.out.println("Sampling test " + testIndex + " FAILED! (root " + root + ", depth " + depth + ")");
+                        System.out.println("Expected: " + expected);
+                        System.out.println("Actual: " + actual);
+                    }
+                    graph.setNeighbourSampling(LinkedGraph.NeighbourSampling.RANDOM_WALK);
+                    Random random = new Random(root);
+                    for (int sample = 0; sample < 20; sample++) {
+                        actual = graph.sampleNeighbour(root, depth, random);
+                        if (neighbourhood.isEmpty() ? actual != -1 : !neighbourhood.contains(actual)) {
+                            System.out.println("Walk sampling test " + testIndex + " FAILED! (root " + root + ", depth " + depth + ")");
+                            System.out.println("Neighbourhood: " + neighbourhood);
+                            System.out.println("Actual: " + actual);
+                        }
+                    }
+                }
+            }
+        }
+
+        // exact sampling must not depend on whether there is a k-hop index, nor on the order of its candidates
+        for (int testIndex = 0; testIndex < bfsTests.length; testIndex++) {
+            LinkedGraph graph = LinkedGraph.load(bfsTests[testIndex][0]);
+            for (boolean sortByDegree : new boolean[]{false, true}) {
+                LinkedGraph indexedGraph = LinkedGraph.load(bfsTests[testIndex][0]);
+                for (int depth = 1; depth <= 4; depth++) {
+                    indexedGraph.setKHopIndex(KHopIndex.build(indexedGraph.getOriginal(), depth, sortByDegree));
+                }
+                for (int root = 0; root < graph.getSize(); root += 7) {
+                    for (int depth = 1; depth <= 4; depth++) {
+                        int expected = graph.sampleNeighbour(root, depth, new Random(root));
+                        int actual = indexedGraph.sampleNeighbour(root, depth, new Random(root));
+                        if (expected != actual) {
+                            System.out.println("Indexed sampling test " + testIndex + " FAILED! (root " + root
+                                    + ", depth " + depth + ", sorted by degree " + sortByDegree + ")");
+                            System.out.println("Expected: " + expected);
+                            System.out.println("Actual: " + actual);
+                        }
+                    }
+                }
+            }
+        }
+
+        // a graph loaded from a snapshot must be the same as the one loaded from the edge list
+        String[] snapshotTests = new String[]{"test/test6.txt", "ecoli.txt", "figeys.txt"};
+        for (int testIndex = 0; testIndex < snapshotTests.length; testIndex++) {
+            LinkedGraph expected = LinkedGraph.load(snapshotTests[testIndex]);
+            LinkedGraph actual = null;
+            try {
+                File snapshot = File.createTempFile("graph", GraphSnapshot.EXTENSION);
+                snapshot.deleteOnExit();
+                GraphSnapshot.convert(snapshotTests[testIndex], snapshot.getPath());
+                actual = LinkedGraph.load(snapshot.getPath());
+            } catch (IOException e) {
+                System.out.println("Snapshot test " + testIndex + " FAILED! " + e.getMessage());
+                continue;
+            }
+            for (int node = 0; node < expected.getSize(); node++) {
+                if (!expected.getAdjacentNodes(node).equals(actual.getAdjacentNodes(node))
+                        || expected.getOriginalDegree(node) != actual.getOriginalDegree(node)
+                        || expected.getOriginal().getStart(node) != actual.getOriginal().getStart(node)) {
+                    System.out.println("Snapshot test " + testIndex + " FAILED! (node " + node + ")");
+                    System.out.println("Expected: " + expected.getAdjacentNodes(node));
+                    System.out.println("Actual: " + actual.getAdjacentNodes(node));
+                }
+            }
+            for (int entry = 0; entry < expected.getOriginal().getEntryCount(); entry++) {
+                if (expected.getOriginal().getTarget(entry) != actual.getOriginal().getTarget(entry)) {
+                    System.out.println("Snapshot test " + testIndex + " FAILED! (entry " + entry + ")");
+                }
+            }
+        }
+
+        // rolling back to a mark must leave the graph exactly as it was, without disturbing copies taken since
+        String[] journalTests = new String[]{"test/test6.txt", "ecoli.txt"};
+        for (LinkedGraph.MergeEngine engine : LinkedGraph.MergeEngine.values()) {
+            for (int testIndex = 0; testIndex < journalTests.length; testIndex++) {
+                LinkedGraph graph = LinkedGraph.load(journalTests[testIndex]);
+                graph.setMergeEngine(engine);
+                Random random = new Random(testIndex);
+                String original = state(graph);
+                int start = graph.mark();
+                mergeRandomly(graph, random, graph.getSize() / 4);
+                String merged = state(graph);
+                int middle = graph.mark();
+                LinkedGraph copy = graph.checkpoint();
+                mergeRandomly(graph, random, graph.getSize() / 4);
+                graph.rollbackTo(middle);
+                if (!merged.equals(state(graph))) {
+                    System.out.println("Journal test " + testIndex + " FAILED! (" + engine + ", rollback to middle)");
+                }
+                if (!merged.equals(state(copy))) {
+                    System.out.println("Journal test " + testIndex + " FAILED! (" + engine + ", copy changed)");
+                }
+                graph.rollbackTo(start);
+                if (!original.equals(state(graph))) {
+                    System.out.println("Journal test " + testIndex + " FAILED! (" + engine + ", rollback to start)");
+                }
+                // merging again after a rollback must give what merging a fresh graph does
+                LinkedGraph fresh = LinkedGraph.load(journalTests[testIndex]);
+                fresh.setMergeEngine(engine);
+                mergeRandomly(graph, new Random(-1), graph.getSize() / 2);
+                mergeRandomly(fresh, new Random(-1), fresh.getSize() / 2);
+                graph.endJournal();
+                if (!state(fresh).equals(state(graph))) {
+                    System.out.println("Journal test " + testIndex + " FAILED! (" + engine + ", merging after rollback)");
+                }
+            }
+        }
+
+        // graphs from the registry share the original graph and caches, but merging one must not change the others
+        String[] registryTests = new String[]{"test/test6.txt", "ecoli.txt"};
+        for (int testIndex = 0; testIndex < registryTests.length; testIndex++) {
+            LinkedGraph first;
+            LinkedGraph second;
+            try {
+                first = GraphRegistry.get(registryTests[testIndex], false);
+                second = GraphRegistry.get(registryTests[testIndex], false);
+            } catch (IOException e) {
+                System.out.println("Registry test " + testIndex + " FAILED! " + e.getMessage());
+                continue;
+            }
+            String fresh = state(LinkedGraph.load(registryTests[testIndex]));
+            if (first == second || first.getOriginal() != second.getOriginal()) {
+                System.out.println("Registry test " + testIndex + " FAILED! (original graph not shared)");
+            }
+            if (GraphRegistry.getNeighbourhoodCache(registryTests[testIndex], 1024 * 1024)
+                    != GraphRegistry.getNeighbourhoodCache(registryTests[testIndex], 1024 * 1024)) {
+                System.out.println("Registry test " + testIndex + " FAILED! (cache not shared)");
+            }
+            mergeRandomly(first, new Random(testIndex), first.getSize() / 2);
+            if (!fresh.equals(state(second))) {
+                System.out.println("Registry test " + testIndex + " FAILED! (merges shared)");
+            }
+            LinkedGraph expected = LinkedGraph.load(registryTests[testIndex]);
+            mergeRandomly(expected, new Random(testIndex), expected.getSize() / 2);
+            if (!state(expected).equals(state(first))) {
+                System.out.println("Registry test " + testIndex + " FAILED! (merging)");
+            }
+        }
+        GraphRegistry.clear();
+
+        // a graph built edge by edge must end up as the same graph read all at once
+        String[] addEdgeTests = new String[]{"test/test6.txt", "ecoli.txt"};
+        for (int testIndex = 0; testIndex < addEdgeTests.length; testIndex++) {
+            LinkedGraph expected = LinkedGraph.load(addEdgeTests[testIndex]);
+            CSRGraph original = expected.getOriginal();
+            ArrayList<ArrayList<Integer>> empty = new ArrayList<>();
+            for (int node = 0; node < original.getSize(); node++) {
+                empty.add(new ArrayList<>());
+            }
+            LinkedGraph built = LinkedGraph.load(empty);
+            for (int node = 0; node < original.getSize(); node++) {
+                for (int k = original.getStart(node); k < original.getEnd(node); k++) {
+                    built.addEdge(node, original.getTarget(k));
+                }
+            }
+            for (int node = 0; node < original.getSize(); node++) {
+                if (built.getOriginalDegree(node) != expected.getOriginalDegree(node)
+                        || !new TreeSet<>(built.bfs(node, 2)).equals(new TreeSet<>(expected.bfs(node, 2)))) {
+                    System.out.println("Add edge test " + testIndex + " FAILED! (node " + node + ")");
+                }
+            }
+            // the rows may be in a different order, which merging does not depend on
+            mergeRandomly(expected, new Random(testIndex), expected.getSize() / 2);
+            mergeRandomly(built, new Random(testIndex), built.getSize() / 2);
+            if (expected.totalFakeLinks() != built.totalFakeLinks()) {
+                System.out.println("Add edge test " + testIndex + " FAILED! (merging)");
+            }
+            for (int node = 0; node < original.getSize(); node++) {
+                if (!built.get(node).getFakeEdges().equals(expected.get(node).getFakeEdges())) {
+                    System.out.println("Add edge test " + testIndex + " FAILED! (fake edges of node " + node + ")");
+                }
+            }
+        }
+
+    }
+
+    /**
+     * Merges random pairs of nodes that are not in the same supernode yet.
+     */
+    private static void mergeRandomly(LinkedGraph graph, Random random, int merges) {
+        for (int m = 0; m < merges && graph.getCurrentSize() > 1; m++) {
+            int from = random.nextInt(graph.getSize());
+            int to = random.nextInt(graph.getSize());
+            if (graph.sameCluster(from, to)) {
+                m--;
+            } else {
+                graph.merge(from, to);
+            }
+        }
+    }
+
+    /**
+     * @return the supernodes, adjacency, size, fake links and fake edges of a graph
+     */
+    private static String state(LinkedGraph graph) {
+        StringBuilder state = new StringBuilder(graph.toString());
+        state.append(graph.getCurrentSize()).append(',').append(graph.totalFakeLinks());
+        for (int node = 0; node < graph.getSize(); node++) {
+            state.append(new TreeSet<>(graph.get(node).getFakeEdges()));
+        }
+        return state.toString();
+    }
+
+    /**
+     * The search LinkedGraph.bfs(root, depth) used to make, exploring with a HashSet and returning its iteration
+     * order, which the searches of the graph must keep to.
+     */
+    private static List<Integer> referenceBfs(LinkedGraph graph, int root, int depth) {
+        int rootValue = graph.get(root).ID;
+        Set<Integer> explored = new HashSet<>();
+        Queue<WrappedNode> toExplore = new LinkedList<>();
+        explored.add(rootValue);
+        toExplore.add(new WrappedNode(rootValue, 0));
+        while (!toExplore.isEmpty()) {
+            WrappedNode at = toExplore.remove();
+            if (at.distance < depth) {
+                for (int index : graph.getAdjacentNodes(at.index)) {
+                    int iValue = graph.get(index).ID;
+                    if (!explored.contains(iValue)) {
+                        toExplore.add(new WrappedNode(iValue, at.distance + 1));
+                        explored.add(iValue);
+                    }
+                }
+            }
+        }
+        List<Integer> returnValue = new ArrayList<>(explored);
+        returnValue.remove(returnValue.indexOf(rootValue));
+        return returnValue;
+    }
+
+    private static String toString(int[] buffer, int count) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            list.add(buffer[i]);
+        }
+        return list.toString();
     }
 }
@@ -0,0 +1,276 @@
+package tests;
+
+import ga.Chromosome;
+import ga.GAImplementation;
+import threadedtests.ExperimentScheduler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks that the results of a GA do not depend on how its run is made.
+ */
+public class RunTests {
+
+	private static final long SEED = 12345L;
+	private static final String CONFIGURATION = "source ecoli.txt\n"
+			+ "generations 8\n"
+			+ "population 30\n"
+			+ "tournament 5\n"
+			+ "runs 2\n"
+			+ "elites 1\n"
+			+ "compression 0.25\n"
+			+ "mutation 0.1\n"
+			+ "crossover 0.9\n"
+			+ "maxDistance 3\n"
+			+ "type BFS\n";
+
+	public static void main(String... args) throws IOException {
+		Path directory = Files.createTempDirectory("runs");
+		try {
+			// each chromosome repairs with a stream of its own, so the number of threads must not matter
+			List<String> oneThread = run(directory, "oneThread", "parallelEvaluation true\nevaluationThreads 1\n");
+			List<String> fourThreads = run(directory, "fourThreads", "parallelEvaluation true\nevaluationThreads 4\n");
+			if (oneThread.isEmpty()) {
+				System.out.println("Parallel test FAILED! (no results)");
+			}
+			if (!oneThread.equals(fourThreads)) {
+				System.out.println("Parallel test FAILED! (results differ between 1 and 4 threads)");
+			}
+
+			// islands migrate the same chromosomes at the same generations however their threads are scheduled, each
+			// island writes its own file from a seed of its own, the first keeping the seed of the GA, and they leave
+			// the source graph they share as they found it
+			String islands = "islands 3\nmigrationInterval 2\nmigrants 2\ntopology RANDOM\n";
+			new GAImplementation(SEED, configure(directory, "islands", islands), false).run();
+			List<List<String>> first = islandResults(directory, "islands", 3);
+			new GAImplementation(SEED, configure(directory, "islandsAgain", islands), false).run();
+			if (first.size() != 3 || !first.equals(islandResults(directory, "islandsAgain", 3))) {
+				System.out.println("Island test FAILED! (results differ between two runs)");
+			}
+			List<String> seeds = new ArrayList<>();
+			for (List<String> island : first) {
+				seeds.add(island.isEmpty() ? "" : island.get(0).replaceAll(".*; Seed: (-?\\d+);.*", "$1"));
+			}
+			if (first.size() == 3 && (!seeds.get(0).equals(String.valueOf(SEED)) || seeds.stream().distinct().count() != 3)) {
+				System.out.println("Island test FAILED! (islands do not have seeds of their own) " + seeds);
+			}
+			if (!oneThread.equals(run(directory, "afterIslands", "parallelEvaluation true\nevaluationThreads 1\n"))) {
+				System.out.println("Island test FAILED! (the source graph was changed by the islands)");
+			}
+
+			// with a single thread, the steady state only depends on the seed; it evaluates the initial population, then
+			// as many offspring a generation as there are chromosomes in the population
+			String steadyState = "steadyState true\nevaluationThreads 1\n";
+			GAImplementation steady = new GAImplementation(SEED, configure(directory, "steady", steadyState), false);
+			steady.run();
+			List<String> steadyResults = results(directory, "steady");
+			if (steadyResults.isEmpty() || !steadyResults.equals(run(directory, "steadyAgain", steadyState))) {
+				System.out.println("Steady state test FAILED! (results differ between two runs)");
+			}
+			if (steady.getEvaluationsDone() != 2 * (30 + 8 * 30)) {
+				System.out.println("Steady state test FAILED! (" + steady.getEvaluationsDone() + " evaluations)");
+			}
+			// checkpoints are not taken in the steady state, so resuming starts from scratch
+			if (!steadyResults.equals(run(directory, "steadyResumed",
+					steadyState + "runCheckpointInterval 4\nresume true\n"))) {
+				System.out.println("Steady state test FAILED! (results differ when resuming)");
+			}
+			if (directory.toFile().listFiles((dir, file) -> file.startsWith("steadyResumed_")).length != 1) {
+				System.out.println("Steady state test FAILED! (a checkpoint was written)");
+			}
+
+			// a GA that fails must still write out every row it has handed to the result writer, however rarely the
+			// writer flushes
+			List<String> complete = run(directory, "complete", "");
+			int failAfter = 11;
+			GAImplementation failing = new GAImplementation(SEED, configure(directory, "failing", "outputFlushRows 0\n"),
+					false) {
+				@Override
+				public int evaluate(Chromosome chromosome) {
+					if (this.getGenerationsDone() == failAfter) {
+						throw new IllegalStateException("failing on purpose");
+					}
+					return super.evaluate(chromosome);
+				}
+			};
+			try {
+				failing.run();
+				System.out.println("Failure test FAILED! (the run did not fail)");
+			} catch (IllegalStateException e) {
+				// as planned
+			}
+			// the two lines of header, then a row per generation done
+			if (complete.size() < 2 + failAfter
+					|| !complete.subList(0, 2 + failAfter).equals(results(directory, "failing"))) {
+				System.out.println("Failure test FAILED! (rows lost)");
+			}
+
+			// a GA that fails after a checkpoint, with rows written since, carries on from the checkpoint when it is
+			// resumed, and ends up with the results of a GA that never failed
+			int crashAfter = 14;
+			GAImplementation crashing = new GAImplementation(SEED, configure(directory, "resumed",
+					"runCheckpointInterval 4\n"), false) {
+				@Override
+				public int evaluate(Chromosome chromosome) {
+					if (this.getGenerationsDone() == crashAfter) {
+						throw new IllegalStateException("failing on purpose");
+					}
+					return super.evaluate(chromosome);
+				}
+			};
+			try {
+				crashing.run();
+				System.out.println("Resume test FAILED! (the run did not fail)");
+			} catch (IllegalStateException e) {
+				// as planned
+			}
+			// the last checkpoint was taken 12 generations in, at generation 4 of the second run
+			GAImplementation resumed = new GAImplementation(SEED, configure(directory, "resumed",
+					"runCheckpointInterval 4\nresume true\n"), false) {
+				@Override
+				public int evaluate(Chromosome chromosome) {
+					if (this.getGenerationsDone() < 12) {
+						throw new IllegalStateException("not resumed from the checkpoint");
+					}
+					return super.evaluate(chromosome);
+				}
+			};
+			try {
+				resumed.run();
+				if (!complete.equals(results(directory, "resumed"))) {
+					System.out.println("Resume test FAILED! (results differ from a run that did not fail)");
+				}
+			} catch (IllegalStateException e) {
+				System.out.println("Resume test FAILED! (" + e.getMessage() + ")");
+			}
+
+			// a scheduled configuration makes its runs as run does, unless it asks for them to be made apart, in
+			// which case only the first run keeps its seed, and the runs are written to the one file in run order
+			if (!complete.equals(schedule(directory, "scheduled", ""))) {
+				System.out.println("Scheduler test FAILED! (results differ from run)");
+			}
+			List<String> split = schedule(directory, "split", "splitRuns true\n");
+			List<String> runs = new ArrayList<>();
+			for (String line : split.subList(Math.min(2, split.size()), split.size())) {
+				runs.add(line.substring(0, line.indexOf(',')));
+			}
+			List<String> sorted = new ArrayList<>(runs);
+			sorted.sort(null);
+			int firstRun = 2 + Collections.frequency(runs, "1");
+			if (split.size() != complete.size() || !runs.equals(sorted)
+					|| !complete.subList(0, firstRun).equals(split.subList(0, firstRun))) {
+				System.out.println("Scheduler test FAILED! (runs made apart not stitched together in order)");
+			}
+		} finally {
+			for (File file : directory.toFile().listFiles()) {
+				file.delete();
+			}
+			directory.toFile().delete();
+		}
+	}
+
+	/**
+	 * Runs the GA with the test configuration and the given parameters, returning the lines of its results.
+	 *
+	 * @param directory the directory to write the configuration and the results to
+	 * @param name the name of the configuration and the prefix of the results
+	 * @param parameters the parameters to add to the test configuration
+	 * @return the lines of the results, without the time each generation took
+	 */
+	private static List<String> run(Path directory, String name, String parameters) throws IOException {
+		new GAImplementation(SEED, configure(directory, name, parameters), false).run();
+		return results(directory, name);
+	}
+
+	/**
+	 * Runs the test configuration with the given parameters through the experiment scheduler, returning the lines of
+	 * its results.
+	 *
+	 * @param directory the directory to write the configuration and the results to
+	 * @param name the name of the configuration and the prefix of the results
+	 * @param parameters the parameters to add to the test configuration
+	 * @return the lines of the results, without the time each generation took
+	 */
+	private static List<String> schedule(Path directory, String name, String parameters) throws IOException {
+		ExperimentScheduler scheduler = new ExperimentScheduler(2);
+		scheduler.add(SEED, configure(directory, name, parameters), false);
+		scheduler.run(0);
+		return results(directory, name);
+	}
+
+	/**
+	 * Writes the test configuration with the given parameters.
+	 *
+	 * @param directory the directory to write the configuration and the results to
+	 * @param name the name of the configuration and the prefix of the results
+	 * @param parameters the parameters to add to the test configuration
+	 * @return the configuration, relative to the input directory of the GA
+	 */
+	private static String configure(Path directory, String name, String parameters) throws IOException {
+		// the GA reads and writes relative to its input and output directories
+		Path in = Paths.get("data/in").toAbsolutePath();
+		Path out = Paths.get("data/out").toAbsolutePath();
+		Path configuration = directory.resolve(name + ".dat");
+		Files.write(configuration, (CONFIGURATION + parameters + "outPrefix "
+				+ out.relativize(directory.resolve(name)) + "\n").getBytes(StandardCharsets.UTF_8));
+		return in.relativize(configuration).toString();
+	}
+
+	/**
+	 * @param directory the directory the results were written to
+	 * @param name the prefix of the results
+	 * @return the lines of the results, without the time each generation took
+	 */
+	private static List<String> results(Path directory, String name) throws IOException {
+		File[] results = directory.toFile().listFiles((dir, file) -> file.startsWith(name + "_")
+				&& file.endsWith(".csv"));
+		if (results == null || results.length != 1) {
+			return Arrays.asList();
+		}
+		return results(results[0]);
+	}
+
+	/**
+	 * @param directory the directory the results were written to
+	 * @param name the prefix of the results
+	 * @param islands the number of islands
+	 * @return the lines of the results of each island, without the time each generation took, or nothing if the
+	 * islands did not write a file each
+	 */
+	private static List<List<String>> islandResults(Path directory, String name, int islands) throws IOException {
+		List<List<String>> results = new ArrayList<>();
+		for (int island = 0; island < islands; island++) {
+			String suffix = "_island" + island + ".csv";
+			File[] files = directory.toFile().listFiles((dir, file) -> file.startsWith(name + "_")
+					&& file.endsWith(suffix));
+			if (files == null || files.length != 1) {
+				return Arrays.asList();
+			}
+			results.add(results(files[0]));
+		}
+		return results;
+	}
+
+	/**
+	 * @param file the results
+	 * @return the lines of the results, without the time each generation took
+	 */
+	private static List<String> results(File file) throws IOException {
+		List<String> lines = new ArrayList<>();
+		for (String line : Files.readAllLines(file.toPath())) {
+			// the third column is the time, which is the only one allowed to differ
+			String[] columns = line.split(",", 4);
+			lines.add(columns.length == 4 ? columns[0] + "," + columns[1] + "," + columns[3] : line);
+		}
+		return lines;
+	}
+}
@@ -0,0 +1,276 @@
+package threadedtests;
+
+import ga.GAImplementation;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs experiments split into work items, so that the configurations of a long experiment are spread over the
+ * threads. A configuration is one item, which makes every run as GAImplementation.run does, unless it asks for its
+ * runs to be made apart with "splitRuns true": then each run is an item of its own (see GAImplementation.forRun), which
+ * changes the seeds of every run but the first, and the output files of the runs are stitched back together in run
+ * order into the output file of the configuration once they are all done.
+ * <br/>
+ * The items are made on a work-stealing pool with as many threads as asked for, by default one per core, the most
+ * costly first (see GAImplementation.getEstimatedCost), so that the short items fill in the gaps at the end. Progress
+ * is printed from a thread of its own every reporting interval, and a summary of how long each item took and how many
+ * chromosomes it evaluated per second is printed once every item is done.
+ * <br/>
+ * Cancelling stops each running item at the end of its current generation, and skips the items not started yet.
+ */
+public class ExperimentScheduler {
+
+	/**
+	 * A configuration, or a run of it, and how far it has got.
+	 */
+	private static class Item {
+		private final String CONFIGURATION;
+		private final int RUN;
+		private final GAImplementation GA;
+		private volatile long START;
+		private volatile long END;
+		private volatile boolean SKIPPED;
+		private volatile Throwable FAILURE;
+
+		/**
+		 * @param configuration the configuration file
+		 * @param run the run the item makes, 0 for every run
+		 * @param ga the GA to run
+		 */
+		private Item(String configuration, int run, GAImplementation ga) {
+			this.CONFIGURATION = configuration;
+			this.RUN = run;
+			this.GA = ga;
+		}
+
+		private String name() {
+			return this.RUN > 0 ? this.CONFIGURATION + " run " + this.RUN : this.CONFIGURATION;
+		}
+
+		/**
+		 * @return whether the item has made every generation it had to
+		 */
+		private boolean isDone() {
+			return this.END != 0 && this.FAILURE == null && this.GA.getGenerationsDone() == this.GA.getGenerationsTotal();
+		}
+	}
+
+	/**
+	 * The items of a configuration whose runs are made apart, in run order, and the output file to stitch their
+	 * output files into.
+	 */
+	private static class Split {
+		private final Path OUTPUT;
+		private final List<Item> ITEMS;
+
+		private Split(Path output) {
+			this.OUTPUT = output;
+			this.ITEMS = new ArrayList<>();
+		}
+	}
+
+	private final int THREADS;
+	private final List<Item> ITEMS;
+	private final List<Split> SPLITS;
+	private volatile boolean CANCELLED;
+
+	/**
+	 * @param threads the number of runs to make at the same time
+	 */
+	public ExperimentScheduler(int threads) {
+		this.THREADS = Math.max(1, threads);
+		this.ITEMS = new ArrayList<>();
+		this.SPLITS = new ArrayList<>();
+	}
+
+	/**
+	 * Loads a configuration and adds it as a work item, or each of its runs if it asks for them to be made apart.
+	 *
+	 * @param seed seed for the GA, see GAImplementation.forRun for the seeds of runs made apart
+	 * @param configuration the configuration file
+	 * @param noisy flag to enable/disable noisy console output
+	 * @return false if the configuration could not be loaded, in which case nothing is added
+	 */
+	public boolean add(long seed, String configuration, boolean noisy) {
+		GAImplementation ga = new GAImplementation(seed, configuration, noisy);
+		if (!ga.isValid()) {
+			System.out.println("Configuration not loaded, skipped: " + configuration);
+			return false;
+		}
+		if (!ga.isSplitRuns()) {
+			this.ITEMS.add(new Item(configuration, 0, ga));
+			return true;
+		}
+		Split split = new Split(ga.getOutputPath());
+		for (int run = 1; run <= ga.getRunSpan(); run++) {
+			Item item = new Item(configuration, run, ga.forRun(run));
+			split.ITEMS.add(item);
+			this.ITEMS.add(item);
+		}
+		this.SPLITS.add(split);
+		return true;
+	}
+
+	/**
+	 * Makes every item, printing progress every reportInterval seconds, then stitches together the output files of
+	 * the runs made apart and prints the summary.
+	 *
+	 * @param reportInterval the number of seconds between progress reports, 0 for none
+	 */
+	public void run(int reportInterval) {
+		List<Item> queue = new ArrayList<>(this.ITEMS);
+		queue.sort(Comparator.comparingLong((Item item) -> item.GA.getEstimatedCost()).reversed());
+		ForkJoinPool pool = new ForkJoinPool(this.THREADS);
+		ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "Experiment progress");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ScheduledFuture<?> reports = reportInterval > 0
+				? reporter.scheduleAtFixedRate(this::report, reportInterval, reportInterval, TimeUnit.SECONDS)
+				: null;
+		long start = System.nanoTime();
+		try {
+			List<ForkJoinTask<?>> tasks = new ArrayList<>();
+			for (Item item : queue) {
+				tasks.add(pool.submit(() -> this.make(item)));
+			}
+			for (ForkJoinTask<?> task : tasks) {
+				task.join();
+			}
+		} finally {
+			if (reports != null) {
+				reports.cancel(false);
+			}
+			reporter.shutdown();
+			pool.shutdown();
+		}
+		for (Split split : this.SPLITS) {
+			this.stitch(split);
+		}
+		this.summary(System.nanoTime() - start);
+	}
+
+	/**
+	 * Stops the running items at the end of their current generation and skips the others. Can be called from any
+	 * thread.
+	 */
+	public void cancel() {
+		this.CANCELLED = true;
+		for (Item item : this.ITEMS) {
+			item.GA.cancel();
+		}
+	}
+
+	private void make(Item item) {
+		if (this.CANCELLED) {
+			item.SKIPPED = true;
+			return;
+		}
+		item.START = System.nanoTime();
+		try {
+			item.GA.run();
+		} catch (RuntimeException | Error e) {
+			// one failed run must not stop the others
+			item.FAILURE = e;
+			System.out.println(item.name() + " failed: " + e);
+		} finally {
+			item.END = System.nanoTime();
+		}
+	}
+
+	/**
+	 * Writes the output files of the runs of a configuration into its own output file, as run would have written
+	 * them: the header of the first run, then the rows of each run in turn. The files of the runs are then deleted.
+	 * They are left as they are if any run is not done, or if they can not be stitched.
+	 */
+	private void stitch(Split split) {
+		for (Item item : split.ITEMS) {
+			if (!item.isDone()) {
+				System.out.println("Not every run of " + item.CONFIGURATION + " is done, their output is left apart");
+				return;
+			}
+		}
+		try (BufferedWriter output = Files.newBufferedWriter(split.OUTPUT)) {
+			for (Item item : split.ITEMS) {
+				try (BufferedReader input = Files.newBufferedReader(item.GA.getOutputPath())) {
+					String line;
+					int lines = 0;
+					while ((line = input.readLine()) != null) {
+						// the two lines of header are only kept from the first run
+						if (lines++ >= 2 || item == split.ITEMS.get(0)) {
+							output.write(line);
+							output.newLine();
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			System.out.println("Unable to stitch the runs into " + split.OUTPUT + ": " + e.getMessage());
+			return;
+		}
+		for (Item item : split.ITEMS) {
+			try {
+				Files.delete(item.GA.getOutputPath());
+			} catch (IOException e) {
+				System.out.println("Unable to delete " + item.GA.getOutputPath() + ": " + e.getMessage());
+			}
+		}
+	}
+
+	/**
+	 * Prints the progress of the items being made, and how many are done.
+	 */
+	private void report() {
+		int done = 0;
+		StringBuilder running = new StringBuilder();
+		for (Item item : this.ITEMS) {
+			if (item.END != 0 || item.SKIPPED) {
+				done++;
+			} else if (item.START != 0) {
+				running.append(String.format("  %s: generation %d/%d, %d evaluations, %.1f evaluations/s%n",
+						item.name(), item.GA.getGenerationsDone(), item.GA.getGenerationsTotal(),
+						item.GA.getEvaluationsDone(), rate(item.GA.getEvaluationsDone(), System.nanoTime() - item.START)));
+			}
+		}
+		System.out.print("Items done: " + done + "/" + this.ITEMS.size() + System.lineSeparator() + running);
+	}
+
+	/**
+	 * Prints how long each item took, and the throughput of each and of the whole experiment.
+	 */
+	private void summary(long elapsed) {
+		long evaluations = 0;
+		System.out.println("Item,Status,Generations,Evaluations,Seconds,Evaluations per Second");
+		for (Item item : this.ITEMS) {
+			String status = item.SKIPPED ? "skipped" : item.FAILURE != null ? "failed"
+					: this.CANCELLED && item.GA.getGenerationsDone() < item.GA.getGenerationsTotal() ? "cancelled"
+					: "done";
+			long time = item.START == 0 ? 0 : item.END - item.START;
+			evaluations += item.GA.getEvaluationsDone();
+			System.out.println(item.name() + "," + status + "," + item.GA.getGenerationsDone() + ","
+					+ item.GA.getEvaluationsDone() + "," + String.format("%.3f", time / 1e9) + ","
+					+ String.format("%.1f", rate(item.GA.getEvaluationsDone(), time)));
+		}
+		System.out.println("Total: " + this.ITEMS.size() + " items on " + this.THREADS + " threads, " + evaluations
+				+ " evaluations in " + String.format("%.3f", elapsed / 1e9) + " seconds, "
+				+ String.format("%.1f", rate(evaluations, elapsed)) + " evaluations/s");
+	}
+
+	private static double rate(long evaluations, long nanos) {
+		return nanos <= 0 ? 0 : evaluations / (nanos / 1e9);
+	}
+}
@@ -5,8 +5,6 @@
  */
 package threadedtests;
 
-import ga.GAImplementation;
-import java.util.ArrayList;
 import java.util.Arrays;
 
 /**
@@ -15,7 +13,8 @@ import java.util.Arrays;
  */
 public class GARuns {
 
-	public static final int MAX_THREADS = 1;
+	public static final int MAX_THREADS = Runtime.getRuntime().availableProcessors();
+	public static final int REPORT_INTERVAL = 60; // seconds between progress reports
 	public static int FIRST_TEST = 1;
 	public static int LAST_TEST = 1;
 	public static String[] TESTS = new String[]{
@@ -68,20 +67,16 @@ public class GARuns {
 		System.out.println("Input filenames: " + Arrays.toString(TESTS));
 
 
-		GAThread[] threads = new GAThread[MAX_THREADS];
-		ArrayList<GAImplementation> threadData = new ArrayList<>();
+		// each test is a work item of its own, or each of its runs if it asks for them to be made apart
+		ExperimentScheduler scheduler = new ExperimentScheduler(MAX_THREADS);
 		for (int i = FIRST_TEST; i <= LAST_TEST; i ++) {
 			for(int j = 0; j < TESTS.length; j ++){
 				String filename = TESTS[j].replace("?", String.valueOf(i));
 				System.out.println(filename);
-				threadData.add(new GAImplementation(SEED, filename, noisy));
+				scheduler.add(SEED, filename, noisy);
 			}
 		}
-
-		Mediator shared = new Mediator(threadData);
-		for (int i = 0; i < MAX_THREADS; i++) {
-			(new GAThread(shared)).start();
-		}
+		scheduler.run(REPORT_INTERVAL);
 	}
 
 }